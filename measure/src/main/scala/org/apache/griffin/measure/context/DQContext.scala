@@ -18,12 +18,15 @@ under the License.
 */
 package org.apache.griffin.measure.context
 
-import org.apache.spark.sql.{Encoders, SparkSession, SQLContext}
+import scala.util.Try
+
+import org.apache.spark.sql.{DataFrame, SparkSession, SQLContext}
 
 import org.apache.griffin.measure.configuration.dqdefinition._
 import org.apache.griffin.measure.configuration.enums._
 import org.apache.griffin.measure.datasource._
-import org.apache.griffin.measure.sink.{Sink, SinkFactory}
+import org.apache.griffin.measure.sink.Sink
+import org.apache.griffin.measure.utils.ParallelUtil
 
 /**
   * dq context: the context of each calculation
@@ -64,22 +67,52 @@ case class DQContext(contextId: ContextId,
     if (dataSourceNames.size > index) dataSourceNames(index) else ""
   }
 
-  implicit val encoder = Encoders.STRING
-  val functionNames: Seq[String] = sparkSession.catalog.listFunctions.map(_.name).collect.toSeq
+  val functionNames: Seq[String] = DQContextCache.getFunctionNames(sparkSession)
+
+  private var dataSourceLoadInfos: Seq[String] = Nil
 
   val dataSourceTimeRanges = loadDataSources()
 
+  /**
+    * read data sources concurrently, then register them in the order of data sources
+    * @return   time range of each data source
+    */
   def loadDataSources(): Map[String, TimeRange] = {
-    dataSources.map { ds =>
-      (ds.name, ds.loadData(this))
+    val parallelism = DataSource.parallelism(this)
+    val loaded = ParallelUtil.parMap(dataSources, parallelism, "load-data-source") { ds =>
+      val startTime = System.currentTimeMillis
+      val (dfOpt, timeRange) = ds.readData(this)
+      (ds, dfOpt, timeRange, System.currentTimeMillis - startTime)
+    }
+    dataSourceLoadInfos = loaded.map { tuple =>
+      val (ds, dfOpt, _, t) = tuple
+      s"${ds.name} -> ${t} ms, ${estimateSize(dfOpt)}"
+    }
+    loaded.map { tuple =>
+      val (ds, dfOpt, timeRange, _) = tuple
+      ds.registerData(this, dfOpt)
+      (ds.name, timeRange)
     }.toMap
   }
 
+  // estimated by statistics of optimized plan, without running the data frame
+  private def estimateSize(dfOpt: Option[DataFrame]): String = {
+    dfOpt.flatMap { df =>
+      Try {
+        val stats = df.queryExecution.optimizedPlan.stats(sparkSession.sessionState.conf)
+        val rows = stats.rowCount.map(_.toString).getOrElse("unknown")
+        s"estimated rows: ${rows}, estimated size: ${stats.sizeInBytes} bytes"
+      }.toOption
+    }.getOrElse("no data")
+  }
+
   printTimeRanges
 
-  private val sinkFactory = SinkFactory(sinkParams, name)
+  private val sinkFactory = DQContextCache.getSinkFactory(sinkParams, name)
   private val defaultSink: Sink = createSink(contextId.timestamp)
 
+  printDataSourceLoadInfos
+
   def getSink(timestamp: Long): Sink = {
     if (timestamp == contextId.timestamp) getSink()
     else createSink(timestamp)
@@ -106,6 +139,14 @@ case class DQContext(contextId: ContextId,
     dataFrameCache.clearAllTrashDataFrames()
   }
 
+  private def printDataSourceLoadInfos(): Unit = {
+    if (dataSourceLoadInfos.nonEmpty) {
+      val loadInfosStr = dataSourceLoadInfos.mkString(", ")
+      println(s"data source loads: ${loadInfosStr}")
+      defaultSink.log(System.currentTimeMillis, s"data source loads: ${loadInfosStr}")
+    }
+  }
+
   private def printTimeRanges(): Unit = {
     if (dataSourceTimeRanges.nonEmpty) {
       val timeRangesStr = dataSourceTimeRanges.map { pair =>
@@ -0,0 +1,76 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.context
+
+import scala.collection.concurrent.TrieMap
+
+import org.apache.spark.sql.{Encoders, SparkSession}
+
+import org.apache.griffin.measure.configuration.dqdefinition.SinkParam
+import org.apache.griffin.measure.configuration.enums._
+import org.apache.griffin.measure.sink.SinkFactory
+import org.apache.griffin.measure.step.builder.dsl.expr.Expr
+
+/**
+  * application level cache shared by dq contexts of all rounds,
+  * function names and compiled rules are refreshed when udfs are registered
+  */
+object DQContextCache {
+
+  private val functionNamesMap = TrieMap[SparkSession, Seq[String]]()
+  private val sinkFactories = TrieMap[(Seq[SinkParam], String), SinkFactory]()
+  private val ruleExprs = TrieMap[(Seq[String], Seq[String], String, DqType), Expr]()
+
+  /**
+    * @return   function names in catalog, listed only once for each spark session
+    */
+  def getFunctionNames(sparkSession: SparkSession): Seq[String] = {
+    functionNamesMap.getOrElseUpdate(sparkSession, {
+      implicit val encoder = Encoders.STRING
+      sparkSession.catalog.listFunctions.map(_.name).collect.toSeq
+    })
+  }
+
+  /**
+    * refresh after functions registered, rules are compiled again with new function names
+    */
+  def refreshFunctions(sparkSession: SparkSession): Unit = {
+    functionNamesMap.remove(sparkSession)
+    ruleExprs.clear()
+  }
+
+  def getSinkFactory(sinkParams: Seq[SinkParam], metricName: String): SinkFactory = {
+    sinkFactories.getOrElseUpdate((sinkParams, metricName), SinkFactory(sinkParams, metricName))
+  }
+
+  /**
+    * @param compile    compile rule, not cached if fails
+    * @return   compiled rule expression
+    */
+  def getRuleExpr(dataSourceNames: Seq[String], functionNames: Seq[String], rule: String, dqType: DqType
+                 )(compile: => Option[Expr]): Option[Expr] = {
+    val key = (dataSourceNames, functionNames, rule, dqType)
+    ruleExprs.get(key).orElse {
+      val exprOpt = compile
+      exprOpt.foreach(expr => ruleExprs.put(key, expr))
+      exprOpt
+    }
+  }
+
+}
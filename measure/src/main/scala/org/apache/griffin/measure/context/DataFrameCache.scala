@@ -39,7 +39,7 @@ case class DataFrameCache() extends Loggable {
     trashDataFrames ++= dfs
   }
 
-  def cacheDataFrame(name: String, df: DataFrame): Unit = {
+  def cacheDataFrame(name: String, df: DataFrame): Unit = synchronized {
     info(s"try to cache data frame ${name}")
     dataFrames.get(name) match {
       case Some(odf) =>
@@ -54,16 +54,16 @@ case class DataFrameCache() extends Loggable {
     }
   }
 
-  def uncacheDataFrame(name: String): Unit = {
+  def uncacheDataFrame(name: String): Unit = synchronized {
     dataFrames.get(name).foreach(df => trashDataFrame(df))
     dataFrames -= name
   }
-  def uncacheAllDataFrames(): Unit = {
+  def uncacheAllDataFrames(): Unit = synchronized {
     trashDataFrames(dataFrames.values.toSeq)
     dataFrames.clear
   }
 
-  def clearAllTrashDataFrames(): Unit = {
+  def clearAllTrashDataFrames(): Unit = synchronized {
     trashDataFrames.foreach(_.unpersist)
     trashDataFrames.clear
   }
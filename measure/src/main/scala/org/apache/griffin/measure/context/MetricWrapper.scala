@@ -31,7 +31,7 @@ case class MetricWrapper(name: String) extends Serializable {
 
   val metrics: MutableMap[Long, Map[String, Any]] = MutableMap()
 
-  def insertMetric(timestamp: Long, value: Map[String, Any]): Unit = {
+  def insertMetric(timestamp: Long, value: Map[String, Any]): Unit = synchronized {
     val newValue = metrics.get(timestamp) match {
       case Some(v) => v ++ value
       case _ => value
@@ -39,7 +39,7 @@ case class MetricWrapper(name: String) extends Serializable {
     metrics += (timestamp -> newValue)
   }
 
-  def flush: Map[Long, Map[String, Any]] = {
+  def flush: Map[Long, Map[String, Any]] = synchronized {
     metrics.toMap.map { pair =>
       val (timestamp, value) = pair
       (timestamp, Map[String, Any](
@@ -32,22 +32,23 @@ trait TableRegister extends Loggable with Serializable {
 
   protected val tables: MutableSet[String] = MutableSet()
 
-  def registerTable(name: String): Unit = {
+  // steps of a dq job may register tables concurrently
+  def registerTable(name: String): Unit = tables.synchronized {
     tables += name
   }
 
-  def existsTable(name: String): Boolean = {
+  def existsTable(name: String): Boolean = tables.synchronized {
     tables.exists(_.equals(name))
   }
 
-  def unregisterTable(name: String): Unit = {
+  def unregisterTable(name: String): Unit = tables.synchronized {
     if (existsTable(name)) tables -= name
   }
-  def unregisterAllTables(): Unit = {
+  def unregisterAllTables(): Unit = tables.synchronized {
     tables.clear
   }
 
-  def getTables(): Set[String] = {
+  def getTables(): Set[String] = tables.synchronized {
     tables.toSet
   }
 
@@ -68,13 +69,13 @@ case class RunTimeTableRegister(@transient sqlContext: SQLContext) extends Table
     df.createOrReplaceTempView(name)
   }
 
-  override def unregisterTable(name: String): Unit = {
+  override def unregisterTable(name: String): Unit = tables.synchronized {
     if (existsTable(name)) {
       sqlContext.dropTempTable(name)
       tables -= name
     }
   }
-  override def unregisterAllTables(): Unit = {
+  override def unregisterAllTables(): Unit = tables.synchronized {
     val uts = getTables
     uts.foreach(t => sqlContext.dropTempTable(t))
     tables.clear
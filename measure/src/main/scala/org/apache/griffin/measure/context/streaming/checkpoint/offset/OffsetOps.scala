@@ -25,12 +25,14 @@ trait OffsetOps extends Serializable { this: OffsetCheckpoint =>
   val ReadyTime = "ready.time"
   val CleanTime = "clean.time"
   val OldCacheIndex = "old.cache.index"
+  val PartitionCount = "partition.count"
 
   def cacheTime(path: String): String = s"${path}/${CacheTime}"
   def lastProcTime(path: String): String = s"${path}/${LastProcTime}"
   def readyTime(path: String): String = s"${path}/${ReadyTime}"
   def cleanTime(path: String): String = s"${path}/${CleanTime}"
   def oldCacheIndex(path: String): String = s"${path}/${OldCacheIndex}"
+  def partitionCount(path: String): String = s"${path}/${PartitionCount}"
 
   val infoPath = "info"
 
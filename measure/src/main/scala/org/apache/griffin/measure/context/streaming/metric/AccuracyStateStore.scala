@@ -0,0 +1,74 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.context.streaming.metric
+
+import org.apache.spark.sql.{DataFrame, SQLContext}
+import org.apache.spark.sql.functions._
+import org.apache.spark.sql.types._
+
+import org.apache.griffin.measure.step.builder.ConstantColumns
+
+/**
+  * in streaming mode, accuracy metrics of each tmst are kept on hdfs,
+  * it replaces the driver side cache results of accuracy.
+  * @param path   root path of the state of one accuracy rule
+  */
+case class AccuracyStateStore(sqlContext: SQLContext, path: String) extends StateStore {
+
+  val _Miss = "miss"
+  val _Total = "total"
+
+  val schema = StructType(Array(
+    StructField(ConstantColumns.tmst, LongType),
+    StructField(_Miss, LongType),
+    StructField(_Total, LongType)
+  ))
+
+  // miss only decreases in updates, total is kept from the first metric
+  protected def reduceState(df: DataFrame): DataFrame = {
+    df.groupBy(ConstantColumns.tmst).agg(min(_Miss).as(_Miss), max(_Total).as(_Total))
+  }
+
+  /**
+    * merge new metrics into the state
+    * @param metricDf     new metrics, with columns of tmst, miss and total
+    * @param updateTime   update time as the version of this round
+    * @return   changed metrics of this round
+    */
+  def update(metricDf: DataFrame, updateTime: Long): DataFrame = {
+    val changedDf = readState() match {
+      case Some(stateDf) =>
+        val newMetrics = metricDf.as("n")
+        val stateMetrics = stateDf.as("s")
+        newMetrics.join(stateMetrics, Seq(ConstantColumns.tmst), "left_outer")
+          .where(col(s"s.${_Miss}").isNull || col(s"n.${_Miss}") < col(s"s.${_Miss}"))
+          .select(col(ConstantColumns.tmst), col(s"n.${_Miss}").as(_Miss),
+            coalesce(col(s"s.${_Total}"), col(s"n.${_Total}")).as(_Total))
+      case _ => metricDf.select(ConstantColumns.tmst, _Miss, _Total)
+    }
+    commit(changedDf, updateTime)
+  }
+
+}
+
+object AccuracyStateStore {
+
+  val _StatePath = "spark.griffin.accuracy.state.path"
+
+}
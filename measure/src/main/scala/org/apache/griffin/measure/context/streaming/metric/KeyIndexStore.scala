@@ -0,0 +1,183 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.context.streaming.metric
+
+import java.io.{DataInputStream, DataOutputStream}
+
+import scala.util.{Failure, Success, Try}
+
+import org.apache.spark.sql.{Column, DataFrame, SQLContext}
+import org.apache.spark.sql.functions._
+import org.apache.spark.sql.types._
+import org.apache.spark.util.sketch.BloomFilter
+
+import org.apache.griffin.measure.step.builder.ConstantColumns
+import org.apache.griffin.measure.utils.HdfsUtil
+
+/**
+  * in streaming mode, hashes of keys seen in each tmst are kept on hdfs, partitioned by bucket of hash,
+  * with a bloom filter of each version, so that keys of new data are probed in the index,
+  * instead of joining with all the older data in each round.
+  * the bucket number of each version grows with its size, so that only the buckets of keys found in bloom filters
+  * are read, and each round costs about the new data, not all the older data.
+  * @param path             root path of the index of one rule
+  * @param keysPerBucket    expected count of keys in each bucket
+  */
+case class KeyIndexStore(sqlContext: SQLContext, path: String,
+                         keysPerBucket: Long = KeyIndexStore.KeysPerBucket) extends StateStore {
+
+  import KeyIndexStore._
+
+  val schema = StructType(Array(
+    StructField(ConstantColumns.tmst, LongType),
+    StructField(_Key, LongType),
+    StructField(_Count, LongType),
+    StructField(_Bucket, IntegerType)
+  ))
+
+  override protected val partitionColumns: Seq[String] = _Bucket :: Nil
+
+  val BloomFile = "_bloom"
+  val BloomFpp = 0.001
+
+  // bucket of a key differs between versions, it is assigned again when a version is written
+  protected def reduceState(df: DataFrame): DataFrame = {
+    df.groupBy(ConstantColumns.tmst, _Key).agg(max(_Count).as(_Count))
+  }
+
+  override protected def prepareVersion(df: DataFrame): DataFrame = {
+    val keyCountDf = df.select(col(ConstantColumns.tmst), col(_Key), col(_Count))
+    keyCountDf.select(col(ConstantColumns.tmst), col(_Key), col(_Count),
+      bucketCol(bucketNum(keyCountDf.count, keysPerBucket)))
+  }
+
+  // files starting with underscore are ignored by parquet reader,
+  // bucket number of the version is written ahead of the bloom filter
+  override protected def versionWritten(versionPath: String): Unit = {
+    val keyDf = readVersion(versionPath).select(_Key)
+    val keyCount = keyDf.count
+    val bloomFilter = keyDf.stat.bloomFilter(_Key, math.max(keyCount, 1L), BloomFpp)
+    val out = new DataOutputStream(HdfsUtil.createFile(HdfsUtil.getHdfsFilePath(versionPath, BloomFile)))
+    try {
+      out.writeInt(bucketNum(keyCount, keysPerBucket))
+      bloomFilter.writeTo(out)
+    } finally {
+      out.close()
+    }
+  }
+
+  private def readBloomFilter(versionPath: String): Option[(Int, BloomFilter)] = {
+    val bloomPath = HdfsUtil.getHdfsFilePath(versionPath, BloomFile)
+    Try {
+      val in = new DataInputStream(HdfsUtil.openFile(bloomPath))
+      try {
+        (in.readInt(), BloomFilter.readFrom(in))
+      } finally {
+        in.close()
+      }
+    } match {
+      case Success(bf) => Some(bf)
+      case Failure(e) =>
+        warn(s"read bloom filter ${bloomPath} fails: ${e.getMessage}")
+        None
+    }
+  }
+
+  /**
+    * count keys of this round in older data, and add them into the index
+    * @param keyCountDf   key counts of this round, with columns of tmst, key and count
+    * @param beginTmst    keys with tmst not after it are older data
+    * @param updateTime   update time as the version of this round
+    * @return   count of each key of this round in older data, none if no key found in older data
+    */
+  def update(keyCountDf: DataFrame, beginTmst: Long, updateTime: Long): Option[DataFrame] = {
+    val keyDf = keyCountDf.select(_Key).distinct
+    val olderOpt = probe(keyDf, beginTmst)
+    commit(keyCountDf.select(ConstantColumns.tmst, _Key, _Count), updateTime)
+    olderOpt
+  }
+
+  /**
+    * keys not in the bloom filter of a version are new to it, only buckets of the others are read
+    * @return   path of each version, with buckets to read, all buckets if the version has no bloom filter
+    */
+  private[metric] def probedBuckets(keyDf: DataFrame): Seq[(String, Option[Seq[Int]])] = {
+    val paths = currentVersionPaths()
+    val bloomFilters = paths.map(readBloomFilter)
+    if (bloomFilters.forall(_.isEmpty)) paths.map((_, None)) else {
+      val bc = sqlContext.sparkContext.broadcast(bloomFilters)
+      val probed = try {
+        keyDf.select(_Key).rdd.flatMap { row =>
+          val key = row.getLong(0)
+          bc.value.zipWithIndex.collect {
+            case (Some((num, bf)), i) if bf.mightContainLong(key) => (i, bucketOf(key, num))
+          }
+        }.distinct.collect.groupBy(_._1).mapValues(_.map(_._2).toSeq)
+      } finally {
+        bc.destroy()
+      }
+      paths.zip(bloomFilters).zipWithIndex.map {
+        case ((p, Some(_)), i) => (p, Some(probed.getOrElse(i, Nil)))
+        case ((p, None), _) => (p, None)
+      }
+    }
+  }
+
+  private def probe(keyDf: DataFrame, beginTmst: Long): Option[DataFrame] = {
+    val indexDfs = probedBuckets(keyDf).flatMap {
+      case (p, Some(buckets)) if buckets.nonEmpty => Some(readVersion(p).where(col(_Bucket).isin(buckets: _*)))
+      case (p, None) => Some(readVersion(p))
+      case _ => None
+    }
+
+    if (indexDfs.isEmpty) None else {
+      val indexDf = indexDfs.reduce(_ union _).where(col(ConstantColumns.tmst) <= beginTmst)
+      val olderDf = reduceState(indexDf.join(keyDf, _Key))
+        .groupBy(_Key).agg(sum(_Count).cast(LongType).as(_Count))
+      Some(olderDf)
+    }
+  }
+
+}
+
+object KeyIndexStore {
+
+  val _StatePath = "spark.griffin.key.index.path"
+
+  val _Key = "__key"
+  val _Count = "__count"
+  val _Bucket = "__bucket"
+
+  val KeysPerBucket = 50000L
+  val MaxBucketNum = 4096
+
+  /**
+    * @return   power of two bucket number, with about keys per bucket in each bucket
+    */
+  def bucketNum(keyCount: Long, keysPerBucket: Long): Int = {
+    val num = math.max((keyCount + keysPerBucket - 1) / keysPerBucket, 1L)
+    val powerOfTwo = math.max(java.lang.Long.highestOneBit(num - 1) << 1, 1L)
+    math.min(powerOfTwo, MaxBucketNum.toLong).toInt
+  }
+
+  def bucketCol(bucketNum: Int): Column = pmod(col(_Key), lit(bucketNum)).cast(IntegerType).as(_Bucket)
+
+  def bucketOf(key: Long, bucketNum: Int): Int = (((key % bucketNum) + bucketNum) % bucketNum).toInt
+
+}
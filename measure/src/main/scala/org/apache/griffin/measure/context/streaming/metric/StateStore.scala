@@ -0,0 +1,180 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.context.streaming.metric
+
+import org.apache.spark.sql.{DataFrame, SaveMode, SQLContext}
+import org.apache.spark.sql.functions._
+import org.apache.spark.sql.types._
+
+import org.apache.griffin.measure.Loggable
+import org.apache.griffin.measure.step.builder.ConstantColumns
+import org.apache.griffin.measure.utils.HdfsUtil
+
+/**
+  * state of each tmst kept on hdfs in streaming mode,
+  * as deltas of changed state in each round, compacted into snapshots periodically,
+  * it survives driver restarts.
+  */
+trait StateStore extends Loggable {
+
+  val sqlContext: SQLContext
+
+  // root path of the state
+  val path: String
+
+  // schema of state, with tmst column
+  val schema: StructType
+
+  val DeltaDir = "delta"
+  val SnapshotDir = "snapshot"
+  val SuccessFile = "_SUCCESS"
+
+  val MaxDeltaCount = 20
+
+  protected lazy val deltaPath = HdfsUtil.getHdfsFilePath(path, DeltaDir)
+  protected lazy val snapshotPath = HdfsUtil.getHdfsFilePath(path, SnapshotDir)
+
+  // columns to partition versions by, none by default
+  protected val partitionColumns: Seq[String] = Nil
+
+  /**
+    * reduce state rows of the same tmst from snapshot and deltas into one
+    */
+  protected def reduceState(df: DataFrame): DataFrame
+
+  /**
+    * rows of a version to write, from changed or compacted state
+    */
+  protected def prepareVersion(df: DataFrame): DataFrame = df
+
+  /**
+    * called after a version is written, before it is read
+    */
+  protected def versionWritten(versionPath: String): Unit = {}
+
+  // committed versions under the path, named by update time
+  private def versions(dir: String): Seq[Long] = {
+    HdfsUtil.listSubPathsByType(dir, "dir").flatMap { name =>
+      try {
+        val version = name.toLong
+        if (HdfsUtil.existFileInDir(HdfsUtil.getHdfsFilePath(dir, name), SuccessFile)) Some(version)
+        else None
+      } catch {
+        case _: NumberFormatException => None
+      }
+    }.toSeq.sorted
+  }
+
+  protected def readVersion(versionPath: String): DataFrame = {
+    sqlContext.read.schema(schema).parquet(versionPath)
+  }
+
+  private def writeVersion(df: DataFrame, dir: String, version: Long): String = {
+    val versionPath = HdfsUtil.getHdfsFilePath(dir, version.toString)
+    // a version is small, written in one file per partition instead of one per shuffle partition,
+    // repartition keeps the parallelism of the stage computing it
+    val versionDf = prepareVersion(df)
+    val writer = if (partitionColumns.isEmpty) versionDf.repartition(1).write else {
+      versionDf.repartition(partitionColumns.map(col): _*).write.partitionBy(partitionColumns: _*)
+    }
+    writer.mode(SaveMode.Overwrite).parquet(versionPath)
+    versionWritten(versionPath)
+    versionPath
+  }
+
+  /**
+    * @return   latest snapshot version and delta versions after it
+    */
+  private def stateVersions: (Option[Long], Seq[Long]) = {
+    val snapshotOpt = versions(snapshotPath).lastOption
+    val deltas = versions(deltaPath).filter(v => snapshotOpt.forall(v > _))
+    (snapshotOpt, deltas)
+  }
+
+  private def versionPaths(snapshotOpt: Option[Long], deltas: Seq[Long]): Seq[String] = {
+    snapshotOpt.map(v => HdfsUtil.getHdfsFilePath(snapshotPath, v.toString)).toSeq ++
+      deltas.map(v => HdfsUtil.getHdfsFilePath(deltaPath, v.toString))
+  }
+
+  private def readState(paths: Seq[String]): Option[DataFrame] = {
+    if (paths.isEmpty) None else Some(reduceState(paths.map(readVersion).reduce(_ union _)))
+  }
+
+  /**
+    * deltas are compacted first if there are too many of them,
+    * so that the versions listed are not removed in this round
+    * @return   paths of current snapshot and deltas
+    */
+  protected def currentVersionPaths(): Seq[String] = {
+    val (snapshotOpt, deltas) = stateVersions
+    if (deltas.size >= MaxDeltaCount) {
+      compact(snapshotOpt, deltas)
+      val (newSnapshotOpt, newDeltas) = stateVersions
+      versionPaths(newSnapshotOpt, newDeltas)
+    } else versionPaths(snapshotOpt, deltas)
+  }
+
+  /**
+    * read current state
+    * @return   state of each tmst
+    */
+  def readState(): Option[DataFrame] = readState(currentVersionPaths())
+
+  /**
+    * commit changed state of this round as a delta
+    * @return   the committed delta, read back so that it is not calculated again
+    */
+  def commit(changedDf: DataFrame, updateTime: Long): DataFrame = {
+    readVersion(writeVersion(changedDf, deltaPath, updateTime))
+  }
+
+  /**
+    * compact snapshot and deltas into a new snapshot,
+    * state out of time is not updated any more and removed
+    */
+  private def compact(snapshotOpt: Option[Long], deltas: Seq[Long]): Unit = {
+    deltas.lastOption.foreach { version =>
+      readState(versionPaths(snapshotOpt, deltas)).foreach { stateDf =>
+        val overtime = StateStore.getOvertime
+        val liveDf = stateDf.where(col(ConstantColumns.tmst) >= overtime)
+        writeVersion(liveDf, snapshotPath, version)
+        info(s"compact state [${path}] into snapshot ${version}")
+
+        snapshotOpt.foreach(v => HdfsUtil.deleteHdfsPath(HdfsUtil.getHdfsFilePath(snapshotPath, v.toString)))
+        deltas.foreach(v => HdfsUtil.deleteHdfsPath(HdfsUtil.getHdfsFilePath(deltaPath, v.toString)))
+      }
+    }
+  }
+
+}
+
+object StateStore {
+
+  @volatile private var overtime = 0L
+
+  /**
+    * state with tmst before overtime is removed at next compaction
+    */
+  def refresh(ot: Long): Unit = {
+    overtime = ot
+  }
+
+  def getOvertime: Long = overtime
+
+}
@@ -26,6 +26,7 @@ import org.apache.griffin.measure.context.{DQContext, TimeRange}
 import org.apache.griffin.measure.datasource.cache.StreamingCacheClient
 import org.apache.griffin.measure.datasource.connector.DataConnector
 import org.apache.griffin.measure.utils.DataFrameUtil._
+import org.apache.griffin.measure.utils.ParallelUtil
 
 /**
   * data source
@@ -47,21 +48,37 @@ case class DataSource(name: String,
   }
 
   def loadData(context: DQContext): TimeRange = {
+    val (dfOpt, timeRange) = readData(context)
+    registerData(context, dfOpt)
+    timeRange
+  }
+
+  /**
+    * read data of connectors concurrently, without registering it
+    * @return   data frame and time range of this data source
+    */
+  def readData(context: DQContext): (Option[DataFrame], TimeRange) = {
     info(s"load data [${name}]")
     val timestamp = context.contextId.timestamp
-    val (dfOpt, timeRange) = data(timestamp)
+    val parallelism = DataSource.parallelism(context)
+    data(timestamp, parallelism)
+  }
+
+  def registerData(context: DQContext, dfOpt: Option[DataFrame]): Unit = {
     dfOpt match {
       case Some(df) =>
         context.runTimeTableRegister.registerTable(name, df)
       case None =>
         warn(s"load data source [${name}] fails")
     }
-    timeRange
   }
 
-  private def data(timestamp: Long): (Option[DataFrame], TimeRange) = {
-    val batches = dataConnectors.flatMap { dc =>
-      val (dfOpt, timeRange) = dc.data(timestamp)
+  private def data(timestamp: Long, parallelism: Int): (Option[DataFrame], TimeRange) = {
+    val connectorData = ParallelUtil.parMap(dataConnectors, parallelism, s"load-${name}") { dc =>
+      dc.data(timestamp)
+    }
+    val batches = connectorData.flatMap { pair =>
+      val (dfOpt, timeRange) = pair
       dfOpt match {
         case Some(df) => Some((dfOpt, timeRange))
         case _ => None
@@ -95,3 +112,16 @@ case class DataSource(name: String,
   }
 
 }
+
+object DataSource {
+
+  val _Parallelism = "spark.griffin.datasource.parallelism"
+
+  /**
+    * @return max number of data sources, or connectors of a data source, loaded concurrently
+    */
+  def parallelism(context: DQContext): Int = {
+    context.sqlContext.sparkContext.getConf.getInt(_Parallelism, 4)
+  }
+
+}
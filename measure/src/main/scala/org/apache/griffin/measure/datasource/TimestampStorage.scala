@@ -26,21 +26,22 @@ import org.apache.griffin.measure.Loggable
   */
 case class TimestampStorage() extends Loggable {
 
+  // connectors of a data source may load data concurrently
   private val tmstGroup: MutableSortedSet[Long] = MutableSortedSet.empty[Long]
 
   // -- insert tmst into tmst group --
-  def insert(tmst: Long) : MutableSortedSet[Long] = tmstGroup += tmst
-  def insert(tmsts: Iterable[Long]) : MutableSortedSet[Long] = tmstGroup ++= tmsts
+  def insert(tmst: Long) : MutableSortedSet[Long] = synchronized { tmstGroup += tmst }
+  def insert(tmsts: Iterable[Long]) : MutableSortedSet[Long] = synchronized { tmstGroup ++= tmsts }
 
   // -- remove tmst from tmst group --
-  def remove(tmst: Long) : MutableSortedSet[Long] = tmstGroup -= tmst
-  def remove(tmsts: Iterable[Long]) : MutableSortedSet[Long] = tmstGroup --= tmsts
+  def remove(tmst: Long) : MutableSortedSet[Long] = synchronized { tmstGroup -= tmst }
+  def remove(tmsts: Iterable[Long]) : MutableSortedSet[Long] = synchronized { tmstGroup --= tmsts }
 
   // -- get subset of tmst group --
-  def fromUntil(from: Long, until: Long) : Set[Long] = tmstGroup.range(from, until).toSet
-  def afterTil(after: Long, til: Long) : Set[Long] = tmstGroup.range(after + 1, til + 1).toSet
-  def until(until: Long) : Set[Long] = tmstGroup.until(until).toSet
-  def from(from: Long) : Set[Long] = tmstGroup.from(from).toSet
-  def all : Set[Long] = tmstGroup.toSet
+  def fromUntil(from: Long, until: Long) : Set[Long] = synchronized { tmstGroup.range(from, until).toSet }
+  def afterTil(after: Long, til: Long) : Set[Long] = synchronized { tmstGroup.range(after + 1, til + 1).toSet }
+  def until(until: Long) : Set[Long] = synchronized { tmstGroup.until(until).toSet }
+  def from(from: Long) : Set[Long] = synchronized { tmstGroup.from(from).toSet }
+  def all : Set[Long] = synchronized { tmstGroup.toSet }
 
 }
@@ -105,11 +105,38 @@ trait StreamingCacheClient
   val defOldCacheIndex = 0L
 
   protected def writeDataFrame(dfw: DataFrameWriter[Row], path: String): Unit
-  protected def readDataFrame(dfr: DataFrameReader, path: String): DataFrame
+  protected def readDataFrame(dfr: DataFrameReader, paths: String*): DataFrame
 
-  private def readDataFrameOpt(dfr: DataFrameReader, path: String): Option[DataFrame] = {
-    val df = readDataFrame(dfr, path)
-    if (df.count() > 0) Some(df) else None
+  // probe a single row instead of counting the whole data frame
+  private def nonEmpty(df: DataFrame): Boolean = df.limit(1).count > 0
+
+  private def readDataFrameOpt(dfr: DataFrameReader, path: String, filterStr: String
+                              ): Option[DataFrame] = {
+    val df = readDataFrame(dfr, path).filter(filterStr)
+    if (nonEmpty(df)) Some(df) else None
+  }
+
+  /**
+    * read new cache data of tmst partitions in range only,
+    * emptiness is decided by partition counts submitted in dump phase if possible
+    */
+  private[cache] def readNewDataFrameOpt(inRange: Long => Boolean): Option[DataFrame] = {
+    val partitions = listPartitions(newFilePath, Some(ConstantColumns.tmst)).filter {
+      case (t, _) => inRange(t)
+    }
+    if (partitions.isEmpty) None else {
+      // keep tmst partition column of the selected partition paths
+      val dfr = sqlContext.read.option("basePath", newFilePath)
+      val df = readDataFrame(dfr, partitions.map(_._2).toSeq: _*)
+      val counts = readPartitionCounts(partitions.map(_._1))
+      if (counts.size == partitions.size) {
+        val cnt = counts.values.sum
+        info(s"read ${dsName} new cache data count: ${cnt}")
+        if (cnt > 0) Some(df) else None
+      } else {
+        if (nonEmpty(df)) Some(df) else None
+      }
+    }
   }
 
   /**
@@ -124,8 +151,9 @@ trait StreamingCacheClient
           // cache df
           df.cache
 
-          // cache df
-          val cnt = df.count
+          // row count of each tmst partition, collected in the same pass of caching df
+          val tmstCounts = countByTmst(df)
+          val cnt = tmstCounts.values.sum
           info(s"save ${dsName} data count: ${cnt}")
 
           if (cnt > 0) {
@@ -135,6 +163,9 @@ trait StreamingCacheClient
               try {
                 val dfw = df.write.mode(SaveMode.Append).partitionBy(ConstantColumns.tmst)
                 writeDataFrame(dfw, newFilePath)
+
+                // other connectors of this data source may append the same tmst partitions
+                addPartitionCounts(tmstCounts)
               } catch {
                 case e: Throwable => error(s"save data error: ${e.getMessage}")
               } finally {
@@ -169,20 +200,21 @@ trait StreamingCacheClient
     val reviseTimeRange = (timeRange._1 + deltaTimeRange._1, timeRange._2 + deltaTimeRange._2)
 
     // read partition info
-    val filterStr = if (reviseTimeRange._1 == reviseTimeRange._2) {
+    val (filterStr, inRange) = if (reviseTimeRange._1 == reviseTimeRange._2) {
       info(s"read time range: [${reviseTimeRange._1}]")
-      s"`${ConstantColumns.tmst}` = ${reviseTimeRange._1}"
+      (s"`${ConstantColumns.tmst}` = ${reviseTimeRange._1}",
+        (t: Long) => t == reviseTimeRange._1)
     } else {
       info(s"read time range: (${reviseTimeRange._1}, ${reviseTimeRange._2}]")
 
-      s"`${ConstantColumns.tmst}` > ${reviseTimeRange._1} " +
-        s"AND `${ConstantColumns.tmst}` <= ${reviseTimeRange._2}"
+      (s"`${ConstantColumns.tmst}` > ${reviseTimeRange._1} " +
+        s"AND `${ConstantColumns.tmst}` <= ${reviseTimeRange._2}",
+        (t: Long) => t > reviseTimeRange._1 && t <= reviseTimeRange._2)
     }
 
     // new cache data
     val newDfOpt = try {
-      val dfr = sqlContext.read
-      readDataFrameOpt(dfr, newFilePath).map(_.filter(filterStr))
+      readNewDataFrameOpt(inRange)
     } catch {
       case e: Throwable =>
         warn(s"read data source cache warn: ${e.getMessage}")
@@ -195,7 +227,7 @@ trait StreamingCacheClient
       val oldDfPath = s"${oldFilePath}/${idx}"
       try {
         val dfr = sqlContext.read
-        readDataFrameOpt(dfr, oldDfPath).map(_.filter(filterStr))
+        readDataFrameOpt(dfr, oldDfPath, filterStr)
       } catch {
         case e: Throwable =>
           warn(s"read old data source cache warn: ${e.getMessage}")
@@ -216,32 +248,33 @@ trait StreamingCacheClient
 
   private def cleanOutTimePartitions(path: String, outTime: Long, partitionOpt: Option[String],
                                      func: (Long, Long) => Boolean
-                                    ): Unit = {
+                                    ): Iterable[Long] = {
     val earlierOrEqPaths = listPartitionsByFunc(path: String, outTime, partitionOpt, func)
     // delete out time data path
-    earlierOrEqPaths.foreach { path =>
+    earlierOrEqPaths.map { case (t, path) =>
       info(s"delete hdfs path: ${path}")
       HdfsUtil.deleteHdfsPath(path)
+      t
     }
   }
   private def listPartitionsByFunc(path: String, bound: Long, partitionOpt: Option[String],
                                         func: (Long, Long) => Boolean
-                                       ): Iterable[String] = {
+                                       ): Iterable[(Long, String)] = {
+    listPartitions(path, partitionOpt).filter { case (t, _) => func(t, bound) }
+  }
+  private def listPartitions(path: String, partitionOpt: Option[String]
+                            ): Iterable[(Long, String)] = {
     val names = HdfsUtil.listSubPathsByType(path, "dir")
     val regex = partitionOpt match {
       case Some(partition) => s"^${partition}=(\\d+)$$".r
       case _ => "^(\\d+)$".r
     }
-    names.filter { name =>
+    names.flatMap { name =>
       name match {
-        case regex(value) =>
-          str2Long(value) match {
-            case Some(t) => func(t, bound)
-            case _ => false
-          }
-        case _ => false
+        case regex(value) => str2Long(value).map((_, s"${path}/${name}"))
+        case _ => None
       }
-    }.map(name => s"${path}/${name}")
+    }
   }
   private def str2Long(str: String): Option[Long] = {
     try {
@@ -268,8 +301,9 @@ trait StreamingCacheClient
           val newCacheLocked = newCacheLock.lock(-1, TimeUnit.SECONDS)
           if (newCacheLocked) {
             try {
-              cleanOutTimePartitions(newFilePath, nct, Some(ConstantColumns.tmst),
-                (a: Long, b: Long) => (a <= b))
+              val cleanedTmsts = cleanOutTimePartitions(newFilePath, nct,
+                Some(ConstantColumns.tmst), (a: Long, b: Long) => (a <= b))
+              removePartitionCounts(cleanedTmsts)
             } catch {
               case e: Throwable => error(s"clean new cache data error: ${e.getMessage}")
             } finally {
@@ -362,6 +396,12 @@ trait StreamingCacheClient
     submitCleanTime(nextCleanTime)
   }
 
+  private def countByTmst(df: DataFrame): Map[Long, Long] = {
+    df.groupBy(ConstantColumns.tmst).count.collect.flatMap { row =>
+      if (row.isNullAt(0)) None else Some((row.getLong(0), row.getLong(1)))
+    }.toMap
+  }
+
   // read next clean time
   private def getNextCleanTime(): Long = {
     val timeRange = OffsetCheckpointClient.getTimeRange
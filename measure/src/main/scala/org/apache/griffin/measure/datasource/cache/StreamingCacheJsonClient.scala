@@ -34,8 +34,8 @@ case class StreamingCacheJsonClient(sqlContext: SQLContext, param: Map[String, A
     dfw.json(path)
   }
 
-  protected def readDataFrame(dfr: DataFrameReader, path: String): DataFrame = {
-    dfr.json(path)
+  protected def readDataFrame(dfr: DataFrameReader, paths: String*): DataFrame = {
+    dfr.json(paths: _*)
   }
 
 }
@@ -34,8 +34,8 @@ case class StreamingCacheOrcClient(sqlContext: SQLContext, param: Map[String, An
     dfw.orc(path)
   }
 
-  protected def readDataFrame(dfr: DataFrameReader, path: String): DataFrame = {
-    dfr.orc(path)
+  protected def readDataFrame(dfr: DataFrameReader, paths: String*): DataFrame = {
+    dfr.orc(paths: _*)
   }
 
 }
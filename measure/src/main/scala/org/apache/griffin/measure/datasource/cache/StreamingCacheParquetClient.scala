@@ -39,8 +39,8 @@ case class StreamingCacheParquetClient(sqlContext: SQLContext,
     dfw.parquet(path)
   }
 
-  protected def readDataFrame(dfr: DataFrameReader, path: String): DataFrame = {
-    dfr.parquet(path)
+  protected def readDataFrame(dfr: DataFrameReader, paths: String*): DataFrame = {
+    dfr.parquet(paths: _*)
   }
 
 }
@@ -37,6 +37,7 @@ trait StreamingOffsetCacheable extends Loggable with Serializable {
   def selfReadyTime : String = OffsetCheckpointClient.readyTime(selfCacheInfoPath)
   def selfCleanTime : String = OffsetCheckpointClient.cleanTime(selfCacheInfoPath)
   def selfOldCacheIndex : String = OffsetCheckpointClient.oldCacheIndex(selfCacheInfoPath)
+  def selfPartitionCount : String = OffsetCheckpointClient.partitionCount(selfCacheInfoPath)
 
   protected def submitCacheTime(ms: Long): Unit = {
     val map = Map[String, String]((selfCacheTime -> ms.toString))
@@ -75,6 +76,40 @@ trait StreamingOffsetCacheable extends Loggable with Serializable {
 
   def readOldCacheIndex(): Option[Long] = readSelfInfo(selfOldCacheIndex)
 
+  // row count of each tmst partition of new cache data, kept in a single entry
+  // so that all of them are read or written in one call
+  private def readAllPartitionCounts(): Map[Long, Long] = {
+    OffsetCheckpointClient.read(selfPartitionCount :: Nil).get(selfPartitionCount) match {
+      case Some(v) => StreamingOffsetCacheable.parsePartitionCounts(v)
+      case _ => Map[Long, Long]()
+    }
+  }
+
+  private def submitAllPartitionCounts(counts: Map[Long, Long]): Unit = {
+    val map = Map[String, String](
+      (selfPartitionCount -> StreamingOffsetCacheable.formatPartitionCounts(counts)))
+    OffsetCheckpointClient.cache(map)
+  }
+
+  /**
+    * add row counts to the tmst partitions, which may be appended by other connectors
+    */
+  protected def addPartitionCounts(counts: Map[Long, Long]): Unit = {
+    val existCounts = readAllPartitionCounts
+    submitAllPartitionCounts(existCounts ++ counts.map { case (t, c) =>
+      (t, c + existCounts.getOrElse(t, 0L))
+    })
+  }
+
+  protected def readPartitionCounts(tmsts: Iterable[Long]): Map[Long, Long] = {
+    val counts = readAllPartitionCounts
+    tmsts.flatMap(t => counts.get(t).map((t, _))).toMap
+  }
+
+  protected def removePartitionCounts(tmsts: Iterable[Long]): Unit = {
+    if (tmsts.nonEmpty) submitAllPartitionCounts(readAllPartitionCounts -- tmsts)
+  }
+
   private def readSelfInfo(key: String): Option[Long] = {
     OffsetCheckpointClient.read(key :: Nil).get(key).flatMap { v =>
       try {
@@ -88,3 +123,26 @@ trait StreamingOffsetCacheable extends Loggable with Serializable {
   }
 
 }
+
+object StreamingOffsetCacheable {
+
+  // partition counts are stored as "tmst:count" pairs separated by comma
+  def formatPartitionCounts(counts: Map[Long, Long]): String = {
+    counts.toSeq.sortBy(_._1).map { case (t, c) => s"${t}:${c}" }.mkString(",")
+  }
+
+  def parsePartitionCounts(str: String): Map[Long, Long] = {
+    str.split(",").flatMap { pair =>
+      pair.split(":") match {
+        case Array(t, c) =>
+          try {
+            Some((t.trim.toLong, c.trim.toLong))
+          } catch {
+            case _: NumberFormatException => None
+          }
+        case _ => None
+      }
+    }.toMap
+  }
+
+}
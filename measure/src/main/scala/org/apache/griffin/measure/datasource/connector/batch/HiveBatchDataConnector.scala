@@ -38,10 +38,12 @@ case class HiveBatchDataConnector(@transient sparkSession: SparkSession,
   val Database = "database"
   val TableName = "table.name"
   val Where = "where"
+  val Columns = "columns"
 
   val database = config.getString(Database, "default")
   val tableName = config.getString(TableName, "")
   val whereString = config.getString(Where, "")
+  val columns = config.getStringArr(Columns)
 
   val concreteTableName = s"${database}.${tableName}"
   val wheres = whereString.split(",").map(_.trim).filter(_.nonEmpty)
@@ -73,13 +75,18 @@ case class HiveBatchDataConnector(@transient sparkSession: SparkSession,
     s"DESCRIBE ${concreteTableName}"
   }
 
-  private def dataSql(): String = {
-    val tableClause = s"SELECT * FROM ${concreteTableName}"
+  /**
+    * one scan of the table, partitions of all wheres are pruned by their disjunction,
+    * and only configured columns are read if any
+    */
+  private[batch] def dataSql(): String = {
+    val selClause = if (columns.nonEmpty) columns.map(c => s"`${c}`").mkString(", ") else "*"
+    val tableClause = s"SELECT ${selClause} FROM ${concreteTableName}"
     if (wheres.length > 0) {
       val clauses = wheres.map { w =>
-        s"${tableClause} WHERE ${w}"
+        s"(${w})"
       }
-      clauses.mkString(" UNION ALL ")
+      s"${tableClause} WHERE ${clauses.mkString(" OR ")}"
     } else tableClause
   }
 
@@ -19,7 +19,7 @@ under the License.
 package org.apache.griffin.measure.job
 
 import org.apache.griffin.measure.context.DQContext
-import org.apache.griffin.measure.step.DQStep
+import org.apache.griffin.measure.step.{DagDQStep, DQStep}
 
 case class DQJob(dqSteps: Seq[DQStep]) extends Serializable {
 
@@ -27,9 +27,7 @@ case class DQJob(dqSteps: Seq[DQStep]) extends Serializable {
     * @return execution success
     */
   def execute(context: DQContext): Boolean = {
-    dqSteps.foldLeft(true) { (ret, dqStep) =>
-      ret && dqStep.execute(context)
-    }
+    DagDQStep(dqSteps).execute(context)
   }
 
 }
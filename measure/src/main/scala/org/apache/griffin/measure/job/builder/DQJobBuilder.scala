@@ -21,7 +21,7 @@ package org.apache.griffin.measure.job.builder
 import org.apache.griffin.measure.configuration.dqdefinition._
 import org.apache.griffin.measure.context.DQContext
 import org.apache.griffin.measure.job._
-import org.apache.griffin.measure.step.builder.DQStepBuilder
+import org.apache.griffin.measure.step.builder.{DQStepBuilder, ProfilingPlanner}
 import org.apache.griffin.measure.step.write.MetricFlushStep
 
 /**
@@ -52,9 +52,9 @@ object DQJobBuilder {
       DQStepBuilder.buildStepOptByDataSourceParam(context, dataSource.dsParam)
     }
     // build steps by rules
-    val ruleSteps = ruleParams.flatMap { ruleParam =>
+    val ruleSteps = ProfilingPlanner.plan(context, ruleParams.flatMap { ruleParam =>
       DQStepBuilder.buildStepOptByRuleParam(context, ruleParam)
-    }
+    })
     // metric flush step
     val metricFlushStep = MetricFlushStep()
 
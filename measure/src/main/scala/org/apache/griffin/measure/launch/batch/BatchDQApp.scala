@@ -31,6 +31,7 @@ import org.apache.griffin.measure.context._
 import org.apache.griffin.measure.datasource.DataSourceFactory
 import org.apache.griffin.measure.job.builder.DQJobBuilder
 import org.apache.griffin.measure.launch.DQApp
+import org.apache.griffin.measure.sink.{ElasticSearchBulkWriter, SinkTaskRunner}
 import org.apache.griffin.measure.step.builder.udf.GriffinUDFAgent
 
 
@@ -60,6 +61,9 @@ case class BatchDQApp(allParam: GriffinConfig) extends DQApp {
     sparkSession.sparkContext.setLogLevel(sparkParam.getLogLevel)
     sqlContext = sparkSession.sqlContext
 
+    // configure sink task executor
+    SinkTaskRunner.init(sparkParam.getConfig)
+
     // register udf
     GriffinUDFAgent.register(sqlContext)
   }
@@ -97,6 +101,13 @@ case class BatchDQApp(allParam: GriffinConfig) extends DQApp {
     // clean context
     dqContext.clean()
 
+    // flush bulk writers before finish, with their final metrics
+    val bulkMetrics = ElasticSearchBulkWriter.closeAll()
+    if (bulkMetrics.nonEmpty) {
+      dqContext.getSink().log(new Date().getTime,
+        s"elasticsearch bulk writers: ${ElasticSearchBulkWriter.metricsStr(bulkMetrics)}")
+    }
+
     // finish
     dqContext.getSink().finish()
 
@@ -104,6 +115,7 @@ case class BatchDQApp(allParam: GriffinConfig) extends DQApp {
   }
 
   def close: Try[_] = Try {
+    ElasticSearchBulkWriter.closeAll()
     sparkSession.close()
     sparkSession.stop()
   }
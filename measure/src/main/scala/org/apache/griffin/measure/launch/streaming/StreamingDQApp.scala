@@ -32,10 +32,11 @@ import org.apache.griffin.measure.configuration.dqdefinition._
 import org.apache.griffin.measure.configuration.enums._
 import org.apache.griffin.measure.context._
 import org.apache.griffin.measure.context.streaming.checkpoint.offset.OffsetCheckpointClient
-import org.apache.griffin.measure.context.streaming.metric.CacheResults
+import org.apache.griffin.measure.context.streaming.metric._
 import org.apache.griffin.measure.datasource.DataSourceFactory
 import org.apache.griffin.measure.job.builder.DQJobBuilder
 import org.apache.griffin.measure.launch.DQApp
+import org.apache.griffin.measure.sink.{ElasticSearchBulkWriter, SinkTaskRunner}
 import org.apache.griffin.measure.step.builder.udf.GriffinUDFAgent
 import org.apache.griffin.measure.utils.{HdfsUtil, TimeUtil}
 
@@ -62,10 +63,19 @@ case class StreamingDQApp(allParam: GriffinConfig) extends DQApp {
     val conf = new SparkConf().setAppName(metricName)
     conf.setAll(sparkParam.getConfig)
     conf.set("spark.sql.crossJoin.enabled", "true")
+    // keep accuracy and key index state along with checkpoint by default
+    val cpDir = sparkParam.getCpDir
+    if (cpDir.trim.nonEmpty) {
+      conf.setIfMissing(AccuracyStateStore._StatePath, HdfsUtil.getHdfsFilePath(cpDir, "accuracy"))
+      conf.setIfMissing(KeyIndexStore._StatePath, HdfsUtil.getHdfsFilePath(cpDir, "keyindex"))
+    }
     sparkSession = SparkSession.builder().config(conf).enableHiveSupport().getOrCreate()
     sparkSession.sparkContext.setLogLevel(sparkParam.getLogLevel)
     sqlContext = sparkSession.sqlContext
 
+    // configure sink task executor
+    SinkTaskRunner.init(sparkParam.getConfig)
+
     // clear checkpoint directory
     clearCpDir
 
@@ -131,6 +141,7 @@ case class StreamingDQApp(allParam: GriffinConfig) extends DQApp {
   }
 
   def close: Try[_] = Try {
+    ElasticSearchBulkWriter.closeAll()
     sparkSession.close()
     sparkSession.stop()
   }
@@ -197,6 +208,11 @@ case class StreamingDQApp(allParam: GriffinConfig) extends DQApp {
           // end time
           val endTime = new Date().getTime
           appSink.log(endTime, s"process using time: ${endTime - startTime} ms")
+          appSink.log(endTime, s"sink tasks: ${SinkTaskRunner.metricsStr}")
+          val bulkMetrics = ElasticSearchBulkWriter.getMetrics
+          if (bulkMetrics.nonEmpty) {
+            appSink.log(endTime, s"elasticsearch bulk writers: ${ElasticSearchBulkWriter.metricsStr(bulkMetrics)}")
+          }
 
           OffsetCheckpointClient.endOffsetCheckpoint
 
@@ -229,6 +245,7 @@ case class StreamingDQApp(allParam: GriffinConfig) extends DQApp {
 
         val cleanTime = OffsetCheckpointClient.getCleanTime
         CacheResults.refresh(cleanTime)
+        StateStore.refresh(cleanTime)
       } catch {
         case e: Throwable => error(s"clean data error: ${e.getMessage}")
       }
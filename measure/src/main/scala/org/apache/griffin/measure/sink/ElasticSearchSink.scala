@@ -18,10 +18,18 @@ under the License.
 */
 package org.apache.griffin.measure.sink
 
-import scala.concurrent.Future
+import java.util.concurrent.{Executors, LinkedBlockingQueue, ThreadFactory, TimeUnit}
+import java.util.concurrent.atomic.AtomicLong
+
+import scala.collection.JavaConverters._
+import scala.collection.mutable.{ArrayBuffer, Map => MutableMap}
+import scala.concurrent.{Await, Future, Promise}
+import scala.concurrent.duration.Duration
+import scala.util.Try
 
 import org.apache.spark.rdd.RDD
 
+import org.apache.griffin.measure.Loggable
 import org.apache.griffin.measure.utils.{HttpUtil, JsonUtil, TimeUtil}
 import org.apache.griffin.measure.utils.ParamUtil._
 
@@ -37,6 +45,12 @@ case class ElasticSearchSink(config: Map[String, Any], metricName: String,
   val Method = "method"
   val ConnectionTimeout = "connection.timeout"
   val Retry = "retry"
+  val Bulk = "bulk"
+  val BulkSize = "bulk.size"
+  val BulkInterval = "bulk.interval"
+  val BulkQueueSize = "bulk.queue.size"
+  val RetryBackoff = "retry.backoff"
+  val BulkCloseTimeout = "bulk.close.timeout"
 
   val api = config.getString(Api, "")
   val method = config.getString(Method, "post")
@@ -46,6 +60,18 @@ case class ElasticSearchSink(config: Map[String, Any], metricName: String,
 
   val retry = config.getInt(Retry, 10)
 
+  val bulk = config.getBoolean(Bulk, false)
+  val bulkConf = BulkConf(
+    config.getInt(BulkSize, 500),
+    TimeUtil.milliseconds(config.getString(BulkInterval, "1s")).getOrElse(1000L),
+    config.getInt(BulkQueueSize, 10000),
+    math.min(retry, SinkTaskRunner.MAX_RETRY),
+    TimeUtil.milliseconds(config.getString(RetryBackoff, "100ms")).getOrElse(100L),
+    if (connectionTimeout > 0) connectionTimeout.toInt else 30000,
+    TimeUtil.milliseconds(config.getString(BulkCloseTimeout, "30s")).getOrElse(30000L)
+  )
+  val bulkApi = if (api.endsWith("/_bulk")) api else s"${api.stripSuffix("/")}/_bulk"
+
   val _Value = "value"
 
   def available(): Boolean = {
@@ -62,25 +88,301 @@ case class ElasticSearchSink(config: Map[String, Any], metricName: String,
       val params = Map[String, Object]()
       val header = Map[String, Object](("Content-Type", "application/json"))
 
+      // the request runs in the thread of sink task runner
       def func(): (Long, Future[Boolean]) = {
-        import scala.concurrent.ExecutionContext.Implicits.global
-        (timeStamp, Future(HttpUtil.httpRequest(api, method, params, header, data)))
+        (timeStamp, Future.fromTry(Try(HttpUtil.httpRequest(api, method, params, header, data))))
       }
       if (block) SinkTaskRunner.addBlockTask(func _, retry, connectionTimeout)
-      else SinkTaskRunner.addNonBlockTask(func _, retry)
+      else SinkTaskRunner.addNonBlockTask(func _, retry, Some(SpillData("elasticsearch", timeStamp, data)))
     } catch {
       case e: Throwable => error(e.getMessage, e)
     }
 
   }
 
+  private def bulkResult(dataMap: Map[String, Any]) = {
+    try {
+      val writer = ElasticSearchBulkWriter.getWriter(bulkApi, bulkConf)
+      val res = writer.add(JsonUtil.toJson(dataMap))
+      if (block) {
+        val duration = if (connectionTimeout >= 0) {
+          Duration(connectionTimeout, TimeUnit.MILLISECONDS)
+        } else Duration.Inf
+        if (!Await.result(res, duration)) warn(s"bulk sink metric of ${timeStamp} fails")
+      }
+    } catch {
+      case e: Throwable => error(e.getMessage, e)
+    }
+  }
+
   def log(rt: Long, msg: String): Unit = {}
 
   def sinkRecords(records: RDD[String], name: String): Unit = {}
   def sinkRecords(records: Iterable[String], name: String): Unit = {}
 
   def sinkMetrics(metrics: Map[String, Any]): Unit = {
-    httpResult(metrics)
+    if (bulk) bulkResult(metrics) else httpResult(metrics)
+  }
+
+}
+
+/**
+  * @param size       max number of documents in a bulk request
+  * @param interval   max milliseconds to wait for more documents of a bulk request
+  * @param queueSize  max number of documents waiting, more documents are dropped
+  * @param retry      max retry count of failed documents
+  * @param backoff    initial backoff milliseconds before retry, doubled each retry
+  * @param timeout    connection and read timeout milliseconds of bulk requests
+  * @param closeTimeout   max milliseconds to flush the waiting documents on close
+  */
+case class BulkConf(size: Int, interval: Long, queueSize: Int, retry: Int, backoff: Long, timeout: Int,
+                    closeTimeout: Long)
+
+object ElasticSearchBulkWriter extends Loggable {
+
+  // sinks are created for each timestamp, documents of the same api are coalesced in one writer,
+  // writers are kept until the application closes them
+  private val writers: MutableMap[String, ElasticSearchBulkWriter] = MutableMap()
+  private var shutdownHookAdded = false
+
+  def getWriter(api: String, conf: BulkConf): ElasticSearchBulkWriter = writers.synchronized {
+    if (!shutdownHookAdded) {
+      // flush documents if the application exits without closing
+      sys.addShutdownHook(closeAll())
+      shutdownHookAdded = true
+    }
+    writers.getOrElseUpdate(api, new ElasticSearchBulkWriter(api, conf))
+  }
+
+  /**
+    * flush waiting documents of all writers and stop them
+    * @return   final metrics of the closed writers
+    */
+  def closeAll(): Map[String, Map[String, Long]] = {
+    val closing = writers.synchronized {
+      val ws = writers.toList
+      writers.clear
+      ws
+    }
+    closing.foreach { pair =>
+      try {
+        pair._2.close()
+      } catch {
+        case e: Throwable => error(s"close bulk writer error: ${e.getMessage}", e)
+      }
+    }
+    closing.map(pair => (pair._1, pair._2.getMetrics)).toMap
+  }
+
+  def getMetrics: Map[String, Map[String, Long]] = writers.synchronized {
+    writers.map(pair => (pair._1, pair._2.getMetrics)).toMap
+  }
+
+  def metricsStr(metrics: Map[String, Map[String, Long]] = getMetrics): String = {
+    metrics.map { pair =>
+      val (api, apiMetrics) = pair
+      s"${api} -> (${apiMetrics.map(m => s"${m._1}: ${m._2}").mkString(", ")})"
+    }.mkString("; ")
+  }
+
+}
+
+/**
+  * coalesce documents into _bulk requests by size and time,
+  * requests are sent one by one by a dedicated thread, reusing the kept-alive connection
+  */
+class ElasticSearchBulkWriter(api: String, conf: BulkConf) extends Loggable {
+
+  private case class Doc(json: String, promise: Promise[Boolean])
+
+  private val MaxBackoff = 30000L
+
+  private val queue = new LinkedBlockingQueue[Doc](math.max(conf.queueSize, 1))
+
+  // wakes up the flush thread waiting for documents on close
+  private val WakeUp = Doc("", Promise[Boolean]())
+
+  private val added = new AtomicLong(0L)
+  private val succeeded = new AtomicLong(0L)
+  private val dropped = new AtomicLong(0L)
+  private val retried = new AtomicLong(0L)
+  private val inFlight = new AtomicLong(0L)
+
+  @volatile private var closed = false
+
+  private val executor = Executors.newSingleThreadExecutor(new ThreadFactory {
+    def newThread(r: Runnable): Thread = {
+      val thread = new Thread(r, "es-bulk-writer")
+      thread.setDaemon(true)
+      thread
+    }
+  })
+  executor.execute(new Runnable {
+    def run(): Unit = flushLoop()
+  })
+
+  /**
+    * @return   future of whether the document is indexed
+    */
+  def add(json: String): Future[Boolean] = {
+    val doc = Doc(json, Promise[Boolean]())
+    if (closed) {
+      dropped.incrementAndGet
+      warn(s"bulk writer of ${api} is closed, drop document")
+      doc.promise.trySuccess(false)
+    } else if (queue.offer(doc)) {
+      added.incrementAndGet
+    } else {
+      dropped.incrementAndGet
+      warn(s"bulk queue of ${api} is full, drop document, ${metricsStr}")
+      doc.promise.trySuccess(false)
+    }
+    doc.promise.future
+  }
+
+  def getMetrics: Map[String, Long] = Map[String, Long](
+    ("added" -> added.get), ("succeeded" -> succeeded.get), ("dropped" -> dropped.get),
+    ("retried" -> retried.get), ("in.flight" -> inFlight.get), ("queued" -> queue.size.toLong)
+  )
+
+  private def metricsStr: String = getMetrics.map(pair => s"${pair._1}: ${pair._2}").mkString(", ")
+
+  /**
+    * stop accepting documents, wait for the waiting documents to be sent, drop them on timeout
+    */
+  def close(): Unit = {
+    closed = true
+    queue.offer(WakeUp)
+    executor.shutdown()
+    if (!executor.awaitTermination(conf.closeTimeout, TimeUnit.MILLISECONDS)) {
+      warn(s"bulk sink to ${api} does not finish in ${conf.closeTimeout} ms, ${metricsStr}")
+      executor.shutdownNow()
+      executor.awaitTermination(conf.closeTimeout, TimeUnit.MILLISECONDS)
+    }
+    val rest = new java.util.ArrayList[Doc]()
+    queue.drainTo(rest)
+    drop(rest.asScala.filterNot(_ eq WakeUp))
+  }
+
+  private def flushLoop(): Unit = {
+    while (!Thread.currentThread.isInterrupted && !(closed && queue.isEmpty)) {
+      val docs = ArrayBuffer[Doc]()
+      try {
+        collect(docs)
+        if (docs.nonEmpty) send(docs)
+      } catch {
+        case _: InterruptedException =>
+          Thread.currentThread.interrupt()
+          drop(docs)
+        case e: Throwable => error(s"bulk sink to ${api} error: ${e.getMessage}", e)
+      }
+    }
+  }
+
+  /**
+    * collect documents of a bulk request, till size or interval reached,
+    * without waiting once closed
+    */
+  private def collect(docs: ArrayBuffer[Doc]): Unit = {
+    val first = queue.take
+    if (first ne WakeUp) {
+      docs += first
+      val deadline = System.currentTimeMillis + conf.interval
+      var more = true
+      while (more && docs.size < conf.size) {
+        val rest = deadline - System.currentTimeMillis
+        val doc = if (closed || rest <= 0) queue.poll else queue.poll(rest, TimeUnit.MILLISECONDS)
+        if (doc == null) more = !closed && deadline > System.currentTimeMillis
+        else if (doc ne WakeUp) docs += doc
+      }
+    }
+  }
+
+  private def send(docs: Seq[Doc]): Unit = {
+    inFlight.addAndGet(docs.size)
+    try {
+      var pending = docs
+      var attempt = 0
+      try {
+        while (pending.nonEmpty && attempt <= conf.retry) {
+          if (attempt > 0) {
+            retried.addAndGet(pending.size)
+            Thread.sleep(math.min(conf.backoff << math.min(attempt - 1, 20), MaxBackoff))
+          }
+          pending = post(pending)
+          attempt += 1
+        }
+      } catch {
+        case _: InterruptedException => Thread.currentThread.interrupt()
+      }
+      if (pending.nonEmpty) {
+        drop(pending)
+        warn(s"bulk sink to ${api} retry ends but fails, ${metricsStr}")
+      }
+    } finally {
+      inFlight.addAndGet(-docs.size)
+    }
+  }
+
+  /**
+    * @return   documents to retry
+    */
+  private def post(docs: Seq[Doc]): Seq[Doc] = {
+    val data = docs.map(doc => s"""{"index":{}}\n${doc.json}\n""").mkString
+    val header = Map[String, Object](("Content-Type", "application/x-ndjson"))
+    try {
+      val res = HttpUtil.postDataWithResponse(api, header, data, conf.timeout)
+      if (res.isSuccess) {
+        val result = JsonUtil.toAnyMap(res.body)
+        val statuses = if (result.getBoolean("errors", false)) {
+          result.get("items") match {
+            case Some(items: Seq[_]) => items.map(itemStatus)
+            case _ => Nil
+          }
+        } else Nil
+        val (retryDocs, failedDocs) = docs.zipWithIndex.foldLeft((Nil: Seq[Doc], Nil: Seq[Doc])) {
+          (ret, pair) =>
+            val (doc, i) = pair
+            val status = if (i < statuses.size) statuses(i) else 200
+            if (retryable(status)) (ret._1 :+ doc, ret._2)
+            else if (status >= 300) (ret._1, ret._2 :+ doc)
+            else {
+              succeeded.incrementAndGet
+              doc.promise.trySuccess(true)
+              ret
+            }
+        }
+        drop(failedDocs)
+        retryDocs
+      } else if (retryable(res.code)) {
+        docs
+      } else {
+        warn(s"bulk sink to ${api} fails with status ${res.code}: ${res.body}")
+        drop(docs)
+        Nil
+      }
+    } catch {
+      case e: Throwable =>
+        warn(s"bulk sink to ${api} fails: ${e.getMessage}")
+        docs
+    }
+  }
+
+  private def itemStatus(item: Any): Int = {
+    item match {
+      case m: Map[_, _] => m.values.headOption match {
+        case Some(r: Map[_, _]) => r.asInstanceOf[Map[String, Any]].getInt("status", 200)
+        case _ => 200
+      }
+      case _ => 200
+    }
+  }
+
+  private def retryable(status: Int): Boolean = status == 429 || status >= 500
+
+  private def drop(docs: Seq[Doc]): Unit = {
+    dropped.addAndGet(docs.size)
+    docs.foreach(_.promise.trySuccess(false))
   }
 
 }
@@ -18,10 +18,17 @@ under the License.
 */
 package org.apache.griffin.measure.sink
 
+import java.io.{BufferedWriter, OutputStreamWriter}
 import java.util.Date
 
+import scala.collection.mutable.ArrayBuffer
+
+import org.apache.hadoop.conf.Configuration
+import org.apache.hadoop.io.compress.{CompressionCodec, CompressionCodecFactory}
+import org.apache.spark.TaskContext
 import org.apache.spark.rdd.RDD
 
+import org.apache.griffin.measure.Loggable
 import org.apache.griffin.measure.utils.{HdfsUtil, JsonUtil}
 import org.apache.griffin.measure.utils.ParamUtil._
 
@@ -35,10 +42,12 @@ case class HdfsSink(config: Map[String, Any], metricName: String, timeStamp: Lon
   val Path = "path"
   val MaxPersistLines = "max.persist.lines"
   val MaxLinesPerFile = "max.lines.per.file"
+  val Compression = "compression"
 
   val path = config.getOrElse(Path, "").toString
   val maxPersistLines = config.getInt(MaxPersistLines, -1)
   val maxLinesPerFile = math.min(config.getInt(MaxLinesPerFile, 10000), 1000000)
+  val compression = config.getString(Compression, "")
 
   val StartFile = filePath("_START")
   val FinishFile = filePath("_FINISH")
@@ -114,38 +123,46 @@ case class HdfsSink(config: Map[String, Any], metricName: String, timeStamp: Lon
     HdfsUtil.deleteHdfsPath(path)
   }
 
+  /**
+    * executors write their partitions to part files under the records path,
+    * rolling files by max.lines.per.file, then driver commits the part files in a manifest
+    */
   def sinkRecords(records: RDD[String], name: String): Unit = {
     val path = filePath(name)
     clearOldRecords(path)
     try {
-      val recordCount = records.count
-
-      val count =
-        if (maxPersistLines < 0) recordCount else scala.math.min(maxPersistLines, recordCount)
-
-      if (count > 0) {
-        val groupCount = ((count - 1) / maxLinesPerFile + 1).toInt
-        if (groupCount <= 1) {
-          val recs = records.take(count.toInt)
-          sinkRecords2Hdfs(path, recs)
-        } else {
-          val groupedRecords: RDD[(Long, Iterable[String])] =
-            records.zipWithIndex.flatMap { r =>
-              val gid = r._2 / maxLinesPerFile
-              if (gid < groupCount) Some((gid, r._1)) else None
-            }.groupByKey()
-          groupedRecords.foreach { group =>
-            val (gid, recs) = group
-            val hdfsPath = if (gid == 0) path else withSuffix(path, gid.toString)
-            sinkRecords2Hdfs(hdfsPath, recs)
-          }
+      val persistRecords = if (maxPersistLines < 0) records else {
+        val maxLines = maxPersistLines
+        records.zipWithIndex.flatMap { r =>
+          if (r._2 < maxLines) Some(r._1) else None
         }
       }
+
+      val (linesPerFile, codecName) = (maxLinesPerFile, compression)
+      val partFiles = persistRecords.mapPartitionsWithIndex { (ptnId, recs) =>
+        HdfsSink.writePartition(path, ptnId, recs, linesPerFile, codecName)
+      }.collect
+
+      if (partFiles.nonEmpty) commitManifest(path, partFiles)
     } catch {
       case e: Throwable => error(e.getMessage, e)
     }
   }
 
+  private[sink] def commitManifest(path: String, partFiles: Seq[(String, Long)]): Unit = {
+    // part files of failed or speculative task attempts are not committed
+    val committed = partFiles.map(_._1).toSet
+    HdfsUtil.listSubPathsByType(path, "file").filter { file =>
+      !file.startsWith("_") && !committed.contains(file)
+    }.foreach(file => HdfsUtil.deleteHdfsPath(HdfsUtil.getHdfsFilePath(path, file)))
+
+    val manifest = Map[String, Any](
+      ("files" -> partFiles.map(pf => Map[String, Any](("file" -> pf._1), ("lines" -> pf._2)))),
+      ("lines" -> partFiles.map(_._2).sum)
+    )
+    HdfsUtil.writeContent(HdfsUtil.getHdfsFilePath(path, HdfsSink.ManifestFile), JsonUtil.toJson(manifest))
+  }
+
   def sinkRecords(records: Iterable[String], name: String): Unit = {
     val path = filePath(name)
     clearOldRecords(path)
@@ -185,11 +202,66 @@ case class HdfsSink(config: Map[String, Any], metricName: String, timeStamp: Lon
 
   private def sinkRecords2Hdfs(hdfsPath: String, records: Iterable[String]): Unit = {
     try {
-      val recStr = records.mkString("\n")
-      HdfsUtil.writeContent(hdfsPath, recStr)
+      HdfsSink.writeRecords(hdfsPath, records.iterator, "")
     } catch {
       case e: Throwable => error(e.getMessage, e)
     }
   }
 
 }
+
+object HdfsSink extends Loggable {
+
+  val ManifestFile = "_MANIFEST"
+
+  private def getCodec(codecName: String): Option[CompressionCodec] = {
+    if (codecName.isEmpty) None else {
+      val codec = new CompressionCodecFactory(new Configuration()).getCodecByName(codecName)
+      if (codec == null) warn(s"compression codec ${codecName} not found, write without compression")
+      Option(codec)
+    }
+  }
+
+  /**
+    * write records line by line, without building them in memory
+    * @param maxLines   max number of lines to take from records
+    * @return   number of lines written
+    */
+  def writeRecords(hdfsPath: String, records: Iterator[String], codecName: String,
+                   maxLines: Long = Long.MaxValue): Long = {
+    val out = HdfsUtil.createFile(hdfsPath)
+    val codecOut = getCodec(codecName).map(_.createOutputStream(out)).getOrElse(out)
+    val writer = new BufferedWriter(new OutputStreamWriter(codecOut, "utf-8"))
+    var lines = 0L
+    try {
+      while (lines < maxLines && records.hasNext) {
+        if (lines > 0) writer.newLine()
+        writer.write(records.next)
+        lines += 1
+      }
+    } finally {
+      writer.close()
+    }
+    lines
+  }
+
+  /**
+    * write records of a partition in executor, rolling to a new part file every linesPerFile lines
+    * @return   names and line counts of part files
+    */
+  def writePartition(path: String, ptnId: Int, records: Iterator[String],
+                     linesPerFile: Int, codecName: String): Iterator[(String, Long)] = {
+    val attempt = Option(TaskContext.get).map(_.attemptNumber).getOrElse(0)
+    val ext = getCodec(codecName).map(_.getDefaultExtension).getOrElse("")
+    val partFiles = ArrayBuffer[(String, Long)]()
+    var roll = 0
+    while (records.hasNext) {
+      val file = f"part-${ptnId}%05d-${roll}%05d-${attempt}${ext}"
+      val lines = writeRecords(HdfsUtil.getHdfsFilePath(path, file), records, codecName, linesPerFile)
+      partFiles += ((file, lines))
+      roll += 1
+    }
+    partFiles.iterator
+  }
+
+}
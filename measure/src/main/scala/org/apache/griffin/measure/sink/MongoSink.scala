@@ -25,8 +25,8 @@ import org.mongodb.scala._
 import org.mongodb.scala.model.{Filters, UpdateOptions, Updates}
 import org.mongodb.scala.result.UpdateResult
 
+import org.apache.griffin.measure.utils.{JsonUtil, TimeUtil}
 import org.apache.griffin.measure.utils.ParamUtil._
-import org.apache.griffin.measure.utils.TimeUtil
 
 
 /**
@@ -75,7 +75,11 @@ case class MongoSink(config: Map[String, Any], metricName: String,
           filter, update, UpdateOptions().upsert(true)).toFuture)
       }
       if (block) SinkTaskRunner.addBlockTask(func _, retry, overTime)
-      else SinkTaskRunner.addNonBlockTask(func _, retry)
+      else {
+        val data = JsonUtil.toJson(Map[String, Any](
+          (_MetricName -> metricName), (_Timestamp -> timeStamp), (_Value -> dataMap)))
+        SinkTaskRunner.addNonBlockTask(func _, retry, Some(SpillData("mongo", timeStamp, data)))
+      }
     } catch {
       case e: Throwable => error(e.getMessage, e)
     }
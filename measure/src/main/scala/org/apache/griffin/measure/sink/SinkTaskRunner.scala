@@ -19,83 +19,314 @@ under the License.
 package org.apache.griffin.measure.sink
 
 import java.util.Date
-import java.util.concurrent.TimeUnit
+import java.util.concurrent.{ArrayBlockingQueue, Executors, RejectedExecutionHandler, Semaphore}
+import java.util.concurrent.{ThreadFactory, ThreadLocalRandom, ThreadPoolExecutor, TimeUnit}
+import java.util.concurrent.atomic.AtomicLong
 
 import scala.concurrent._
 import scala.concurrent.duration._
-import scala.util.{Failure, Success}
 
 import org.apache.griffin.measure.Loggable
+import org.apache.griffin.measure.utils.{HdfsUtil, TimeUtil}
+import org.apache.griffin.measure.utils.ParamUtil._
 
 
+/**
+  * data of a sink task, spilled to hdfs when the task queue overflows
+  * @param name       sink name
+  * @param timestamp  timestamp of the data
+  * @param data       content to spill
+  */
+case class SpillData(name: String, timestamp: Long, data: String)
+
 /**
   * sink task runner, to sink metrics in block or non-block mode
+  * non-block tasks run in a dedicated bounded executor, block tasks run in the caller thread,
+  * failed tasks are retried after jittered exponential backoff.
+  * retries are resubmitted by the retry scheduler thread, which never waits for a full queue,
+  * retries overflowing the queue are spilled or dropped
   */
 object SinkTaskRunner extends Loggable {
 
-  import scala.concurrent.ExecutionContext.Implicits.global
-
   val MAX_RETRY = 100
 
-  def addNonBlockTask(func: () => (Long, Future[_]), retry: Int): Unit = {
+  val _Threads = "spark.griffin.sink.task.threads"
+  val _QueueSize = "spark.griffin.sink.task.queue.size"
+  val _Overflow = "spark.griffin.sink.task.overflow"
+  val _SpillPath = "spark.griffin.sink.task.spill.path"
+  val _RetryBackoff = "spark.griffin.sink.task.retry.backoff"
+  val _Timeout = "spark.griffin.sink.task.timeout"
+
+  // overflow policies when the task queue is full
+  val DropOldest = "drop.oldest"
+  val BlockOverflow = "block"
+  val SpillOverflow = "spill"
+
+  private val MaxBackoff = 30000L
+
+  private var threads = 4
+  private var queueSize = 1000
+  private var overflow = DropOldest
+  private var spillPath = ""
+  private var retryBackoff = 100L
+  private var taskTimeout = 60000L
+
+  private var executorOpt: Option[ThreadPoolExecutor] = None
+  // free places of running and queued tasks under block policy,
+  // callers wait for a place before submitting, so that the executor never rejects their tasks
+  private var slotsOpt: Option[Semaphore] = None
+
+  private val submitted = new AtomicLong(0L)
+  private val succeeded = new AtomicLong(0L)
+  private val failed = new AtomicLong(0L)
+  private val retried = new AtomicLong(0L)
+  private val dropped = new AtomicLong(0L)
+  private val spilled = new AtomicLong(0L)
+  private val spillSeq = new AtomicLong(0L)
+  private var totalLatency = 0L
+  private var maxLatency = 0L
+
+  private lazy val retryScheduler = Executors.newSingleThreadScheduledExecutor(
+    daemonThreadFactory("sink-task-retry"))
+
+  /**
+    * configure the task executor, with the spark config of env
+    */
+  def init(config: Map[String, Any]): Unit = synchronized {
+    threads = math.max(config.getInt(_Threads, threads), 1)
+    queueSize = math.max(config.getInt(_QueueSize, queueSize), 1)
+    overflow = config.getString(_Overflow, overflow)
+    spillPath = config.getString(_SpillPath, spillPath)
+    retryBackoff = TimeUtil.milliseconds(config.getString(_RetryBackoff, "")).getOrElse(retryBackoff)
+    taskTimeout = TimeUtil.milliseconds(config.getString(_Timeout, "")).getOrElse(taskTimeout)
+    if (overflow == SpillOverflow && spillPath.isEmpty) {
+      warn(s"${_SpillPath} is not configured, overflow policy falls back to ${DropOldest}")
+      overflow = DropOldest
+    }
+    // tasks already queued are still executed by the old executor
+    executorOpt.foreach(_.shutdown())
+    executorOpt = None
+    slotsOpt = None
+  }
+
+  private def executor: (ThreadPoolExecutor, Option[Semaphore]) = synchronized {
+    executorOpt match {
+      case Some(exec) => (exec, slotsOpt)
+      case _ =>
+        val exec = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+          new ArrayBlockingQueue[Runnable](queueSize), daemonThreadFactory("sink-task"), OverflowHandler)
+        executorOpt = Some(exec)
+        slotsOpt = if (overflow == BlockOverflow) Some(new Semaphore(threads + queueSize)) else None
+        (exec, slotsOpt)
+    }
+  }
+
+  private def daemonThreadFactory(name: String): ThreadFactory = new ThreadFactory {
+    private val index = new AtomicLong(0L)
+    def newThread(r: Runnable): Thread = {
+      val thread = new Thread(r, s"${name}-${index.incrementAndGet}")
+      thread.setDaemon(true)
+      thread
+    }
+  }
+
+  /**
+    * @return   queue depth, latency in ms and task counters
+    */
+  def getMetrics: Map[String, Long] = {
+    val (queued, active) = synchronized {
+      executorOpt.map(e => (e.getQueue.size.toLong, e.getActiveCount.toLong)).getOrElse((0L, 0L))
+    }
+    val (avgLatency, maxLat) = latencyStats
+    Map[String, Long](
+      ("queued" -> queued), ("active" -> active), ("submitted" -> submitted.get),
+      ("succeeded" -> succeeded.get), ("failed" -> failed.get), ("retried" -> retried.get),
+      ("dropped" -> dropped.get), ("spilled" -> spilled.get),
+      ("avg.latency" -> avgLatency), ("max.latency" -> maxLat)
+    )
+  }
+
+  def metricsStr: String = getMetrics.map(pair => s"${pair._1}: ${pair._2}").mkString(", ")
+
+  private def recordLatency(latency: Long): Unit = synchronized {
+    succeeded.incrementAndGet
+    totalLatency += latency
+    if (latency > maxLatency) maxLatency = latency
+  }
+
+  private def latencyStats: (Long, Long) = synchronized {
+    val cnt = succeeded.get
+    (if (cnt > 0) totalLatency / cnt else 0L, maxLatency)
+  }
+
+  def addNonBlockTask(func: () => (Long, Future[_]), retry: Int,
+                      spillOpt: Option[SpillData] = None): Unit = {
     val r = validRetryNum(retry)
-    nonBlockExecute(func, r)
+    submitted.incrementAndGet
+    nonBlockExecute(SinkTask(func, r, spillOpt, new Date().getTime), 0)
   }
 
   def addBlockTask(func: () => (Long, Future[_]), retry: Int, wait: Long): Unit = {
     val r = validRetryNum(retry)
     val duration = if (wait >= 0) Duration(wait, TimeUnit.MILLISECONDS) else Duration.Inf
+    submitted.incrementAndGet
     blockExecute(func, r, duration)
   }
 
-  private def nonBlockExecute(func: () => (Long, Future[_]), retry: Int): Unit = {
-    val nextRetry = nextRetryCount(retry)
-    val st = new Date().getTime
-    val (t, res) = func()
-    res.onComplete {
-      case Success(value) =>
-        val et = new Date().getTime
-        info(s"task ${t} success with (${value}) [ using time ${et - st} ms ]")
+  private case class SinkTask(func: () => (Long, Future[_]), retry: Int,
+                              spillOpt: Option[SpillData], submitTime: Long)
 
-      case Failure(e) =>
-        val et = new Date().getTime
-        warn(s"task ${t} fails [ using time ${et - st} ms ] : ${e.getMessage}")
-        if (nextRetry >= 0) {
-          info(s"task ${t} retry [ rest retry count: ${nextRetry} ]")
-          nonBlockExecute(func, nextRetry)
-        } else {
-          error(s"task fails: task ${t} retry ends but fails", e)
+  /**
+    * @param slotOpt  place of the task under block policy, released when the task ends
+    */
+  private case class SinkTaskRunnable(task: SinkTask, attempt: Int, slotOpt: Option[Semaphore]
+                                     ) extends Runnable {
+    def run(): Unit = {
+      val st = new Date().getTime
+      val timeout = if (taskTimeout >= 0) Duration(taskTimeout, TimeUnit.MILLISECONDS) else Duration.Inf
+      try {
+        val (t, res) = task.func()
+        try {
+          val value = Await.result(res, timeout)
+          val et = new Date().getTime
+          recordLatency(et - task.submitTime)
+          info(s"task ${t} success with (${value}) [ using time ${et - st} ms ]")
+        } catch {
+          case e: Throwable =>
+            val et = new Date().getTime
+            warn(s"task ${t} fails [ using time ${et - st} ms ] : ${e.getMessage}")
+            retryOrFail(e)
         }
+      } catch {
+        case e: Throwable => retryOrFail(e)
+      } finally {
+        release()
+      }
+    }
+
+    def release(): Unit = slotOpt.foreach(_.release())
+
+    private def retryOrFail(e: Throwable): Unit = {
+      if (attempt < task.retry) {
+        val nextAttempt = attempt + 1
+        info(s"task retry [ rest retry count: ${task.retry - nextAttempt} ]")
+        retried.incrementAndGet
+        retryScheduler.schedule(new Runnable {
+          def run(): Unit = nonBlockExecute(task, nextAttempt)
+        }, backoff(nextAttempt), TimeUnit.MILLISECONDS)
+      } else {
+        failed.incrementAndGet
+        error(s"task fails: retry ends but fails", e)
+      }
+    }
+  }
+
+  /**
+    * tasks of block policy are only rejected by a shut down executor, as callers wait for places
+    */
+  private object OverflowHandler extends RejectedExecutionHandler {
+    def rejectedExecution(r: Runnable, exec: ThreadPoolExecutor): Unit = {
+      if (exec.isShutdown) discard(r)
+      else overflow match {
+        case SpillOverflow => spill(r)
+        case _ =>
+          val oldest = exec.getQueue.poll
+          if (oldest != null) discard(oldest)
+          if (!exec.getQueue.offer(r)) discard(r)
+      }
+    }
+  }
+
+  private def discard(r: Runnable): Unit = {
+    dropped.incrementAndGet
+    warn(s"sink task queue is full, task is dropped, ${metricsStr}")
+    releaseSlot(r)
+  }
+
+  private def releaseSlot(r: Runnable): Unit = {
+    r match {
+      case runnable: SinkTaskRunnable => runnable.release()
+      case _ =>
+    }
+  }
+
+  private def spill(r: Runnable): Unit = {
+    r match {
+      case SinkTaskRunnable(SinkTask(_, _, Some(spillData), _), _, _) if spillPath.nonEmpty =>
+        try {
+          val file = s"${spillData.timestamp}_${spillSeq.incrementAndGet}.json"
+          val path = HdfsUtil.getHdfsFilePath(HdfsUtil.getHdfsFilePath(spillPath, spillData.name), file)
+          HdfsUtil.writeContent(path, spillData.data)
+          spilled.incrementAndGet
+          warn(s"sink task queue is full, task is spilled to ${path}")
+          releaseSlot(r)
+        } catch {
+          case e: Throwable =>
+            error(s"spill sink task error: ${e.getMessage}", e)
+            discard(r)
+        }
+      case _ => discard(r)
+    }
+  }
+
+  private def nonBlockExecute(task: SinkTask, attempt: Int): Unit = {
+    val (exec, slotsOpt) = executor
+    slotsOpt match {
+      case Some(slots) if attempt > 0 =>
+        // retries never wait for a place, not to block the retry scheduler thread
+        if (slots.tryAcquire) exec.execute(SinkTaskRunnable(task, attempt, Some(slots)))
+        else spill(SinkTaskRunnable(task, attempt, None))
+      case Some(slots) =>
+        slots.acquire()
+        exec.execute(SinkTaskRunnable(task, attempt, Some(slots)))
+      case _ =>
+        exec.execute(SinkTaskRunnable(task, attempt, None))
     }
   }
 
   private def blockExecute(func: () => (Long, Future[_]),
                            retry: Int, waitDuration: Duration): Unit = {
-    val nextRetry = nextRetryCount(retry)
-    val st = new Date().getTime
-    val (t, res) = func()
-    try {
-      val value = Await.result(res, waitDuration)
-      val et = new Date().getTime
-      info(s"task ${t} success with (${value}) [ using time ${et - st} ms ]")
-    } catch {
-      case e: Throwable =>
+    val submitTime = new Date().getTime
+    var attempt = 0
+    var finished = false
+    while (!finished) {
+      val st = new Date().getTime
+      try {
+        val (t, res) = func()
+        val value = Await.result(res, waitDuration)
         val et = new Date().getTime
-        warn(s"task ${t} fails [ using time ${et - st} ms ] : ${e.getMessage}")
-        if (nextRetry >= 0) {
-          info(s"task ${t} retry [ rest retry count: ${nextRetry} ]")
-          blockExecute(func, nextRetry, waitDuration)
-        } else {
-          error(s"task fails: task ${t} retry ends but fails", e)
-        }
+        recordLatency(et - submitTime)
+        info(s"task ${t} success with (${value}) [ using time ${et - st} ms ]")
+        finished = true
+      } catch {
+        case e: Throwable =>
+          val et = new Date().getTime
+          warn(s"task fails [ using time ${et - st} ms ] : ${e.getMessage}")
+          if (attempt < retry) {
+            attempt += 1
+            info(s"task retry [ rest retry count: ${retry - attempt} ]")
+            retried.incrementAndGet
+            Thread.sleep(backoff(attempt))
+          } else {
+            failed.incrementAndGet
+            error(s"task fails: retry ends but fails", e)
+            finished = true
+          }
+      }
     }
   }
 
+  /**
+    * exponential backoff with jitter, so that retries of a sink outage don't fire together
+    */
+  private def backoff(attempt: Int): Long = {
+    val cap = math.min(retryBackoff << math.min(attempt - 1, 20), MaxBackoff)
+    val half = math.max(cap / 2, 1L)
+    half + ThreadLocalRandom.current.nextLong(half)
+  }
+
   private def validRetryNum(retry: Int): Int = {
     if (retry > MAX_RETRY) MAX_RETRY else retry
   }
-  private def nextRetryCount(retry: Int): Int = {
-    if (retry >= 0) retry - 1 else -1
-  }
 
 }
@@ -0,0 +1,252 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.step
+
+import java.util.concurrent.{Callable, ExecutorCompletionService, Executors, ThreadFactory}
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.regex.Pattern
+
+import scala.collection.mutable.{Map => MutableMap, Queue => MutableQueue}
+
+import org.apache.griffin.measure.context.DQContext
+import org.apache.griffin.measure.step.read.ReadStep
+import org.apache.griffin.measure.step.transform._
+import org.apache.griffin.measure.step.write.{MetricFlushStep, RecordWriteStep, WriteStep}
+
+/**
+  * dag of dq steps
+  * dependencies are derived from the table names each step reads and registers,
+  * independent steps are executed concurrently, each in a spark scheduler pool,
+  * steps with unknown dependencies are barriers of the steps before and after them
+  */
+case class DagDQStep(dqSteps: Seq[DQStep]) extends DQStep {
+
+  val name: String = ""
+  val rule: String = ""
+  val details: Map[String, Any] = Map()
+
+  val _Parallelism = "spark.griffin.step.parallelism"
+  val _PoolPrefix = "spark.griffin.step.pool.prefix"
+
+  val PoolProperty = "spark.scheduler.pool"
+
+  /**
+    * @return execution success
+    */
+  def execute(context: DQContext): Boolean = {
+    val steps = flatten(dqSteps)
+    val conf = context.sqlContext.sparkContext.getConf
+    val parallelism = conf.getInt(_Parallelism, 4)
+    val poolPrefix = conf.get(_PoolPrefix, "griffin")
+
+    val times = MutableMap[Int, Long]()
+    val ret = if (parallelism <= 1 || steps.size <= 1) {
+      steps.zipWithIndex.foldLeft(true) { (ret, pair) =>
+        val (step, i) = pair
+        ret && {
+          val (res, t) = timed(step, context)
+          times += (i -> t)
+          res
+        }
+      }
+    } else {
+      executeDag(context, steps, dependencies(steps), parallelism, poolPrefix, times)
+    }
+
+    val stepTimes = times.toSeq.sortBy(_._1).map { pair =>
+      val (i, t) = pair
+      s"${stepLabel(steps(i))}: ${t} ms"
+    }
+    if (stepTimes.nonEmpty) {
+      context.getSink().log(System.currentTimeMillis, s"steps using time: ${stepTimes.mkString(", ")}")
+    }
+    ret
+  }
+
+  override def getNames(): Seq[String] = {
+    dqSteps.foldLeft(Nil: Seq[String]) { (ret, dqStep) =>
+      ret ++ dqStep.getNames
+    }
+  }
+
+  private def flatten(steps: Seq[DQStep]): Seq[DQStep] = {
+    steps.flatMap {
+      case SeqDQStep(subSteps) => flatten(subSteps)
+      case DagDQStep(subSteps) => flatten(subSteps)
+      case step => step :: Nil
+    }
+  }
+
+  private def stepLabel(step: DQStep): String = {
+    if (step.name.nonEmpty) s"${step.getClass.getSimpleName}[${step.name}]"
+    else step.getClass.getSimpleName
+  }
+
+  private def timed(step: DQStep, context: DQContext): (Boolean, Long) = {
+    val startTime = System.currentTimeMillis
+    val res = step.execute(context)
+    (res, System.currentTimeMillis - startTime)
+  }
+
+  /**
+    * @return table names registered by the step
+    */
+  private def outputTables(step: DQStep): Set[String] = {
+    step match {
+      case _: WriteStep => Set()
+      case s => Set(s.name)
+    }
+  }
+
+  /**
+    * @param knownTables    table names registered by the steps before
+    * @return table names read by the step, None if unknown
+    */
+  private def inputTables(step: DQStep, knownTables: Iterable[String]): Option[Set[String]] = {
+    step match {
+      case s @ (_: SparkSqlTransformStep | _: ProfilingTransformStep | _: MergedProfilingStep
+                | _: ProfilingProjectStep) =>
+        Some(knownTables.filter(t => referTable(s.rule, t)).toSet)
+      case s: DataFrameOpsTransformStep => Some(Set(s.inputDfName))
+      case _: ReadStep => Some(Set())
+      case _: MetricFlushStep => None
+      case s: RecordWriteStep => Some(Set(s.inputName) ++ s.filterTableNameOpt)
+      case s: WriteStep => Some(Set(s.inputName))
+      case _ => None
+    }
+  }
+
+  // table names are case insensitive in spark sql, and may be quoted by backticks
+  private def referTable(rule: String, table: String): Boolean = {
+    Pattern.compile(s"(?<![\\w])${Pattern.quote(table)}(?![\\w])", Pattern.CASE_INSENSITIVE)
+      .matcher(rule).find
+  }
+
+  /**
+    * @return indices of the steps each step depends on
+    */
+  private[step] def dependencies(steps: Seq[DQStep]): IndexedSeq[Set[Int]] = {
+    val lastWriters = MutableMap[String, Int]()
+    val readers = MutableMap[String, Set[Int]]()
+    var lastBarrierOpt: Option[Int] = None
+
+    steps.zipWithIndex.map { pair =>
+      val (step, i) = pair
+      val deps = inputTables(step, lastWriters.keys).map(_.map(_.toLowerCase)) match {
+        case Some(inputs) =>
+          val outputs = outputTables(step).map(_.toLowerCase)
+          // read after write
+          val rawDeps = inputs.flatMap(lastWriters.get)
+          // write after read and write after write
+          val warDeps = outputs.flatMap(t => readers.getOrElse(t, Set[Int]()))
+          val wawDeps = outputs.flatMap(lastWriters.get)
+
+          inputs.foreach(t => readers += (t -> (readers.getOrElse(t, Set[Int]()) + i)))
+          outputs.foreach { t =>
+            lastWriters += (t -> i)
+            readers -= t
+          }
+          rawDeps ++ warDeps ++ wawDeps ++ lastBarrierOpt
+        case _ =>
+          lastWriters.clear
+          readers.clear
+          lastBarrierOpt = Some(i)
+          (0 until i).toSet
+      }
+      deps - i
+    }.toIndexedSeq
+  }
+
+  private[step] def executeDag(context: DQContext, steps: Seq[DQStep], deps: IndexedSeq[Set[Int]],
+                               parallelism: Int, poolPrefix: String, times: MutableMap[Int, Long]
+                              ): Boolean = {
+    val sc = context.sqlContext.sparkContext
+    val threadIndex = new AtomicInteger(0)
+    val executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory {
+      def newThread(r: Runnable): Thread = {
+        val thread = new Thread(r, s"dq-step-${threadIndex.incrementAndGet}")
+        thread.setDaemon(true)
+        thread
+      }
+    })
+    val completion = new ExecutorCompletionService[(Int, Boolean, Long)](executor)
+
+    val dependents = MutableMap[Int, Seq[Int]]()
+    deps.zipWithIndex.foreach { pair =>
+      val (ds, i) = pair
+      ds.foreach(d => dependents += (d -> (dependents.getOrElse(d, Nil) :+ i)))
+    }
+    val waitings = MutableMap[Int, Int]()
+    deps.zipWithIndex.foreach(pair => waitings += (pair._2 -> pair._1.size))
+    val ready = MutableQueue[Int]()
+    ready ++= deps.indices.filter(i => deps(i).isEmpty)
+
+    var running = 0
+    var success = true
+    try {
+      while (success && (ready.nonEmpty || running > 0)) {
+        while (success && ready.nonEmpty) {
+          val i = ready.dequeue
+          // spread concurrent steps over fair scheduler pools
+          val pool = s"${poolPrefix}-${i % parallelism}"
+          completion.submit(new Callable[(Int, Boolean, Long)] {
+            def call(): (Int, Boolean, Long) = {
+              sc.setLocalProperty(PoolProperty, pool)
+              try {
+                val (res, t) = timed(steps(i), context)
+                (i, res, t)
+              } catch {
+                case e: Throwable =>
+                  error(s"execute step ${stepLabel(steps(i))} error: ${e.getMessage}", e)
+                  (i, false, 0L)
+              } finally {
+                sc.setLocalProperty(PoolProperty, null)
+              }
+            }
+          })
+          running += 1
+        }
+        if (running > 0) {
+          val (i, res, t) = completion.take.get
+          running -= 1
+          times += (i -> t)
+          if (res) {
+            dependents.getOrElse(i, Nil).foreach { d =>
+              val w = waitings(d) - 1
+              waitings += (d -> w)
+              if (w == 0) ready.enqueue(d)
+            }
+          } else {
+            // stop submitting steps like the sequential execution, wait for running ones
+            success = false
+          }
+        }
+      }
+      while (running > 0) {
+        val (i, _, t) = completion.take.get
+        running -= 1
+        times += (i -> t)
+      }
+    } finally {
+      executor.shutdown()
+    }
+    success && times.size == steps.size
+  }
+
+}
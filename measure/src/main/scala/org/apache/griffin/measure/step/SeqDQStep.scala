@@ -21,7 +21,7 @@ package org.apache.griffin.measure.step
 import org.apache.griffin.measure.context.DQContext
 
 /**
-  * sequence of dq steps
+  * sequence of dq steps, executed as a dag of steps
   */
 case class SeqDQStep(dqSteps: Seq[DQStep]) extends DQStep {
 
@@ -33,9 +33,7 @@ case class SeqDQStep(dqSteps: Seq[DQStep]) extends DQStep {
     * @return execution success
     */
   def execute(context: DQContext): Boolean = {
-    dqSteps.foldLeft(true) { (ret, dqStep) =>
-      ret && dqStep.execute(context)
-    }
+    DagDQStep(dqSteps).execute(context)
   }
 
   override def getNames(): Seq[String] = {
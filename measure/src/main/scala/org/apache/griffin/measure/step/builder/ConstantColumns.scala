@@ -34,5 +34,7 @@ object ConstantColumns {
 
   val rowNumber = "__rn"
 
-  val columns = List[String](tmst, metric, record, empty, beginTs, endTs, distinct, rowNumber)
+  val rowId = "__rid"
+
+  val columns = List[String](tmst, metric, record, empty, beginTs, endTs, distinct, rowNumber, rowId)
 }
\ No newline at end of file
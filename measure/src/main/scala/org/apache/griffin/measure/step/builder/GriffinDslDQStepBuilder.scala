@@ -19,7 +19,7 @@ under the License.
 package org.apache.griffin.measure.step.builder
 
 import org.apache.griffin.measure.configuration.dqdefinition.RuleParam
-import org.apache.griffin.measure.context.DQContext
+import org.apache.griffin.measure.context.{DQContext, DQContextCache}
 import org.apache.griffin.measure.step.DQStep
 import org.apache.griffin.measure.step.builder.dsl.parser.GriffinDslParser
 import org.apache.griffin.measure.step.builder.dsl.transform.Expr2DQSteps
@@ -32,21 +32,26 @@ case class GriffinDslDQStepBuilder(dataSourceNames: Seq[String],
   val filteredFunctionNames = functionNames.filter { fn =>
     fn.matches("""^[a-zA-Z_]\w*$""")
   }
-  val parser = GriffinDslParser(dataSourceNames, filteredFunctionNames)
+  lazy val parser = GriffinDslParser(dataSourceNames, filteredFunctionNames)
 
   def buildSteps(context: DQContext, ruleParam: RuleParam): Seq[DQStep] = {
     val name = getStepName(ruleParam.getOutDfName())
     val rule = ruleParam.getRule
     val dqType = ruleParam.getDqType
     try {
-      val result = parser.parseRule(rule, dqType)
-      if (result.successful) {
-        val expr = result.get
-        val expr2DQSteps = Expr2DQSteps(context, expr, ruleParam.replaceOutDfName(name))
-        expr2DQSteps.getDQSteps()
-      } else {
-        warn(s"parse rule [ ${rule} ] fails: \n${result}")
-        Nil
+      // rule is parsed only once in streaming mode, steps are still generated in each round
+      val exprOpt = DQContextCache.getRuleExpr(dataSourceNames, filteredFunctionNames, rule, dqType) {
+        val result = parser.parseRule(rule, dqType)
+        if (result.successful) Some(result.get) else {
+          warn(s"parse rule [ ${rule} ] fails: \n${result}")
+          None
+        }
+      }
+      exprOpt match {
+        case Some(expr) =>
+          val expr2DQSteps = Expr2DQSteps(context, expr, ruleParam.replaceOutDfName(name))
+          expr2DQSteps.getDQSteps()
+        case _ => Nil
       }
     } catch {
       case e: Throwable =>
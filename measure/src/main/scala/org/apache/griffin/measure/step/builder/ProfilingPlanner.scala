@@ -0,0 +1,102 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.step.builder
+
+import org.apache.griffin.measure.Loggable
+import org.apache.griffin.measure.context.DQContext
+import org.apache.griffin.measure.step.{DagDQStep, DQStep, SeqDQStep}
+import org.apache.griffin.measure.step.transform.{MergedProfilingStep, ProfilingProjectStep, ProfilingTransformStep}
+
+/**
+  * merge profiling rules scanning the same data into one aggregation query,
+  * the result of each rule is projected from the cached result of the merged query,
+  * rules are calculated separately if the merged query fails
+  */
+object ProfilingPlanner extends Loggable {
+
+  val _Merge = "spark.griffin.profiling.merge"
+
+  private val MergedTableHead = "__profiling"
+
+  def plan(context: DQContext, steps: Seq[DQStep]): Seq[DQStep] = {
+    val enabled = context.sqlContext.sparkContext.getConf.getBoolean(_Merge, true)
+    val profilingSteps = steps.flatMap(collectProfilingSteps)
+    val groups = profilingSteps.filter(_.query.mergeKeyOpt.nonEmpty)
+      .groupBy(_.query.mergeKeyOpt).values.filter(_.size > 1).toSeq
+      .sortBy(group => profilingSteps.indexOf(group.head))
+    if (!enabled || groups.isEmpty) steps else {
+      val (mergedSteps, projectSteps) = groups.map(mergeGroup(context, _)).unzip
+      val projectStepMap = projectSteps.flatten.toMap
+      val firstStepMap = groups.zip(mergedSteps).map(pair => (pair._1.head.name, pair._2)).toMap
+
+      steps.flatMap { step =>
+        val mergedStepOpt = collectProfilingSteps(step).flatMap(s => firstStepMap.get(s.name)).headOption
+        mergedStepOpt.toSeq :+ replaceSteps(step, projectStepMap)
+      }
+    }
+  }
+
+  private def collectProfilingSteps(step: DQStep): Seq[ProfilingTransformStep] = {
+    step match {
+      case s: ProfilingTransformStep => s :: Nil
+      case SeqDQStep(subSteps) => subSteps.flatMap(collectProfilingSteps)
+      case DagDQStep(subSteps) => subSteps.flatMap(collectProfilingSteps)
+      case _ => Nil
+    }
+  }
+
+  private def replaceSteps(step: DQStep, stepMap: Map[String, DQStep]): DQStep = {
+    step match {
+      case s: ProfilingTransformStep => stepMap.getOrElse(s.name, s)
+      case SeqDQStep(subSteps) => SeqDQStep(subSteps.map(replaceSteps(_, stepMap)))
+      case DagDQStep(subSteps) => DagDQStep(subSteps.map(replaceSteps(_, stepMap)))
+      case s => s
+    }
+  }
+
+  /**
+    * @return   merged step, and project steps to replace the profiling steps by name
+    */
+  private def mergeGroup(context: DQContext, group: Seq[ProfilingTransformStep]
+                        ): (DQStep, Seq[(String, DQStep)]) = {
+    val mergedName = s"${MergedTableHead}${DQStepNameGenerator.genName}"
+    val query = group.head.query
+
+    val columns = group.zipWithIndex.map { pair =>
+      val (step, i) = pair
+      step.query.selections.zipWithIndex.map { selPair =>
+        val ((sel, alias), j) = selPair
+        (sel, s"${mergedName}_${i}_${j}", alias)
+      }
+    }
+    val mergedQuery = query.copy(selections = columns.flatten.map(col => (col._1, col._2)))
+    val mergedStep = MergedProfilingStep(mergedName, mergedQuery.sql)
+    context.compileTableRegister.registerTable(mergedName)
+    info(s"merge profiling rules [${group.map(_.name).mkString(", ")}] into ${mergedName}")
+
+    val projectSteps = group.zip(columns).map { pair =>
+      val (step, cols) = pair
+      val sels = query.extraSelections ++ cols.map(col => s"`${col._2}` AS `${col._3}`")
+      val projectSql = s"SELECT ${sels.mkString(", ")} FROM `${mergedName}`"
+      (step.name, ProfilingProjectStep(step.name, projectSql, mergedName, step))
+    }
+    (mergedStep, projectSteps)
+  }
+
+}
@@ -45,6 +45,8 @@ case class AccuracyExpr2DQSteps(context: DQContext,
     val _total = "total"
     val _matched = "matched"
     val _matchedFraction = "matchedFraction"
+
+    val _fused = "fused"
   }
   import AccuracyKeys._
 
@@ -62,6 +64,9 @@ case class AccuracyExpr2DQSteps(context: DQContext,
     if (!context.runTimeTableRegister.existsTable(sourceName)) {
       warn(s"[${timestamp}] data source ${sourceName} not exists")
       Nil
+    } else if (procType == BatchProcessType && details.getBoolean(_fused, false) &&
+      ruleParam.getOutputOpt(RecordOutputType).isEmpty) {
+      getFusedDQSteps(analyzer, sourceName, targetName)
     } else {
       // 1. miss record
       val missRecordsTableName = "__missRecords"
@@ -175,7 +180,8 @@ case class AccuracyExpr2DQSteps(context: DQContext,
           val accuracyMetricDetails = Map[String, Any](
             (AccuracyOprKeys._miss -> missColName),
             (AccuracyOprKeys._total -> totalColName),
-            (AccuracyOprKeys._matched -> matchedColName)
+            (AccuracyOprKeys._matched -> matchedColName),
+            (AccuracyOprKeys._stateName -> s"${context.name}/${ruleParam.getOutDfName()}")
           )
           val accuracyMetricTransStep = DataFrameOpsTransformStep(accuracyMetricTableName,
             accuracyTableName, accuracyMetricRule, accuracyMetricDetails)
@@ -214,4 +220,63 @@ case class AccuracyExpr2DQSteps(context: DQContext,
     }
   }
 
+  /**
+    * batch accuracy in one pass of the join, without materializing miss records,
+    * a source row joining several target rows is counted once by its row id
+    */
+  private def getFusedDQSteps(analyzer: AccuracyAnalyzer,
+                              sourceName: String,
+                              targetName: String
+                             ): Seq[DQStep] = {
+    val details = ruleParam.getDetails
+    val timestamp = context.contextId.timestamp
+
+    val totalColName = details.getStringOrKey(_total)
+    val missColName = details.getStringOrKey(_miss)
+    val matchedColName = details.getStringOrKey(_matched)
+    val matchedFractionColName = details.getStringOrKey(_matchedFraction)
+
+    val countSql = if (!context.runTimeTableRegister.existsTable(targetName)) {
+      warn(s"[${timestamp}] data source ${targetName} not exists")
+      s"SELECT COUNT(*) AS total, COUNT(*) AS miss FROM `${sourceName}`"
+    } else {
+      val rowId = ConstantColumns.rowId
+      val onClause = expr.coalesceDesc
+      val sourceIsNull = analyzer.sourceSelectionExprs.map { sel =>
+        s"${sel.desc} IS NULL"
+      }.mkString(" AND ")
+      val targetIsNull = analyzer.targetSelectionExprs.map { sel =>
+        s"${sel.desc} IS NULL"
+      }.mkString(" AND ")
+      val missClause = s"(NOT (${sourceIsNull})) AND (${targetIsNull})"
+      s"""
+         |SELECT COUNT(*) AS total, coalesce(SUM(R.miss), 0) AS miss
+         |FROM (
+         |  SELECT `${rowId}`, MAX(CASE WHEN ${missClause} THEN 1 ELSE 0 END) AS miss
+         |  FROM (SELECT *, monotonically_increasing_id() AS `${rowId}` FROM `${sourceName}`)
+         |  AS `${sourceName}` LEFT JOIN `${targetName}` ON ${onClause}
+         |  GROUP BY `${rowId}`
+         |) AS R
+       """.stripMargin
+    }
+
+    val accuracyTableName = ruleParam.getOutDfName()
+    val accuracyMetricSql =
+      s"""
+         |SELECT A.total AS `${totalColName}`,
+         |A.miss AS `${missColName}`,
+         |(A.total - A.miss) AS `${matchedColName}`,
+         |coalesce( (A.total - A.miss) / A.total, 1.0) AS `${matchedFractionColName}`
+         |FROM (${countSql}) AS A
+       """.stripMargin
+    val accuracyTransStep = SparkSqlTransformStep(accuracyTableName, accuracyMetricSql, emptyMap)
+
+    val metricOpt = ruleParam.getOutputOpt(MetricOutputType)
+    val mwName = metricOpt.flatMap(_.getNameOpt).getOrElse(ruleParam.getOutDfName())
+    val flattenType = metricOpt.map(_.getFlatten).getOrElse(FlattenType.default)
+    val accuracyMetricWriteStep = MetricWriteStep(mwName, accuracyTableName, flattenType)
+
+    accuracyTransStep :: accuracyMetricWriteStep :: Nil
+  }
+
 }
@@ -25,7 +25,9 @@ import org.apache.griffin.measure.step.DQStep
 import org.apache.griffin.measure.step.builder.ConstantColumns
 import org.apache.griffin.measure.step.builder.dsl.expr.{DistinctnessClause, _}
 import org.apache.griffin.measure.step.builder.dsl.transform.analyzer.DistinctnessAnalyzer
-import org.apache.griffin.measure.step.transform.SparkSqlTransformStep
+import org.apache.griffin.measure.step.builder.udf.GriffinUDAggFs
+import org.apache.griffin.measure.step.transform.{DataFrameOps, DataFrameOpsTransformStep, SparkSqlTransformStep}
+import org.apache.griffin.measure.step.transform.DataFrameOps.DistinctKeyIndexOprKeys
 import org.apache.griffin.measure.step.write.{DataSourceUpdateWriteStep, MetricWriteStep, RecordWriteStep}
 import org.apache.griffin.measure.utils.ParamUtil._
 
@@ -50,6 +52,11 @@ case class DistinctnessExpr2DQSteps(context: DQContext,
     val _withAccumulate = "with.accumulate"
 
     val _recordEnable = "record.enable"
+
+    val _approx = "approx"
+    val _approxRsd = "approx.rsd"
+
+    val _keyIndex = "key.index"
   }
   import DistinctnessKeys._
 
@@ -79,8 +86,14 @@ case class DistinctnessExpr2DQSteps(context: DQContext,
     if (!context.runTimeTableRegister.existsTable(sourceName)) {
       warn(s"[${timestamp}] data source ${sourceName} not exists")
       Nil
+    } else if (details.getBoolean(_approx, false)) {
+      getApproxDQSteps(analyzer, sourceName, writeTimestampOpt)
     } else {
-      val withOlderTable = {
+      val withKeyIndex = {
+        procType == StreamingProcessType && details.getBoolean(_withAccumulate, true) &&
+          details.getBoolean(_keyIndex, false)
+      }
+      val withOlderTable = withKeyIndex || {
         details.getBoolean(_withAccumulate, true) &&
           context.runTimeTableRegister.existsTable(targetName)
       }
@@ -134,48 +147,98 @@ case class DistinctnessExpr2DQSteps(context: DQContext,
 
       val ((transSteps2, writeSteps2), dupCountTableName) = procType match {
         case StreamingProcessType if (withOlderTable) =>
-          // 4.0 update old data
-          val targetDsUpdateWriteStep = DataSourceUpdateWriteStep(targetName, targetName)
-
-          // 4. older alias
-          val olderAliasTableName = "__older"
-          val olderAliasSql = {
-            s"SELECT ${selClause} FROM `${targetName}` WHERE `${ConstantColumns.tmst}` <= ${beginTmst}"
-          }
-          val olderAliasTransStep = SparkSqlTransformStep(olderAliasTableName, olderAliasSql, emptyMap)
-
-          // 5. join with older data
-          val joinedTableName = "__joined"
-          val selfSelClause = (distAliases :+ dupColName).map { alias =>
-            s"`${selfGroupTableName}`.`${alias}`"
-          }.mkString(", ")
-          val onClause = distAliases.map { alias =>
-            s"coalesce(`${selfGroupTableName}`.`${alias}`, '') = coalesce(`${olderAliasTableName}`.`${alias}`, '')"
-          }.mkString(" AND ")
-          val olderIsNull = distAliases.map { alias =>
-            s"`${olderAliasTableName}`.`${alias}` IS NULL"
-          }.mkString(" AND ")
-          val joinedSql = {
-            s"""
-               |SELECT ${selfSelClause}, (${olderIsNull}) AS `${ConstantColumns.distinct}`
-               |FROM `${olderAliasTableName}` RIGHT JOIN `${selfGroupTableName}`
-               |ON ${onClause}
-            """.stripMargin
-          }
-          val joinedTransStep = SparkSqlTransformStep(joinedTableName, joinedSql, emptyMap)
-
-          // 6. group by joined data
           val groupTableName = "__group"
           val moreDupColName = "_more_dup"
-          val groupSql = {
-            s"""
-               |SELECT ${distAliasesClause}, `${dupColName}`, `${ConstantColumns.distinct}`,
-               |COUNT(*) AS `${moreDupColName}`
-               |FROM `${joinedTableName}`
-               |GROUP BY ${distAliasesClause}, `${dupColName}`, `${ConstantColumns.distinct}`
-             """.stripMargin
+          val (groupTransSteps, groupWriteSteps) = if (withKeyIndex) {
+            // 4. key hash count of each tmst
+            val keyColName = "__key"
+            val countColName = "__count"
+            val keyExpr = distAliases.map { alias =>
+              s"coalesce(CAST(`${alias}` AS STRING), '')"
+            }.mkString("xxhash64(", ", ", ")")
+            val keyCountTableName = "__keyCount"
+            val keyCountSql = {
+              s"""
+                 |SELECT `${ConstantColumns.tmst}`, ${keyExpr} AS `${keyColName}`, COUNT(*) AS `${countColName}`
+                 |FROM (SELECT `${ConstantColumns.tmst}`, ${selClause} FROM `${sourceName}`) t
+                 |GROUP BY `${ConstantColumns.tmst}`, ${keyExpr}
+               """.stripMargin
+            }
+            val keyCountTransStep = SparkSqlTransformStep(keyCountTableName, keyCountSql, emptyMap)
+
+            // 5. probe key index of older data
+            val olderKeyTableName = "__olderKey"
+            val keyIndexDetails = Map[String, Any](
+              (DistinctKeyIndexOprKeys._key -> keyColName),
+              (DistinctKeyIndexOprKeys._count -> countColName),
+              (DistinctKeyIndexOprKeys._beginTmst -> beginTmst),
+              (DistinctKeyIndexOprKeys._stateName -> s"${context.name}/${ruleParam.getOutDfName()}")
+            )
+            val olderKeyTransStep = DataFrameOpsTransformStep(olderKeyTableName,
+              keyCountTableName, DataFrameOps._distinctKeyIndex, keyIndexDetails)
+
+            // 6. join with older key counts
+            val selfSelClause = (distAliases :+ dupColName).map { alias =>
+              s"`${selfGroupTableName}`.`${alias}`"
+            }.mkString(", ")
+            val groupSql = {
+              s"""
+                 |SELECT ${selfSelClause},
+                 |(`${olderKeyTableName}`.`${keyColName}` IS NULL) AS `${ConstantColumns.distinct}`,
+                 |coalesce(`${olderKeyTableName}`.`${countColName}`, 1) AS `${moreDupColName}`
+                 |FROM (SELECT *, ${keyExpr} AS `${keyColName}` FROM `${selfGroupTableName}`) `${selfGroupTableName}`
+                 |LEFT JOIN `${olderKeyTableName}`
+                 |ON `${selfGroupTableName}`.`${keyColName}` = `${olderKeyTableName}`.`${keyColName}`
+               """.stripMargin
+            }
+            val groupTransStep = SparkSqlTransformStep(groupTableName, groupSql, emptyMap)
+
+            (keyCountTransStep :: olderKeyTransStep :: groupTransStep :: Nil, Nil)
+          } else {
+            // 4.0 update old data
+            val targetDsUpdateWriteStep = DataSourceUpdateWriteStep(targetName, targetName)
+
+            // 4. older alias
+            val olderAliasTableName = "__older"
+            val olderAliasSql = {
+              s"SELECT ${selClause} FROM `${targetName}` WHERE `${ConstantColumns.tmst}` <= ${beginTmst}"
+            }
+            val olderAliasTransStep = SparkSqlTransformStep(olderAliasTableName, olderAliasSql, emptyMap)
+
+            // 5. join with older data
+            val joinedTableName = "__joined"
+            val selfSelClause = (distAliases :+ dupColName).map { alias =>
+              s"`${selfGroupTableName}`.`${alias}`"
+            }.mkString(", ")
+            val onClause = distAliases.map { alias =>
+              s"coalesce(`${selfGroupTableName}`.`${alias}`, '') = " +
+                s"coalesce(`${olderAliasTableName}`.`${alias}`, '')"
+            }.mkString(" AND ")
+            val olderIsNull = distAliases.map { alias =>
+              s"`${olderAliasTableName}`.`${alias}` IS NULL"
+            }.mkString(" AND ")
+            val joinedSql = {
+              s"""
+                 |SELECT ${selfSelClause}, (${olderIsNull}) AS `${ConstantColumns.distinct}`
+                 |FROM `${olderAliasTableName}` RIGHT JOIN `${selfGroupTableName}`
+                 |ON ${onClause}
+              """.stripMargin
+            }
+            val joinedTransStep = SparkSqlTransformStep(joinedTableName, joinedSql, emptyMap)
+
+            // 6. group by joined data
+            val groupSql = {
+              s"""
+                 |SELECT ${distAliasesClause}, `${dupColName}`, `${ConstantColumns.distinct}`,
+                 |COUNT(*) AS `${moreDupColName}`
+                 |FROM `${joinedTableName}`
+                 |GROUP BY ${distAliasesClause}, `${dupColName}`, `${ConstantColumns.distinct}`
+               """.stripMargin
+            }
+            val groupTransStep = SparkSqlTransformStep(groupTableName, groupSql, emptyMap)
+
+            (olderAliasTransStep :: joinedTransStep :: groupTransStep :: Nil, targetDsUpdateWriteStep :: Nil)
           }
-          val groupTransStep = SparkSqlTransformStep(groupTableName, groupSql, emptyMap)
 
           // 7. final duplicate count
           val finalDupCountTableName = "__finalDupCount"
@@ -205,9 +268,7 @@ case class DistinctnessExpr2DQSteps(context: DQContext,
           val finalDupCountTransStep =
             SparkSqlTransformStep(finalDupCountTableName, finalDupCountSql, emptyMap, true)
 
-          ((olderAliasTransStep :: joinedTransStep
-            :: groupTransStep :: finalDupCountTransStep :: Nil,
-            targetDsUpdateWriteStep :: Nil), finalDupCountTableName)
+          ((groupTransSteps :+ finalDupCountTransStep, groupWriteSteps), finalDupCountTableName)
         case _ =>
           ((Nil, Nil), selfGroupTableName)
       }
@@ -373,4 +434,52 @@ case class DistinctnessExpr2DQSteps(context: DQContext,
     }
   }
 
+
+  /**
+    * estimate distinct count by hyper log log in approximate mode, without duplication array,
+    * the distinct count is estimated within the data of this round, older data is not compared with
+    */
+  private def getApproxDQSteps(analyzer: DistinctnessAnalyzer, sourceName: String,
+                               writeTimestampOpt: Option[Long]): Seq[DQStep] = {
+    val details = ruleParam.getDetails
+    val rsd = details.getDouble(_approxRsd, GriffinUDAggFs.DefaultRelativeSD)
+    if (details.getString(_duplicationArray, "").nonEmpty) {
+      warn(s"duplication array is not supported in approximate distinctness, ignored")
+    }
+    if (context.procType == StreamingProcessType && details.getBoolean(_withAccumulate, true)) {
+      warn(s"accumulation is not supported in approximate distinctness, estimated only in this round")
+    }
+
+    val selClause = analyzer.selectionPairs.map { pair =>
+      val (expr, alias, _) = pair
+      s"${expr.desc} AS `${alias}`"
+    }.mkString(", ")
+    val distAliasesClause = analyzer.selectionPairs.filter(_._3).map(pair => s"`${pair._2}`").mkString(", ")
+    val itemClause = s"to_json(struct(${distAliasesClause}))"
+
+    val totalColName = details.getStringOrKey(_total)
+    val distColName = details.getStringOrKey(_distinct)
+
+    // 1. source alias
+    val sourceAliasTableName = "__sourceAlias"
+    val sourceAliasSql = s"SELECT ${selClause} FROM `${sourceName}`"
+    val sourceAliasTransStep = SparkSqlTransformStep(sourceAliasTableName, sourceAliasSql, emptyMap)
+
+    // 2. total and distinct metric, estimated distinct count is not more than total count
+    val approxMetricTableName = "__approxMetric"
+    val approxMetricSql = {
+      s"""
+         |SELECT COUNT(*) AS `${totalColName}`,
+         |LEAST(approx_count_distinct(${itemClause}, ${rsd}), COUNT(*)) AS `${distColName}`
+         |FROM `${sourceAliasTableName}`
+       """.stripMargin
+    }
+    val approxMetricTransStep = SparkSqlTransformStep(approxMetricTableName, approxMetricSql, emptyMap)
+    val approxMetricWriteStep = {
+      MetricWriteStep(distColName, approxMetricTableName, EntriesFlattenType, writeTimestampOpt)
+    }
+
+    sourceAliasTransStep :: approxMetricTransStep :: approxMetricWriteStep :: Nil
+  }
+
 }
@@ -27,7 +27,7 @@ import org.apache.griffin.measure.step.DQStep
 import org.apache.griffin.measure.step.builder.ConstantColumns
 import org.apache.griffin.measure.step.builder.dsl.expr._
 import org.apache.griffin.measure.step.builder.dsl.transform.analyzer.ProfilingAnalyzer
-import org.apache.griffin.measure.step.transform.SparkSqlTransformStep
+import org.apache.griffin.measure.step.transform.{ProfilingQuery, ProfilingTransformStep}
 import org.apache.griffin.measure.step.write.MetricWriteStep
 import org.apache.griffin.measure.utils.ParamUtil._
 
@@ -62,19 +62,17 @@ case class ProfilingExpr2DQSteps(context: DQContext,
       Nil
     } else {
       val analyzer = ProfilingAnalyzer(profilingExpr, sourceName)
-      val selExprDescs = analyzer.selectionExprs.map { sel =>
+      val selections = analyzer.selectionExprs.map { sel =>
         val alias = sel match {
-          case s: AliasableExpr =>
-            s.alias.filter(StringUtils.isNotEmpty).map(a => s" AS `${a}`").getOrElse("")
-
+          case s: AliasableExpr => s.alias.filter(StringUtils.isNotEmpty).getOrElse("")
           case _ => ""
         }
-        s"${sel.desc}${alias}"
+        (sel.desc, alias)
       }
       val selCondition = profilingExpr.selectClause.extraConditionOpt.map(_.desc).mkString
-      val selClause = procType match {
-        case BatchProcessType => selExprDescs.mkString(", ")
-        case StreamingProcessType => (s"`${ConstantColumns.tmst}`" +: selExprDescs).mkString(", ")
+      val extraSelections = procType match {
+        case BatchProcessType => Nil
+        case StreamingProcessType => s"`${ConstantColumns.tmst}`" :: Nil
       }
       val groupByClauseOpt = analyzer.groupbyExprOpt
       val groupbyClause = procType match {
@@ -91,13 +89,11 @@ case class ProfilingExpr2DQSteps(context: DQContext,
       val preGroupbyClause = analyzer.preGroupbyExprs.map(_.desc).mkString(" ")
       val postGroupbyClause = analyzer.postGroupbyExprs.map(_.desc).mkString(" ")
 
-      // 1. select statement
-      val profilingSql = {
-        s"SELECT ${selCondition} ${selClause} " +
-          s"${fromClause} ${preGroupbyClause} ${groupbyClause} ${postGroupbyClause}"
-      }
+      // 1. select statement, might be merged with other profiling rules by profiling planner
+      val profilingQuery = ProfilingQuery(selCondition, extraSelections, selections,
+        fromClause, preGroupbyClause, groupbyClause, postGroupbyClause)
       val profilingName = ruleParam.getOutDfName()
-      val profilingTransStep = SparkSqlTransformStep(profilingName, profilingSql, details)
+      val profilingTransStep = ProfilingTransformStep(profilingName, profilingQuery, details)
       val profilingMetricWriteStep = {
         val metricOpt = ruleParam.getOutputOpt(MetricOutputType)
         val mwName = metricOpt.flatMap(_.getNameOpt).getOrElse(ruleParam.getOutDfName())
@@ -46,6 +46,8 @@ case class UniquenessExpr2DQSteps(context: DQContext,
     val _num = "num"
 
     val _duplicationArray = "duplication.array"
+
+    val _approx = "approx"
   }
   import UniquenessKeys._
 
@@ -82,40 +84,15 @@ case class UniquenessExpr2DQSteps(context: DQContext,
         case StreamingProcessType => ConstantColumns.tmst +: aliases
       }
 
-      // 1. source distinct mapping
-      val sourceTableName = "__source"
-      val sourceSql = s"SELECT DISTINCT ${selClause} FROM ${sourceName}"
-      val sourceTransStep = SparkSqlTransformStep(sourceTableName, sourceSql, emptyMap)
-
-      // 2. target mapping
-      val targetTableName = "__target"
-      val targetSql = s"SELECT ${selClause} FROM ${targetName}"
-      val targetTransStep = SparkSqlTransformStep(targetTableName, targetSql, emptyMap)
-
-      // 3. joined
-      val joinedTableName = "__joined"
-      val joinedSelClause = selAliases.map { alias =>
-        s"`${sourceTableName}`.`${alias}` AS `${alias}`"
-      }.mkString(", ")
-      val onClause = aliases.map { alias =>
-        s"coalesce(`${sourceTableName}`.`${alias}`, '') = coalesce(`${targetTableName}`.`${alias}`, '')"
-      }.mkString(" AND ")
-      val joinedSql = {
-        s"SELECT ${joinedSelClause} FROM `${targetTableName}` RIGHT JOIN `${sourceTableName}` ON ${onClause}"
-      }
-      val joinedTransStep = SparkSqlTransformStep(joinedTableName, joinedSql, emptyMap)
-
-      // 4. group
+      // 1-4. group source items by the count of them in target
+      val approx = details.getBoolean(_approx, false)
       val groupTableName = "__group"
-      val groupSelClause = selAliases.map { alias =>
-        s"`${alias}`"
-      }.mkString(", ")
       val dupColName = details.getStringOrKey(_dup)
-      val groupSql = {
-        s"SELECT ${groupSelClause}, (COUNT(*) - 1) AS `${dupColName}` " +
-          s"FROM `${joinedTableName}` GROUP BY ${groupSelClause}"
+      val groupSteps = if (approx) {
+        getApproxGroupSteps(sourceName, targetName, selClause, aliases, groupTableName, dupColName)
+      } else {
+        getGroupSteps(sourceName, targetName, selClause, aliases, selAliases, groupTableName, dupColName)
       }
-      val groupTransStep = SparkSqlTransformStep(groupTableName, groupSql, emptyMap, true)
 
       // 5. total metric
       val totalTableName = "__totalMetric"
@@ -156,8 +133,7 @@ case class UniquenessExpr2DQSteps(context: DQContext,
       val uniqueMetricWriteStep =
         MetricWriteStep(uniqueColName, uniqueTableName, EntriesFlattenType)
 
-      val transSteps1 = sourceTransStep :: targetTransStep :: joinedTransStep :: groupTransStep ::
-        totalTransStep :: uniqueRecordTransStep :: uniqueTransStep :: Nil
+      val transSteps1 = groupSteps ++ (totalTransStep :: uniqueRecordTransStep :: uniqueTransStep :: Nil)
       val writeSteps1 = totalMetricWriteStep :: uniqueMetricWriteStep :: Nil
 
       val duplicationArrayName = details.getString(_duplicationArray, "")
@@ -202,8 +178,9 @@ case class UniquenessExpr2DQSteps(context: DQContext,
           MetricWriteStep(duplicationArrayName, dupMetricTableName, ArrayFlattenType)
         }
 
-        (dupRecordTransStep :: dupMetricTransStep :: Nil,
-          dupRecordWriteStep :: dupMetricWriteStep :: Nil)
+        // duplicate records are only hashes of items in approximate mode
+        val dupWriteSteps = if (approx) dupMetricWriteStep :: Nil else dupRecordWriteStep :: dupMetricWriteStep :: Nil
+        (dupRecordTransStep :: dupMetricTransStep :: Nil, dupWriteSteps)
       } else (Nil, Nil)
 
       // full steps
@@ -211,4 +188,116 @@ case class UniquenessExpr2DQSteps(context: DQContext,
     }
   }
 
+
+  /**
+    * group source items by the count of them in target
+    */
+  private def getGroupSteps(sourceName: String, targetName: String, selClause: String,
+                            aliases: Seq[String], selAliases: Seq[String],
+                            groupTableName: String, dupColName: String): Seq[DQStep] = {
+    // 1. source distinct mapping
+    val sourceTableName = "__source"
+    val sourceSql = s"SELECT DISTINCT ${selClause} FROM ${sourceName}"
+    val sourceTransStep = SparkSqlTransformStep(sourceTableName, sourceSql, emptyMap)
+
+    // 2. target mapping
+    val targetTableName = "__target"
+    val targetSql = s"SELECT ${selClause} FROM ${targetName}"
+    val targetTransStep = SparkSqlTransformStep(targetTableName, targetSql, emptyMap)
+
+    // 3. joined
+    val joinedTableName = "__joined"
+    val joinedSelClause = selAliases.map { alias =>
+      s"`${sourceTableName}`.`${alias}` AS `${alias}`"
+    }.mkString(", ")
+    val onClause = aliases.map { alias =>
+      s"coalesce(`${sourceTableName}`.`${alias}`, '') = coalesce(`${targetTableName}`.`${alias}`, '')"
+    }.mkString(" AND ")
+    val joinedSql = {
+      s"SELECT ${joinedSelClause} FROM `${targetTableName}` RIGHT JOIN `${sourceTableName}` ON ${onClause}"
+    }
+    val joinedTransStep = SparkSqlTransformStep(joinedTableName, joinedSql, emptyMap)
+
+    // 4. group
+    val groupSelClause = selAliases.map { alias =>
+      s"`${alias}`"
+    }.mkString(", ")
+    val groupSql = {
+      s"SELECT ${groupSelClause}, (COUNT(*) - 1) AS `${dupColName}` " +
+        s"FROM `${joinedTableName}` GROUP BY ${groupSelClause}"
+    }
+    val groupTransStep = SparkSqlTransformStep(groupTableName, groupSql, emptyMap, true)
+
+    sourceTransStep :: targetTransStep :: joinedTransStep :: groupTransStep :: Nil
+  }
+
+  /**
+    * group source items by the count of them in target in approximate mode,
+    * items are represented by their 64-bit hash, so that only one narrow column is shuffled and joined,
+    * it differs from exact result only if different items have the same hash
+    */
+  private def getApproxGroupSteps(sourceName: String, targetName: String, selClause: String,
+                                  aliases: Seq[String], groupTableName: String, dupColName: String
+                                 ): Seq[DQStep] = {
+    val keyColName = "__key"
+    val keyItemsClause = {
+      val aliasesClause = aliases.map(alias => s"`${alias}`").mkString(", ")
+      s"xxhash64(to_json(struct(${aliasesClause}))) AS `${keyColName}`"
+    }
+    val keySelClause = context.procType match {
+      case BatchProcessType => keyItemsClause
+      case StreamingProcessType => s"`${ConstantColumns.tmst}`, ${keyItemsClause}"
+    }
+    def keySql(tableName: String): String = {
+      s"SELECT ${keySelClause} FROM (SELECT ${selClause} FROM `${tableName}`) AS `__items`"
+    }
+
+    if (context.procType == BatchProcessType && sourceName == targetName) {
+      // 1. source item hashes
+      val sourceTableName = "__source"
+      val sourceTransStep = SparkSqlTransformStep(sourceTableName, keySql(sourceName), emptyMap)
+
+      // 2. group by self
+      val groupSql = {
+        s"SELECT `${keyColName}`, (COUNT(*) - 1) AS `${dupColName}` " +
+          s"FROM `${sourceTableName}` GROUP BY `${keyColName}`"
+      }
+      val groupTransStep = SparkSqlTransformStep(groupTableName, groupSql, emptyMap, true)
+
+      sourceTransStep :: groupTransStep :: Nil
+    } else {
+      // 1. source distinct item hashes
+      val sourceTableName = "__source"
+      val sourceSql = s"SELECT DISTINCT * FROM (${keySql(sourceName)}) AS `__sourceKeys`"
+      val sourceTransStep = SparkSqlTransformStep(sourceTableName, sourceSql, emptyMap)
+
+      // 2. count of item hashes in target
+      val targetTableName = "__target"
+      val countColName = "__count"
+      val targetSql = {
+        s"SELECT `${keyColName}`, COUNT(*) AS `${countColName}` " +
+          s"FROM (${keySql(targetName)}) AS `__targetKeys` GROUP BY `${keyColName}`"
+      }
+      val targetTransStep = SparkSqlTransformStep(targetTableName, targetSql, emptyMap)
+
+      // 3. group
+      val groupSelClause = context.procType match {
+        case BatchProcessType => s"`${sourceTableName}`.`${keyColName}`"
+        case StreamingProcessType =>
+          s"`${sourceTableName}`.`${ConstantColumns.tmst}`, `${sourceTableName}`.`${keyColName}`"
+      }
+      val groupSql = {
+        s"""
+           |SELECT ${groupSelClause},
+           |(coalesce(`${targetTableName}`.`${countColName}`, 1) - 1) AS `${dupColName}`
+           |FROM `${sourceTableName}` LEFT JOIN `${targetTableName}`
+           |ON `${sourceTableName}`.`${keyColName}` = `${targetTableName}`.`${keyColName}`
+         """.stripMargin
+      }
+      val groupTransStep = SparkSqlTransformStep(groupTableName, groupSql, emptyMap, true)
+
+      sourceTransStep :: targetTransStep :: groupTransStep :: Nil
+    }
+  }
+
 }
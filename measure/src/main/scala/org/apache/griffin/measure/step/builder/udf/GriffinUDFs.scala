@@ -18,46 +18,145 @@ under the License.
 */
 package org.apache.griffin.measure.step.builder.udf
 
-import org.apache.spark.sql.SQLContext
+import java.util.concurrent.ConcurrentHashMap
+import java.util.regex.Pattern
+
+import org.apache.spark.sql.{Column, SQLContext}
+import org.apache.spark.sql.catalyst.expressions._
+import org.apache.spark.sql.catalyst.expressions.aggregate.{ApproximatePercentile, HyperLogLogPlusPlus}
+import org.apache.spark.sql.types.{Decimal, StringType}
+
+import org.apache.griffin.measure.context.DQContextCache
 
 object GriffinUDFAgent {
   def register(sqlContext: SQLContext): Unit = {
     GriffinUDFs.register(sqlContext)
     GriffinUDAggFs.register(sqlContext)
+    DQContextCache.refreshFunctions(sqlContext.sparkSession)
   }
 }
 
 /**
   * user defined functions extension
+  * regex functions are native expressions if the regex is literal, which compile the pattern only once,
+  * otherwise compiled patterns are cached in each executor
   */
 object GriffinUDFs {
 
   def register(sqlContext: SQLContext): Unit = {
     sqlContext.udf.register("index_of", indexOf _)
-    sqlContext.udf.register("matches", matches _)
-    sqlContext.udf.register("reg_replace", regReplace _)
+    registerFunction(sqlContext, "xxhash64", -1)(children => new XxHash64(children))
+
+    val matchesUdf = sqlContext.udf.register("matches", matches _)
+    registerFunction(sqlContext, "matches", 2) { children =>
+      val Seq(s, regex) = children
+      literalString(regex) match {
+        case Some(r) => RLike(s, Literal(s"\\A(?:${r})\\z"))
+        case _ => matchesUdf(children.map(new Column(_)): _*).expr
+      }
+    }
+
+    val regReplaceUdf = sqlContext.udf.register("reg_replace", regReplace _)
+    registerFunction(sqlContext, "reg_replace", 3) { children =>
+      val Seq(s, regex, replacement) = children
+      literalString(regex) match {
+        case Some(_) => RegExpReplace(s, regex, replacement)
+        case _ => regReplaceUdf(children.map(new Column(_)): _*).expr
+      }
+    }
+  }
+
+  private def registerFunction(sqlContext: SQLContext, name: String, argNum: Int
+                              )(builder: Seq[Expression] => Expression): Unit = {
+    val functionBuilder: Seq[Expression] => Expression = { children =>
+      if (argNum >= 0 && children.size != argNum) {
+        throw new Exception(s"function ${name} requires ${argNum} arguments, but ${children.size} found")
+      }
+      builder(children)
+    }
+    sqlContext.sparkSession.sessionState.functionRegistry.registerFunction(name, functionBuilder)
+  }
+
+  private def literalString(expr: Expression): Option[String] = {
+    if (expr.foldable && expr.dataType == StringType) Option(expr.eval()).map(_.toString)
+    else None
   }
 
   private def indexOf(arr: Seq[String], v: String) = {
-    arr.indexOf(v)
+    if (arr != null) arr.indexOf(v) else -1
+  }
+
+  private def matches(s: String, regex: String): Option[Boolean] = {
+    if (s != null && regex != null) Some(RegexCache.getPattern(regex).matcher(s).matches) else None
   }
 
-  private def matches(s: String, regex: String) = {
-    s.matches(regex)
+  private def regReplace(s: String, regex: String, replacement: String): Option[String] = {
+    if (s != null && regex != null && replacement != null) {
+      Some(RegexCache.getPattern(regex).matcher(s).replaceAll(replacement))
+    } else None
   }
 
-  private def regReplace(s: String, regex: String, replacement: String) = {
-    s.replaceAll(regex, replacement)
+}
+
+/**
+  * bounded cache of compiled patterns in each executor, shared by tasks without locking,
+  * it is cleared when full, as the regexes of a job are usually much less than the bound
+  */
+object RegexCache {
+
+  val MaxSize = 1000
+
+  private val patterns = new ConcurrentHashMap[String, Pattern]()
+
+  def getPattern(regex: String): Pattern = {
+    val cached = patterns.get(regex)
+    if (cached != null) cached else {
+      val pattern = Pattern.compile(regex)
+      if (patterns.size >= MaxSize) patterns.clear()
+      val existing = patterns.putIfAbsent(regex, pattern)
+      if (existing != null) existing else pattern
+    }
   }
 
+  def size: Int = patterns.size
+
 }
 
 /**
   * aggregation functions extension
+  * approx_distinct_count(expr[, relativeSD]): distinct count estimated by hyper log log
+  * approx_quantile(expr, percentage[, accuracy]): approximate quantile, percentage could be an array
   */
 object GriffinUDAggFs {
 
   def register(sqlContext: SQLContext): Unit = {
+    val functionRegistry = sqlContext.sparkSession.sessionState.functionRegistry
+
+    val approxDistinctCount: Seq[Expression] => Expression = {
+      case Seq(child) => HyperLogLogPlusPlus(child)
+      case Seq(child, relativeSD) => HyperLogLogPlusPlus(child, doubleLiteral(relativeSD))
+      case children => throw new Exception(s"function approx_distinct_count requires 1 or 2 arguments, " +
+        s"but ${children.size} found")
+    }
+    functionRegistry.registerFunction("approx_distinct_count", approxDistinctCount)
+
+    val approxQuantile: Seq[Expression] => Expression = {
+      case Seq(child, percentage) => new ApproximatePercentile(child, percentage)
+      case Seq(child, percentage, accuracy) => new ApproximatePercentile(child, percentage, accuracy)
+      case children => throw new Exception(s"function approx_quantile requires 2 or 3 arguments, " +
+        s"but ${children.size} found")
+    }
+    functionRegistry.registerFunction("approx_quantile", approxQuantile)
+  }
+
+  val DefaultRelativeSD = 0.05
+
+  private def doubleLiteral(expr: Expression): Double = {
+    Option(expr.eval()) match {
+      case Some(v: Number) if (expr.foldable) => v.doubleValue
+      case Some(v: Decimal) if (expr.foldable) => v.toDouble
+      case _ => throw new Exception(s"${expr} should be a numeric literal")
+    }
   }
 
-}
\ No newline at end of file
+}
@@ -21,11 +21,13 @@ package org.apache.griffin.measure.step.transform
 import java.util.Date
 
 import org.apache.spark.sql.{Encoders, Row, SQLContext, _}
+import org.apache.spark.sql.functions._
 import org.apache.spark.sql.types._
 import org.apache.griffin.measure.context.ContextId
 import org.apache.griffin.measure.context.streaming.metric._
 import org.apache.griffin.measure.context.streaming.metric.CacheResults.CacheResult
 import org.apache.griffin.measure.step.builder.ConstantColumns
+import org.apache.griffin.measure.utils.HdfsUtil
 import org.apache.griffin.measure.utils.ParamUtil._
 
 /**
@@ -36,6 +38,7 @@ object DataFrameOps {
   final val _fromJson = "from_json"
   final val _accuracy = "accuracy"
   final val _clear = "clear"
+  final val _distinctKeyIndex = "distinct_key_index"
 
   object AccuracyOprKeys {
     val _dfName = "df.name"
@@ -43,6 +46,14 @@ object DataFrameOps {
     val _total = "total"
     val _matched = "matched"
     val _matchedFraction = "matchedFraction"
+    val _stateName = "state.name"
+  }
+
+  object DistinctKeyIndexOprKeys {
+    val _key = "key"
+    val _count = "count"
+    val _beginTmst = "begin.tmst"
+    val _stateName = "state.name"
   }
 
   def fromJson(sqlContext: SQLContext,
@@ -84,6 +95,15 @@ object DataFrameOps {
 
     val df = sqlContext.table(s"`${inputDfName}`")
 
+    val statePathOpt = sqlContext.sparkContext.getConf.getOption(AccuracyStateStore._StatePath)
+    val stateNameOpt = details.get(_stateName).map(_.toString)
+    (statePathOpt, stateNameOpt) match {
+      case (Some(statePath), Some(stateName)) =>
+        val stateStore = AccuracyStateStore(sqlContext, HdfsUtil.getHdfsFilePath(statePath, stateName))
+        return accuracyByStateStore(df, stateStore, contextId, updateTime, details)
+      case _ =>
+    }
+
     val results = df.rdd.flatMap { row =>
       try {
         val tmst = getLong(row, ConstantColumns.tmst).getOrElse(contextId.timestamp)
@@ -122,6 +142,82 @@ object DataFrameOps {
     retDf
   }
 
+  /**
+    * merge accuracy metrics of this round into state store distributedly,
+    * only metrics changed in this round are output
+    */
+  private[transform] def accuracyByStateStore(df: DataFrame,
+                                              stateStore: AccuracyStateStore,
+                                              contextId: ContextId,
+                                              updateTime: Long,
+                                              details: Map[String, Any]): DataFrame = {
+    import AccuracyOprKeys._
+
+    val miss = details.getStringOrKey(_miss)
+    val total = details.getStringOrKey(_total)
+    val matched = details.getStringOrKey(_matched)
+    val matchedFraction = details.getStringOrKey(_matchedFraction)
+
+    def longCol(name: String, defValue: Long): Column = {
+      if (df.columns.contains(name)) coalesce(col(s"`${name}`").cast(LongType), lit(defValue))
+      else lit(defValue)
+    }
+    val metricDf = df.select(
+      longCol(ConstantColumns.tmst, contextId.timestamp).as(ConstantColumns.tmst),
+      longCol(miss, 0L).as(stateStore._Miss),
+      longCol(total, 0L).as(stateStore._Total)
+    ).where(col(stateStore._Total) > 0)
+
+    val changedDf = stateStore.update(metricDf, updateTime)
+
+    val missCol = col(stateStore._Miss)
+    val totalCol = col(stateStore._Total)
+    changedDf.select(
+      col(ConstantColumns.tmst),
+      missCol.as(miss),
+      totalCol.as(total),
+      (totalCol - missCol).as(matched),
+      ((totalCol - missCol).cast(DoubleType) / totalCol).as(matchedFraction),
+      ((totalCol - missCol) > 0).as(ConstantColumns.record),
+      (missCol <= 0).as(ConstantColumns.empty)
+    )
+  }
+
+  /**
+    * probe keys of new data in the key index of older data,
+    * keys of new data are added into the index for the later rounds
+    * @return   count of each key in older data, only for keys found in older data
+    */
+  def distinctKeyIndex(sqlContext: SQLContext,
+                       inputDfName: String,
+                       details: Map[String, Any]): DataFrame = {
+    import DistinctKeyIndexOprKeys._
+
+    val key = details.getStringOrKey(_key)
+    val count = details.getStringOrKey(_count)
+    val beginTmst = details.getLong(_beginTmst, 0L)
+    val stateName = details.getString(_stateName, "")
+
+    val updateTime = new Date().getTime
+
+    val df = sqlContext.table(s"`${inputDfName}`")
+    val keyCountDf = df.select(col(ConstantColumns.tmst),
+      col(key).as(KeyIndexStore._Key), col(count).cast(LongType).as(KeyIndexStore._Count))
+
+    val statePathOpt = sqlContext.sparkContext.getConf.getOption(KeyIndexStore._StatePath)
+    val olderOpt = statePathOpt.filter(_ => stateName.nonEmpty).flatMap { statePath =>
+      val keyIndexStore = KeyIndexStore(sqlContext, HdfsUtil.getHdfsFilePath(statePath, stateName))
+      keyIndexStore.update(keyCountDf, beginTmst, updateTime)
+    }
+
+    olderOpt match {
+      case Some(olderDf) =>
+        olderDf.select(col(KeyIndexStore._Key).as(key), col(KeyIndexStore._Count).as(count))
+      case _ =>
+        keyCountDf.where(lit(false)).select(col(KeyIndexStore._Key).as(key), col(KeyIndexStore._Count).as(count))
+    }
+  }
+
   def clear(sqlContext: SQLContext, inputDfName: String, details: Map[String, Any]): DataFrame = {
     val df = sqlContext.table(s"`${inputDfName}`")
     val emptyRdd = sqlContext.sparkContext.emptyRDD[Row]
@@ -39,6 +39,7 @@ case class DataFrameOpsTransformStep(name: String,
           DataFrameOps.accuracy(sqlContext, inputDfName, context.contextId, details)
 
         case DataFrameOps._clear => DataFrameOps.clear(sqlContext, inputDfName, details)
+        case DataFrameOps._distinctKeyIndex => DataFrameOps.distinctKeyIndex(sqlContext, inputDfName, details)
         case _ => throw new Exception(s"df opr [ ${rule} ] not supported")
       }
       if (cache) context.dataFrameCache.cacheDataFrame(name, df)
@@ -0,0 +1,113 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.step.transform
+
+import org.apache.griffin.measure.context.DQContext
+
+/**
+  * profiling query of a rule in parts, so that queries of rules could be merged
+  * @param extraSelections    selections without alias, like tmst column in streaming mode
+  * @param selections         selections with their aliases, empty alias if not set
+  */
+case class ProfilingQuery(selCondition: String,
+                          extraSelections: Seq[String],
+                          selections: Seq[(String, String)],
+                          fromClause: String,
+                          preGroupbyClause: String,
+                          groupbyClause: String,
+                          postGroupbyClause: String
+                         ) {
+
+  def sql: String = {
+    val sels = selections.map { pair =>
+      val (sel, alias) = pair
+      if (alias.nonEmpty) s"${sel} AS `${alias}`" else sel
+    }
+    val selClause = (extraSelections ++ sels).mkString(", ")
+    s"SELECT ${selCondition} ${selClause} " +
+      s"${fromClause} ${preGroupbyClause} ${groupbyClause} ${postGroupbyClause}"
+  }
+
+  /**
+    * queries with the same merge key scan the same data, and could be calculated in one query,
+    * queries with distinct, post group-by clauses or selections without alias are not merged
+    */
+  def mergeKeyOpt: Option[(Seq[String], String, String, String)] = {
+    val mergeable = selCondition.trim.isEmpty && postGroupbyClause.trim.isEmpty &&
+      selections.forall(_._2.nonEmpty)
+    if (mergeable) Some((extraSelections, fromClause, preGroupbyClause, groupbyClause)) else None
+  }
+
+}
+
+/**
+  * spark sql transform step of profiling rule
+  */
+case class ProfilingTransformStep(name: String,
+                                  query: ProfilingQuery,
+                                  details: Map[String, Any]
+                                 ) extends TransformStep {
+
+  val rule: String = query.sql
+  val cache: Boolean = false
+
+  def execute(context: DQContext): Boolean = {
+    SparkSqlTransformStep(name, rule, details, cache).execute(context)
+  }
+
+}
+
+/**
+  * merged query of profiling rules, its failure doesn't fail the rules,
+  * they are calculated separately by their project steps then
+  */
+case class MergedProfilingStep(name: String, rule: String) extends TransformStep {
+
+  val details: Map[String, Any] = Map()
+  val cache: Boolean = true
+
+  def execute(context: DQContext): Boolean = {
+    if (!SparkSqlTransformStep(name, rule, details, cache).execute(context)) {
+      warn(s"merged profiling query ${name} fails, calculate the rules separately")
+    }
+    true
+  }
+
+}
+
+/**
+  * project the result of a profiling rule from the merged query,
+  * or calculate the rule by itself if the merged query fails
+  */
+case class ProfilingProjectStep(name: String,
+                                rule: String,
+                                mergedName: String,
+                                origin: ProfilingTransformStep
+                               ) extends TransformStep {
+
+  val details: Map[String, Any] = origin.details
+  val cache: Boolean = false
+
+  def execute(context: DQContext): Boolean = {
+    if (context.runTimeTableRegister.existsTable(mergedName)) {
+      SparkSqlTransformStep(name, rule, details, cache).execute(context)
+    } else origin.execute(context)
+  }
+
+}
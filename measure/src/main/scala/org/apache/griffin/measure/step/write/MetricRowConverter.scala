@@ -0,0 +1,78 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.step.write
+
+import java.text.SimpleDateFormat
+import java.util.Base64
+
+import org.apache.spark.sql.Row
+import org.apache.spark.sql.types._
+
+/**
+  * convert rows into metric maps by schema, the same as maps parsed from their json,
+  * fields of null value are omitted
+  */
+case class MetricRowConverter(schema: StructType) {
+
+  private lazy val timestampFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+  private lazy val dateFormat = new SimpleDateFormat("yyyy-MM-dd")
+
+  private val rowConverter = structConverter(schema)
+
+  def convert(row: Row): Map[String, Any] = rowConverter(row)
+
+  private def structConverter(structType: StructType): Row => Map[String, Any] = {
+    val fieldConverters = structType.fields.map(f => (f.name, valueConverter(f.dataType))).zipWithIndex
+    (row: Row) => {
+      fieldConverters.foldLeft(Map[String, Any]()) { (map, pair) =>
+        val ((fieldName, converter), i) = pair
+        if (row.isNullAt(i)) map else map + (fieldName -> converter(row.get(i)))
+      }
+    }
+  }
+
+  private def nullSafe(converter: Any => Any): Any => Any = {
+    (v: Any) => if (v == null) null else converter(v)
+  }
+
+  private def valueConverter(dataType: DataType): Any => Any = {
+    dataType match {
+      case ByteType | ShortType => (v: Any) => v.asInstanceOf[Number].intValue
+      case FloatType => (v: Any) => v.asInstanceOf[Float].toDouble
+      case _: DecimalType => (v: Any) => v.asInstanceOf[java.math.BigDecimal].doubleValue
+      case BinaryType => (v: Any) => Base64.getEncoder.encodeToString(v.asInstanceOf[Array[Byte]])
+      case TimestampType => (v: Any) => timestampFormat.format(v.asInstanceOf[java.sql.Timestamp])
+      case DateType => (v: Any) => dateFormat.format(v.asInstanceOf[java.sql.Date])
+      case ArrayType(elementType, _) =>
+        val converter = nullSafe(valueConverter(elementType))
+        (v: Any) => v.asInstanceOf[Seq[Any]].map(converter).toList
+      case MapType(_, valueType, _) =>
+        val converter = nullSafe(valueConverter(valueType))
+        (v: Any) => v.asInstanceOf[scala.collection.Map[Any, Any]].map { pair =>
+          (pair._1.toString, converter(pair._2))
+        }.toMap
+      case st: StructType =>
+        val converter = structConverter(st)
+        (v: Any) => converter(v.asInstanceOf[Row])
+      case _: NumericType | BooleanType | StringType => (v: Any) => v
+      case _ => (v: Any) => v.toString
+    }
+  }
+
+}
@@ -18,10 +18,12 @@ under the License.
 */
 package org.apache.griffin.measure.step.write
 
+import scala.collection.JavaConverters._
+import scala.util.Try
+
 import org.apache.griffin.measure.configuration.enums._
 import org.apache.griffin.measure.context.DQContext
 import org.apache.griffin.measure.step.builder.ConstantColumns
-import org.apache.griffin.measure.utils.JsonUtil
 import org.apache.griffin.measure.utils.ParamUtil._
 
 /**
@@ -36,14 +38,17 @@ case class MetricWriteStep(name: String,
   val emptyMetricMap = Map[Long, Map[String, Any]]()
   val emptyMap = Map[String, Any]()
 
+  import MetricWriteStep._
+
   def execute(context: DQContext): Boolean = {
     val timestamp = writeTimestampOpt.getOrElse(context.contextId.timestamp)
+    val writeMode = writeTimestampOpt.map(_ => SimpleMode).getOrElse(context.writeMode)
 
-    // get metric list from data frame
-    val metricMaps: Seq[Map[String, Any]] = getMetricMaps(context)
+    // get metric list from data frame, only the first one is needed for single metric
+    val headOnly = writeMode == SimpleMode && (flattenType == EntriesFlattenType || flattenType == MapFlattenType)
+    val metricMaps: Seq[Map[String, Any]] = getMetricMaps(context, headOnly)
 
     // get timestamp and normalize metric
-    val writeMode = writeTimestampOpt.map(_ => SimpleMode).getOrElse(context.writeMode)
     val timestampMetricMap: Map[Long, Map[String, Any]] = writeMode match {
 
       case SimpleMode =>
@@ -73,20 +78,27 @@ case class MetricWriteStep(name: String,
     true
   }
 
-  private def getMetricMaps(context: DQContext): Seq[Map[String, Any]] = {
+  /**
+    * rows are converted into maps directly by schema, at most max rows are collected,
+    * or fetched partition by partition with local iterator
+    */
+  private def getMetricMaps(context: DQContext, headOnly: Boolean): Seq[Map[String, Any]] = {
     try {
       val pdf = context.sqlContext.table(s"`${inputName}`")
-      val records = pdf.toJSON.collect()
-      if (records.size > 0) {
-        records.flatMap { rec =>
-          try {
-            val value = JsonUtil.toAnyMap(rec)
-            Some(value)
-          } catch {
-            case e: Throwable => None
-          }
-        }.toSeq
-      } else Nil
+      val conf = context.sqlContext.sparkContext.getConf
+      val maxRows = if (headOnly) 1 else math.max(conf.getInt(_MaxRows, DefaultMaxRows), 1)
+      val rows = if (!headOnly && conf.getBoolean(_LocalIterator, false)) {
+        pdf.toLocalIterator.asScala
+      } else {
+        pdf.limit(maxRows + 1).collect.iterator
+      }
+
+      val converter = MetricRowConverter(pdf.schema)
+      val metrics = rows.flatMap(row => Try(converter.convert(row)).toOption).take(maxRows + 1).toList
+      if (metrics.size > maxRows) {
+        if (!headOnly) warn(s"metric ${name} has more than ${maxRows} rows, the rest are ignored")
+        metrics.take(maxRows)
+      } else metrics
     } catch {
       case e: Throwable =>
         error(s"get metric ${name} fails", e)
@@ -109,3 +121,12 @@ case class MetricWriteStep(name: String,
   }
 
 }
+
+object MetricWriteStep {
+
+  val _MaxRows = "spark.griffin.metric.max.rows"
+  val _LocalIterator = "spark.griffin.metric.local.iterator"
+
+  val DefaultMaxRows = 100000
+
+}
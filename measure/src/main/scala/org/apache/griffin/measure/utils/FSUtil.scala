@@ -35,7 +35,8 @@ object FSUtil extends Loggable {
 
   def getFileSystem(path: String): FileSystem = {
     getUriOpt(path) match {
-      case Some(uri) =>
+      case Some(uri) => fsMap.synchronized {
+        // record sinks on executors get file systems in concurrent tasks
         fsMap.get(uri.getScheme) match {
           case Some(fs) => fs
           case _ =>
@@ -49,6 +50,7 @@ object FSUtil extends Loggable {
             fsMap += (uri.getScheme -> fs)
             fs
         }
+      }
       case _ => defaultFS
     }
   }
@@ -55,6 +55,18 @@ object HttpUtil {
     }
   }
 
+  /**
+    * post data and keep the response, connections are kept alive and reused by the jdk
+    * @param timeout    connection and read timeout in milliseconds
+    */
+  def postDataWithResponse(url: String,
+                           headers: Map[String, Object],
+                           data: String,
+                           timeout: Int): HttpResponse[String] = {
+    Http(url).headers(convertObjMap2StrMap(headers))
+      .timeout(timeout, timeout).postData(data).asString
+  }
+
   private def convertObjMap2StrMap(map: Map[String, Object]): Map[String, String] = {
     map.map(pair => pair._1 -> pair._2.toString)
   }
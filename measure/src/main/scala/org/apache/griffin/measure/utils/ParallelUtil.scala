@@ -0,0 +1,60 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.utils
+
+import java.util.concurrent.{Executors, ThreadFactory}
+import java.util.concurrent.atomic.AtomicInteger
+
+import scala.concurrent.{Await, ExecutionContext, Future}
+import scala.concurrent.duration.Duration
+
+import org.apache.griffin.measure.Loggable
+
+object ParallelUtil extends Loggable {
+
+  /**
+    * apply func to items concurrently
+    * @param items        items to apply func
+    * @param parallelism  max number of concurrent threads
+    * @param threadName   prefix of thread names
+    * @return   results in the order of items, the first failure is thrown
+    */
+  def parMap[A, B](items: Seq[A], parallelism: Int, threadName: String)(func: A => B): Seq[B] = {
+    if (parallelism <= 1 || items.size <= 1) items.map(func)
+    else {
+      val threadIndex = new AtomicInteger(0)
+      val executor = Executors.newFixedThreadPool(math.min(parallelism, items.size),
+        new ThreadFactory {
+          def newThread(r: Runnable): Thread = {
+            val thread = new Thread(r, s"${threadName}-${threadIndex.incrementAndGet}")
+            thread.setDaemon(true)
+            thread
+          }
+        })
+      implicit val ec = ExecutionContext.fromExecutorService(executor)
+      try {
+        val futures = items.map(item => Future(func(item)))
+        futures.map(f => Await.result(f, Duration.Inf))
+      } finally {
+        executor.shutdown()
+      }
+    }
+  }
+
+}
@@ -0,0 +1,65 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.context
+
+import com.holdenkarau.spark.testing.DataFrameSuiteBase
+import org.scalatest._
+
+import org.apache.griffin.measure.configuration.enums.AccuracyType
+import org.apache.griffin.measure.step.builder.dsl.expr.{Expr, LiteralStringExpr}
+import org.apache.griffin.measure.step.builder.udf.GriffinUDFAgent
+
+class DQContextCacheTest extends FlatSpec with Matchers with DataFrameSuiteBase {
+
+  "dq context cache" should "list function names once until udfs registered" in {
+    val names = DQContextCache.getFunctionNames(spark)
+    DQContextCache.getFunctionNames(spark) should be theSameInstanceAs (names)
+
+    spark.udf.register("cache_test_func", (s: String) => s)
+    DQContextCache.getFunctionNames(spark) should not contain ("cache_test_func")
+
+    GriffinUDFAgent.register(sqlContext)
+    DQContextCache.getFunctionNames(spark) should contain allOf ("cache_test_func", "index_of")
+  }
+
+  it should "cache compiled rule expression only if compiled" in {
+    var compiled = 0
+    def getRuleExpr(rule: String)(exprOpt: Option[Expr]): Option[Expr] = {
+      DQContextCache.getRuleExpr(Seq("source"), Nil, rule, AccuracyType) {
+        compiled += 1
+        exprOpt
+      }
+    }
+
+    getRuleExpr("bad rule")(None) should be (None)
+    getRuleExpr("bad rule")(None) should be (None)
+    compiled should be (2)
+
+    val expr = LiteralStringExpr("'rule'")
+    getRuleExpr("rule")(Some(expr)) should be (Some(expr))
+    getRuleExpr("rule")(None) should be (Some(expr))
+    compiled should be (3)
+
+    // compiled again with new function names
+    DQContextCache.refreshFunctions(spark)
+    getRuleExpr("rule")(None) should be (None)
+    compiled should be (4)
+  }
+
+}
@@ -0,0 +1,96 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.context.streaming.metric
+
+import java.io.File
+import java.nio.file.Files
+
+import com.holdenkarau.spark.testing.DataFrameSuiteBase
+import org.apache.spark.sql.{DataFrame, Row}
+import org.apache.spark.sql.types._
+import org.scalatest._
+
+import org.apache.griffin.measure.step.builder.ConstantColumns
+
+class AccuracyStateStoreTest extends FlatSpec with Matchers with DataFrameSuiteBase {
+
+  private def newStore(): AccuracyStateStore = {
+    AccuracyStateStore(sqlContext, Files.createTempDirectory("griffin-state").toString)
+  }
+
+  private def metrics(rows: (Long, Long, Long)*): DataFrame = {
+    val schema = StructType(Array(
+      StructField(ConstantColumns.tmst, LongType),
+      StructField("miss", LongType),
+      StructField("total", LongType)
+    ))
+    val rowRdd = sqlContext.sparkContext.parallelize(rows.map(r => Row(r._1, r._2, r._3)))
+    sqlContext.createDataFrame(rowRdd, schema)
+  }
+
+  private def collect(df: DataFrame): Set[(Long, Long, Long)] = {
+    df.select(ConstantColumns.tmst, "miss", "total").collect
+      .map(r => (r.getLong(0), r.getLong(1), r.getLong(2))).toSet
+  }
+
+  private def dataFiles(versionPath: File): Seq[String] = {
+    versionPath.list.toSeq.filter(_.startsWith("part-"))
+  }
+
+  "accuracy state store" should "emit only the tmsts whose miss decreases" in {
+    val store = newStore()
+
+    collect(store.update(metrics((1, 5, 10), (2, 3, 10)), 100L)) should be (
+      Set((1, 5, 10), (2, 3, 10)))
+    collect(store.update(metrics((1, 2, 10), (2, 4, 10), (3, 1, 5)), 200L)) should be (
+      Set((1, 2, 10), (3, 1, 5)))
+    // total is kept from the first metric, unchanged miss is not emitted
+    collect(store.update(metrics((1, 2, 12)), 300L)) should be (Set())
+
+    collect(store.readState().get) should be (Set((1, 2, 10), (2, 3, 10), (3, 1, 5)))
+  }
+
+  it should "write each delta in one file" in {
+    val store = newStore()
+    store.update(metrics((1L to 50L).map(t => (t, 1L, 2L)): _*), 100L)
+
+    dataFiles(new File(store.path, s"${store.DeltaDir}/100")).size should be (1)
+  }
+
+  it should "drop tmsts older than overtime on compaction" in {
+    val store = newStore()
+    StateStore.refresh(3L)
+    try {
+      (1 to store.MaxDeltaCount).foreach { i =>
+        store.update(metrics((i.toLong, 1L, 2L)), i.toLong)
+      }
+      // deltas reach max count, compacted before the next update
+      store.update(metrics((21L, 1L, 2L)), 21L)
+
+      val snapshots = new File(store.path, store.SnapshotDir).list.toSeq.filterNot(_.startsWith("."))
+      snapshots should be (Seq("20"))
+      dataFiles(new File(store.path, s"${store.SnapshotDir}/20")).size should be (1)
+      new File(store.path, store.DeltaDir).list.toSeq.filterNot(_.startsWith(".")) should be (Seq("21"))
+      collect(store.readState().get).map(_._1) should be ((3L to 21L).toSet)
+    } finally {
+      StateStore.refresh(0L)
+    }
+  }
+
+}
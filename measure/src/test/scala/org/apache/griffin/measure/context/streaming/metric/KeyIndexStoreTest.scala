@@ -0,0 +1,150 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.context.streaming.metric
+
+import java.nio.file.Files
+
+import scala.util.Random
+
+import com.holdenkarau.spark.testing.DataFrameSuiteBase
+import org.apache.spark.sql.{DataFrame, Row}
+import org.apache.spark.sql.functions._
+import org.apache.spark.sql.types._
+import org.scalatest._
+
+import org.apache.griffin.measure.step.builder.ConstantColumns
+
+class KeyIndexStoreTest extends FlatSpec with Matchers with DataFrameSuiteBase {
+
+  private val tmst = s"`${ConstantColumns.tmst}`"
+  private val keyExpr = "xxhash64(coalesce(CAST(`item` AS STRING), ''))"
+
+  private def items(rows: (Long, String)*): DataFrame = {
+    val schema = StructType(Array(
+      StructField(ConstantColumns.tmst, LongType),
+      StructField("item", StringType)
+    ))
+    val rowRdd = sqlContext.sparkContext.parallelize(rows.map(r => Row(r._1, r._2)))
+    sqlContext.createDataFrame(rowRdd, schema)
+  }
+
+  // item, distinct, dup and accumulated dup, as the final duplicate count of distinctness
+  private def finalDupCounts(groupDf: DataFrame): Set[(String, Boolean, Long, Long)] = {
+    groupDf.collect.map { r =>
+      val (item, dup, dist, moreDup) = (r.getString(0), r.getLong(1), r.getBoolean(2), r.getLong(3))
+      if (dist) (item, dist, dup, dup) else (item, dist, dup + 1, dup + moreDup)
+    }.toSet
+  }
+
+  private def selfGroup(newDf: DataFrame): Unit = {
+    newDf.createOrReplaceTempView("new")
+    sqlContext.sql("SELECT `item`, (COUNT(*) - 1) AS `dup` FROM `new` GROUP BY `item`")
+      .createOrReplaceTempView("self")
+  }
+
+  private def byJoin(newDf: DataFrame, targetDf: DataFrame, beginTmst: Long): Set[(String, Boolean, Long, Long)] = {
+    selfGroup(newDf)
+    targetDf.where(col(ConstantColumns.tmst) <= beginTmst).createOrReplaceTempView("older")
+    val groupDf = sqlContext.sql(
+      """
+        |SELECT `item`, `dup`, `dist`, COUNT(*) AS `more_dup` FROM (
+        |SELECT `self`.`item`, `self`.`dup`, (`older`.`item` IS NULL) AS `dist`
+        |FROM `older` RIGHT JOIN `self` ON coalesce(`self`.`item`, '') = coalesce(`older`.`item`, '')
+        |) t GROUP BY `item`, `dup`, `dist`
+      """.stripMargin)
+    finalDupCounts(groupDf)
+  }
+
+  private def byKeyIndex(newDf: DataFrame, store: KeyIndexStore, beginTmst: Long,
+                         updateTime: Long): Set[(String, Boolean, Long, Long)] = {
+    selfGroup(newDf)
+    val keyCountDf = sqlContext.sql(
+      s"SELECT ${tmst}, ${keyExpr} AS `${KeyIndexStore._Key}`, COUNT(*) AS `${KeyIndexStore._Count}` " +
+        s"FROM `new` GROUP BY ${tmst}, ${keyExpr}")
+    val olderDf = store.update(keyCountDf, beginTmst, updateTime).getOrElse {
+      keyCountDf.where(lit(false)).select(KeyIndexStore._Key, KeyIndexStore._Count)
+    }
+    olderDf.createOrReplaceTempView("older_key")
+    val groupDf = sqlContext.sql(
+      s"""
+         |SELECT `self`.`item`, `self`.`dup`, (`older_key`.`${KeyIndexStore._Key}` IS NULL) AS `dist`,
+         |coalesce(`older_key`.`${KeyIndexStore._Count}`, 1) AS `more_dup`
+         |FROM (SELECT *, ${keyExpr} AS `${KeyIndexStore._Key}` FROM `self`) `self` LEFT JOIN `older_key`
+         |ON `self`.`${KeyIndexStore._Key}` = `older_key`.`${KeyIndexStore._Key}`
+       """.stripMargin)
+    finalDupCounts(groupDf)
+  }
+
+  "key index store" should "count duplicates of new data in older data as joining with older data" in {
+    val store = KeyIndexStore(sqlContext, Files.createTempDirectory("griffin-state").toString)
+    // begin tmst and data of each round
+    val rounds = Seq(
+      (0L, items((1, "a"), (1, "a"), (2, "b"))),
+      (2L, items((3, "a"), (3, "c"), (4, "c"), (4, "e"))),
+      (4L, items((5, "b"), (5, "d"), (6, "a"), (6, "d"), (6, "c")))
+    )
+
+    val results = rounds.zipWithIndex.map { case ((beginTmst, newDf), i) =>
+      val targetDf = rounds.take(i).map(_._2).foldLeft(newDf.where(lit(false)))(_ union _)
+      val expected = byJoin(newDf, targetDf, beginTmst)
+      val actual = byKeyIndex(newDf, store, beginTmst, (i + 1) * 100L)
+      actual should be (expected)
+      actual
+    }
+
+    results.map(_.count(_._2)) should be (Seq(2, 2, 1))
+    results(1) should be (Set(("a", false, 1L, 2L), ("c", true, 1L, 1L), ("e", true, 0L, 0L)))
+    results(2) should be (Set(("a", false, 1L, 3L), ("b", false, 1L, 1L), ("c", false, 1L, 2L), ("d", true, 1L, 1L)))
+  }
+
+  "bucket number" should "grow with the key count" in {
+    KeyIndexStore.bucketNum(0L, 100L) should be (1)
+    KeyIndexStore.bucketNum(100L, 100L) should be (1)
+    KeyIndexStore.bucketNum(101L, 100L) should be (2)
+    KeyIndexStore.bucketNum(10000L, 100L) should be (128)
+    KeyIndexStore.bucketNum(Long.MaxValue / 2, 1L) should be (KeyIndexStore.MaxBucketNum)
+  }
+
+  "key index store" should "read only the buckets of keys found in bloom filters" in {
+    val store = KeyIndexStore(sqlContext, Files.createTempDirectory("griffin-state").toString, 100L)
+    def keyCounts(keys: Seq[Long], tmst: Long): DataFrame = {
+      val schema = StructType(Array(
+        StructField(ConstantColumns.tmst, LongType),
+        StructField(KeyIndexStore._Key, LongType),
+        StructField(KeyIndexStore._Count, LongType)
+      ))
+      val rowRdd = sqlContext.sparkContext.parallelize(keys.map(k => Row(tmst, k, 1L)))
+      sqlContext.createDataFrame(rowRdd, schema)
+    }
+    val random = new Random(1)
+    val olderKeys = Seq.fill(10000)(random.nextLong)
+    store.update(keyCounts(olderKeys, 1L), 0L, 100L) should be (None)
+
+    // a batch of 1000 keys, 10 of which are in older data of 128 buckets
+    val foundKeys = olderKeys.take(10)
+    val newDf = keyCounts(Seq.fill(990)(random.nextLong) ++ foundKeys, 2L)
+    val Seq((_, Some(buckets))) = store.probedBuckets(newDf)
+    buckets.size should be < 32
+    foundKeys.map(KeyIndexStore.bucketOf(_, 128)).toSet.subsetOf(buckets.toSet) should be (true)
+
+    val olderDf = store.update(newDf, 1L, 200L).get
+    olderDf.collect.map(r => (r.getLong(0), r.getLong(1))).toSet should be (foundKeys.map((_, 1L)).toSet)
+  }
+
+}
@@ -0,0 +1,74 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.datasource
+
+import com.holdenkarau.spark.testing.DataFrameSuiteBase
+import org.apache.spark.sql.{DataFrame, SparkSession}
+import org.scalatest._
+
+import org.apache.griffin.measure.configuration.dqdefinition.{DataConnectorParam, DataSourceParam}
+import org.apache.griffin.measure.configuration.enums.BatchProcessType
+import org.apache.griffin.measure.context.{ContextId, DQContext, TimeRange}
+import org.apache.griffin.measure.datasource.connector.DataConnector
+
+// connector of one row with the value, returned after the delay
+case class DelayedDataConnector(sparkSession: SparkSession, value: String, delay: Long) extends DataConnector {
+  val dcParam: DataConnectorParam = DataConnectorParam("custom", "", "", Map(), Nil)
+  val timestampStorage: TimestampStorage = TimestampStorage()
+  def init(): Unit = {}
+  def data(ms: Long): (Option[DataFrame], TimeRange) = {
+    Thread.sleep(delay)
+    val df = sparkSession.createDataFrame(Seq(Tuple1(value))).toDF("value")
+    (Some(df), TimeRange(ms))
+  }
+}
+
+class DataSourceTest extends FlatSpec with Matchers with DataFrameSuiteBase {
+
+  private def dataSource(name: String, values: (String, Long)*): DataSource = {
+    val connectors = values.map { pair =>
+      val (value, delay) = pair
+      DelayedDataConnector(spark, value, delay)
+    }
+    DataSource(name, DataSourceParam(name, Nil), connectors, None)
+  }
+
+  private def values(df: DataFrame): Seq[String] = df.collect.map(_.getString(0)).toSeq
+
+  "data source" should "union data of connectors in the order of connectors" in {
+    val context = DQContext(ContextId(1L), "test", Nil, Nil, BatchProcessType)(spark)
+    DataSource.parallelism(context) should be > 1
+
+    val ds = dataSource("source", ("a", 300L), ("b", 0L), ("c", 100L))
+    val (dfOpt, timeRange) = ds.readData(context)
+    values(dfOpt.get) should be (Seq("a", "b", "c"))
+    timeRange.tmsts should be (Set(1L))
+  }
+
+  "dq context" should "register data sources in the order of data sources" in {
+    // both data sources register the same table, the one registered last is kept,
+    // which would be the slow one if registered in the order of loading finished
+    val dataSources = Seq(dataSource("source", ("slow", 300L)), dataSource("source", ("fast", 0L)))
+    val context = DQContext(ContextId(2L), "test", dataSources, Nil, BatchProcessType)(spark)
+    DataSource.parallelism(context) should be > 1
+
+    values(spark.table("source")) should be (Seq("fast"))
+  }
+
+}
@@ -0,0 +1,140 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.datasource.cache
+
+import java.nio.file.Files
+import java.util.concurrent.TimeUnit
+
+import scala.collection.mutable.{Map => MutableMap}
+
+import com.holdenkarau.spark.testing.DataFrameSuiteBase
+import org.apache.spark.sql.{DataFrame, Row}
+import org.apache.spark.sql.types._
+import org.scalatest._
+
+import org.apache.griffin.measure.context.streaming.checkpoint.lock.CheckpointLock
+import org.apache.griffin.measure.context.streaming.checkpoint.offset.{OffsetCheckpoint, OffsetCheckpointClient}
+import org.apache.griffin.measure.datasource.TimestampStorage
+import org.apache.griffin.measure.step.builder.ConstantColumns
+
+class StreamingCacheClientTest extends FlatSpec with Matchers with DataFrameSuiteBase {
+
+  class InMemoryOffsetCheckpoint extends OffsetCheckpoint {
+    val kvs = MutableMap[String, String]()
+    var reads = 0
+
+    def init(): Unit = {}
+    def available(): Boolean = true
+    def close(): Unit = {}
+
+    def cache(m: Map[String, String]): Unit = kvs ++= m
+    def read(keys: Iterable[String]): Map[String, String] = {
+      reads += 1
+      keys.flatMap(k => kvs.get(k).map((k, _))).toMap
+    }
+    def delete(keys: Iterable[String]): Unit = kvs --= keys
+    def clear(): Unit = kvs.clear
+
+    def listKeys(path: String): List[String] = Nil
+
+    def genLock(s: String): CheckpointLock = new CheckpointLock {
+      def lock(outtime: Long, unit: TimeUnit): Boolean = true
+      def unlock(): Unit = {}
+    }
+  }
+
+  private def withCacheClient(test: (StreamingCacheClient, InMemoryOffsetCheckpoint) => Unit
+                             ): Unit = {
+    val checkpoint = new InMemoryOffsetCheckpoint
+    val origin = OffsetCheckpointClient.offsetCheckpoints
+    OffsetCheckpointClient.offsetCheckpoints = checkpoint :: Nil
+    try {
+      val dir = Files.createTempDirectory("griffin-cache").toString
+      val param = Map[String, Any]("file.path" -> dir, "info.path" -> "src")
+      test(StreamingCacheParquetClient(sqlContext, param, "src", 0, TimestampStorage()), checkpoint)
+    } finally {
+      OffsetCheckpointClient.offsetCheckpoints = origin
+    }
+  }
+
+  private def createDataFrame(tmsts: Seq[Long]): DataFrame = {
+    val schema = StructType(Array(
+      StructField("id", IntegerType),
+      StructField(ConstantColumns.tmst, LongType)
+    ))
+    val rows = tmsts.zipWithIndex.map { case (t, i) => Row(i, t) }
+    sqlContext.createDataFrame(sqlContext.sparkContext.parallelize(rows), schema)
+  }
+
+  private def countKey(client: StreamingCacheClient): String = client.selfPartitionCount
+
+  "partition counts" should "be formatted and parsed as a single value" in {
+    val counts = Map(2L -> 5L, 1L -> 3L)
+    StreamingOffsetCacheable.formatPartitionCounts(counts) should be ("1:3,2:5")
+    StreamingOffsetCacheable.parsePartitionCounts("1:3,2:5") should be (counts)
+    StreamingOffsetCacheable.parsePartitionCounts("") should be (Map[Long, Long]())
+    StreamingOffsetCacheable.parsePartitionCounts("1:3,x:1,2") should be (Map(1L -> 3L))
+  }
+
+  "streaming cache client" should "save partition counts of all tmsts in one entry" in {
+    withCacheClient { (client, checkpoint) =>
+      client.saveData(Some(createDataFrame(Seq(1L, 1L, 2L))), 2L)
+      client.saveData(Some(createDataFrame(Seq(2L, 3L))), 3L)
+
+      StreamingOffsetCacheable.parsePartitionCounts(checkpoint.kvs(countKey(client))) should be (
+        Map(1L -> 2L, 2L -> 2L, 3L -> 1L))
+    }
+  }
+
+  it should "decide non-empty new cache data by partition counts in one read" in {
+    withCacheClient { (client, checkpoint) =>
+      client.saveData(Some(createDataFrame(Seq(1L, 2L, 3L))), 3L)
+
+      checkpoint.reads = 0
+      val dfOpt = client.readNewDataFrameOpt(t => t >= 2L)
+      checkpoint.reads should be (1)
+      dfOpt.map(_.count) should be (Some(2L))
+    }
+  }
+
+  it should "read no data if the partitions in range are empty" in {
+    withCacheClient { (client, checkpoint) =>
+      client.readNewDataFrameOpt(_ => true) should be (None)
+
+      client.saveData(Some(createDataFrame(Seq(1L, 2L))), 2L)
+      client.readNewDataFrameOpt(t => t > 2L) should be (None)
+
+      checkpoint.kvs(countKey(client)) = "1:0,2:0"
+      client.readNewDataFrameOpt(_ => true) should be (None)
+    }
+  }
+
+  it should "probe the data of partitions whose counts are missing" in {
+    withCacheClient { (client, checkpoint) =>
+      client.saveData(Some(createDataFrame(Seq(1L, 2L))), 2L)
+
+      checkpoint.kvs(countKey(client)) = "1:1"
+      client.readNewDataFrameOpt(_ => true).map(_.count) should be (Some(2L))
+
+      checkpoint.kvs -= countKey(client)
+      client.readNewDataFrameOpt(_ => true).map(_.count) should be (Some(2L))
+    }
+  }
+
+}
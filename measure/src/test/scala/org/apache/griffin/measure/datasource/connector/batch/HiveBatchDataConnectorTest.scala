@@ -0,0 +1,48 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.datasource.connector.batch
+
+import org.scalatest._
+
+import org.apache.griffin.measure.configuration.dqdefinition.DataConnectorParam
+import org.apache.griffin.measure.datasource.TimestampStorage
+
+class HiveBatchDataConnectorTest extends FlatSpec with Matchers {
+
+  private def connector(config: Map[String, Any]): HiveBatchDataConnector = {
+    val param = DataConnectorParam("HIVE", null, null, config, null)
+    HiveBatchDataConnector(null, param, TimestampStorage())
+  }
+
+  "hive batch data connector" should "read all partitions in one scan" in {
+    val hive = connector(Map(
+      "table.name" -> "person",
+      "where" -> "dt=20180101 AND hour=01, dt=20180101 AND hour=02"))
+    hive.dataSql shouldBe "SELECT * FROM default.person " +
+      "WHERE (dt=20180101 AND hour=01) OR (dt=20180101 AND hour=02)"
+  }
+
+  it should "read configured columns only" in {
+    val hive = connector(Map(
+      "database" -> "db",
+      "table.name" -> "person",
+      "columns" -> List("name", "age")))
+    hive.dataSql shouldBe "SELECT `name`, `age` FROM db.person"
+  }
+}
@@ -0,0 +1,145 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.sink
+
+import java.net.InetSocketAddress
+import java.util.concurrent.ConcurrentLinkedQueue
+
+import scala.collection.JavaConverters._
+import scala.concurrent.{Await, Future}
+import scala.concurrent.duration._
+import scala.io.Source
+
+import com.sun.net.httpserver.{HttpExchange, HttpHandler, HttpServer}
+import org.scalatest._
+
+class ElasticSearchBulkWriterTest extends FlatSpec with Matchers {
+
+  private val Ok = (200, """{"errors":false}""")
+
+  private def conf(size: Int = 2, interval: Long = 200L, retry: Int = 3): BulkConf =
+    BulkConf(size, interval, 100, retry, 10L, 5000, 5000L)
+
+  /**
+    * run test against a local bulk api, which answers requests with the responses in order,
+    * then with success
+    * @param test   test of the api url and the documents of each received request
+    */
+  private def withBulkApi(responses: (Int, String)*)(test: (String, () => Seq[Seq[String]]) => Unit
+                                                     ): Unit = {
+    val pending = new ConcurrentLinkedQueue[(Int, String)](responses.asJava)
+    val requests = new ConcurrentLinkedQueue[Seq[String]]()
+    val server = HttpServer.create(new InetSocketAddress("localhost", 0), 0)
+    server.createContext("/", new HttpHandler {
+      def handle(exchange: HttpExchange): Unit = {
+        val body = Source.fromInputStream(exchange.getRequestBody, "utf-8").mkString
+        requests.add(body.split("\n").filter(l => l.nonEmpty && l != """{"index":{}}""").toSeq)
+        val (code, resp) = Option(pending.poll).getOrElse(Ok)
+        val bytes = resp.getBytes("utf-8")
+        exchange.sendResponseHeaders(code, bytes.length)
+        exchange.getResponseBody.write(bytes)
+        exchange.close()
+      }
+    })
+    server.start()
+    try {
+      test(s"http://localhost:${server.getAddress.getPort}/_bulk", () => requests.asScala.toList)
+    } finally {
+      server.stop(0)
+    }
+  }
+
+  private def results(futures: Seq[Future[Boolean]]): Seq[Boolean] = {
+    futures.map(f => Await.result(f, 10.seconds))
+  }
+
+  "bulk writer" should "coalesce documents into bulk requests by size" in {
+    withBulkApi() { (api, requests) =>
+      val writer = new ElasticSearchBulkWriter(api, conf(size = 2))
+      val futures = (1 to 5).map(i => writer.add(s"""{"value":${i}}"""))
+
+      results(futures) should be (Seq.fill(5)(true))
+      requests().forall(_.size <= 2) should be (true)
+      requests().flatten.sorted should be ((1 to 5).map(i => s"""{"value":${i}}"""))
+      writer.getMetrics("succeeded") should be (5L)
+      writer.close()
+    }
+  }
+
+  it should "retry the failed requests and the retryable documents only" in {
+    val itemErrors = """{"errors":true,"items":[{"index":{"status":201}},{"index":{"status":429}}]}"""
+    withBulkApi((503, ""), (200, itemErrors)) { (api, requests) =>
+      val writer = new ElasticSearchBulkWriter(api, conf(size = 2, interval = 1000L))
+      val futures = Seq(writer.add("""{"value":1}"""), writer.add("""{"value":2}"""))
+
+      results(futures) should be (Seq(true, true))
+      requests() should be (Seq(
+        Seq("""{"value":1}""", """{"value":2}"""),
+        Seq("""{"value":1}""", """{"value":2}"""),
+        Seq("""{"value":2}""")))
+      writer.getMetrics("retried") should be (3L)
+      writer.close()
+    }
+  }
+
+  it should "drop documents failed with non-retryable status or after max retries" in {
+    val itemErrors = """{"errors":true,"items":[{"index":{"status":400}}]}"""
+    withBulkApi((400, "bad request"), (200, itemErrors), (503, ""), (503, "")) { (api, requests) =>
+      val writer = new ElasticSearchBulkWriter(api, conf(size = 1, retry = 1))
+
+      results(writer.add("""{"value":1}""") :: Nil) should be (Seq(false))
+      results(writer.add("""{"value":2}""") :: Nil) should be (Seq(false))
+      results(writer.add("""{"value":3}""") :: Nil) should be (Seq(false))
+      requests().size should be (4)
+      writer.getMetrics("dropped") should be (3L)
+      writer.close()
+    }
+  }
+
+  it should "flush the waiting documents on close" in {
+    withBulkApi() { (api, requests) =>
+      val writer = new ElasticSearchBulkWriter(api, conf(size = 100, interval = 60000L))
+      val futures = (1 to 3).map(i => writer.add(s"""{"value":${i}}"""))
+
+      writer.close()
+
+      futures.forall(_.isCompleted) should be (true)
+      results(futures) should be (Seq.fill(3)(true))
+      requests().flatten.size should be (3)
+      results(writer.add("""{"value":4}""") :: Nil) should be (Seq(false))
+    }
+  }
+
+  it should "report final metrics of all writers on close all" in {
+    withBulkApi() { (api, requests) =>
+      val writer = ElasticSearchBulkWriter.getWriter(api, conf(size = 100, interval = 60000L))
+      val futures = (1 to 3).map(i => writer.add(s"""{"value":${i}}"""))
+
+      val metrics = ElasticSearchBulkWriter.closeAll()
+
+      results(futures) should be (Seq.fill(3)(true))
+      metrics.keySet should be (Set(api))
+      metrics(api)("succeeded") should be (3L)
+      metrics(api)("in.flight") should be (0L)
+      ElasticSearchBulkWriter.metricsStr(metrics) should include (s"${api} -> (")
+      ElasticSearchBulkWriter.getMetrics should be (empty)
+    }
+  }
+
+}
@@ -0,0 +1,113 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.sink
+
+import java.io.{File, FileInputStream, InputStream}
+import java.nio.file.Files
+import java.util.zip.GZIPInputStream
+
+import scala.io.Source
+
+import com.holdenkarau.spark.testing.DataFrameSuiteBase
+import org.scalatest._
+
+import org.apache.griffin.measure.utils.JsonUtil
+
+class HdfsSinkTest extends FlatSpec with Matchers with DataFrameSuiteBase {
+
+  private val records = (1 to 25).map(i => s"record_${i}")
+
+  private def newSink(config: (String, Any)*): (HdfsSink, File) = {
+    val dir = Files.createTempDirectory("griffin-hdfs").toString
+    val sink = HdfsSink(Map[String, Any]("path" -> dir) ++ config, "metric", 123L)
+    (sink, new File(dir, "metric/123/records"))
+  }
+
+  private def partFiles(dir: File): Seq[File] = {
+    Option(dir.listFiles).map(_.toSeq).getOrElse(Nil).filter(_.getName.startsWith("part-")).sortBy(_.getName)
+  }
+
+  private def lines(file: File): Seq[String] = {
+    val in: InputStream = new FileInputStream(file)
+    val source = Source.fromInputStream(if (file.getName.endsWith(".gz")) new GZIPInputStream(in) else in, "utf-8")
+    try source.getLines.toList finally source.close
+  }
+
+  private def manifest(dir: File): (Seq[(String, Long)], Long) = {
+    val json = JsonUtil.toAnyMap(lines(new File(dir, HdfsSink.ManifestFile)).mkString)
+    val files = json("files").asInstanceOf[Seq[Map[String, Any]]].map { file =>
+      (file("file").toString, file("lines").toString.toLong)
+    }
+    (files, json("lines").toString.toLong)
+  }
+
+  "hdfs sink" should "roll part files by max lines per file and commit them in manifest" in {
+    val (sink, dir) = newSink("max.lines.per.file" -> 5)
+    sink.sinkRecords(sc.parallelize(records, 2), "records")
+
+    val files = partFiles(dir)
+    files.map(lines).foreach(_.size should be <= 5)
+    files.flatMap(lines) should be (records)
+
+    val (committed, total) = manifest(dir)
+    committed.map(_._1).sorted should be (files.map(_.getName))
+    committed.foreach(pf => pf._2 should be (lines(new File(dir, pf._1)).size))
+    total should be (records.size.toLong)
+  }
+
+  it should "write no more than max persist lines" in {
+    val (sink, dir) = newSink("max.persist.lines" -> 7, "max.lines.per.file" -> 5)
+    sink.sinkRecords(sc.parallelize(records, 2), "records")
+
+    partFiles(dir).flatMap(lines) should be (records.take(7))
+    manifest(dir)._2 should be (7L)
+  }
+
+  it should "write compressed part files with extension of the codec" in {
+    val (sink, dir) = newSink("compression" -> "gzip")
+    sink.sinkRecords(sc.parallelize(records, 2), "records")
+
+    val files = partFiles(dir)
+    files should not be empty
+    files.foreach(_.getName should endWith (".gz"))
+    files.flatMap(lines) should be (records)
+  }
+
+  it should "delete part files not committed" in {
+    val (sink, dir) = newSink()
+    val path = dir.getPath
+    val committed = HdfsSink.writePartition(path, 0, records.iterator, 10, "").toSeq
+    // left by a failed attempt of the same partition
+    HdfsSink.writeRecords(new File(dir, "part-00000-00000-1").getPath, records.iterator, "")
+
+    sink.commitManifest(path, committed)
+
+    partFiles(dir).map(_.getName) should be (committed.map(_._1))
+    manifest(dir) should be ((committed, records.size.toLong))
+  }
+
+  it should "write nothing for empty records" in {
+    val (sink, dir) = newSink()
+    sink.sinkRecords(sc.emptyRDD[String], "records")
+
+    partFiles(dir) should be (empty)
+    new File(dir, HdfsSink.ManifestFile).exists should be (false)
+  }
+
+}
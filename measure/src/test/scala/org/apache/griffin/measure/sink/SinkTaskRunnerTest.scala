@@ -0,0 +1,171 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.sink
+
+import java.io.File
+import java.nio.file.Files
+import java.util.concurrent.{CountDownLatch, TimeUnit}
+import java.util.concurrent.atomic.AtomicInteger
+
+import scala.concurrent.Future
+
+import org.scalatest._
+
+class SinkTaskRunnerTest extends FlatSpec with Matchers with BeforeAndAfter {
+
+  private var latch = new CountDownLatch(1)
+
+  after {
+    latch.countDown()
+  }
+
+  private def init(overflow: String, spillPath: String = "", backoff: String = "10ms"): Unit = {
+    latch = new CountDownLatch(1)
+    SinkTaskRunner.init(Map[String, Any](
+      (SinkTaskRunner._Threads -> "1"),
+      (SinkTaskRunner._QueueSize -> "1"),
+      (SinkTaskRunner._Overflow -> overflow),
+      (SinkTaskRunner._SpillPath -> spillPath),
+      (SinkTaskRunner._RetryBackoff -> backoff),
+      (SinkTaskRunner._Timeout -> "10s")
+    ))
+  }
+
+  private def metric(name: String): Long = SinkTaskRunner.getMetrics(name)
+
+  private def eventually(cond: => Boolean): Boolean = {
+    val deadline = System.currentTimeMillis + 5000
+    while (!cond && System.currentTimeMillis < deadline) Thread.sleep(10)
+    cond
+  }
+
+  // task waiting for the latch, to keep the only thread of the executor busy
+  private def blockingTask(runs: AtomicInteger): () => (Long, Future[_]) = () => {
+    runs.incrementAndGet
+    latch.await(10, TimeUnit.SECONDS)
+    (0L, Future.successful(true))
+  }
+
+  private def countingTask(runs: AtomicInteger, failures: Int = 0): () => (Long, Future[_]) = () => {
+    val run = runs.incrementAndGet
+    (0L, if (run <= failures) Future.failed(new Exception(s"fail ${run}")) else Future.successful(true))
+  }
+
+  "sink task runner" should "retry failed tasks with backoff" in {
+    init(SinkTaskRunner.DropOldest)
+    val (retried, succeeded) = (metric("retried"), metric("succeeded"))
+    val runs = new AtomicInteger(0)
+
+    SinkTaskRunner.addNonBlockTask(countingTask(runs, 2), 3)
+
+    eventually(metric("succeeded") == succeeded + 1) should be (true)
+    runs.get should be (3)
+    metric("retried") should be (retried + 2)
+  }
+
+  it should "fail tasks when retries end" in {
+    init(SinkTaskRunner.DropOldest)
+    val failed = metric("failed")
+    val runs = new AtomicInteger(0)
+
+    SinkTaskRunner.addNonBlockTask(countingTask(runs, 10), 1)
+
+    eventually(metric("failed") == failed + 1) should be (true)
+    runs.get should be (2)
+  }
+
+  it should "drop the oldest queued tasks on overflow" in {
+    init(SinkTaskRunner.DropOldest)
+    val dropped = metric("dropped")
+    val (first, second, third, last) =
+      (new AtomicInteger(0), new AtomicInteger(0), new AtomicInteger(0), new AtomicInteger(0))
+
+    SinkTaskRunner.addNonBlockTask(blockingTask(first), 0)
+    eventually(first.get == 1) should be (true)
+    SinkTaskRunner.addNonBlockTask(countingTask(second), 0)
+    SinkTaskRunner.addNonBlockTask(countingTask(third), 0)
+    SinkTaskRunner.addNonBlockTask(countingTask(last), 0)
+    latch.countDown()
+
+    eventually(last.get == 1) should be (true)
+    metric("dropped") should be (dropped + 2)
+    (second.get, third.get) should be ((0, 0))
+  }
+
+  it should "spill the tasks overflowing the queue" in {
+    val spillPath = Files.createTempDirectory("griffin-spill").toString
+    init(SinkTaskRunner.SpillOverflow, spillPath)
+    val spilled = metric("spilled")
+    val (first, second, third) = (new AtomicInteger(0), new AtomicInteger(0), new AtomicInteger(0))
+
+    SinkTaskRunner.addNonBlockTask(blockingTask(first), 0)
+    eventually(first.get == 1) should be (true)
+    SinkTaskRunner.addNonBlockTask(countingTask(second), 0)
+    SinkTaskRunner.addNonBlockTask(countingTask(third), 0, Some(SpillData("test", 1L, "{}")))
+
+    metric("spilled") should be (spilled + 1)
+    new File(spillPath, "test").list.toSeq.filterNot(_.startsWith(".")).map(_.startsWith("1_")) should be (
+      Seq(true))
+    latch.countDown()
+    eventually(second.get == 1) should be (true)
+    third.get should be (0)
+  }
+
+  it should "make callers wait for space on overflow with block policy" in {
+    init(SinkTaskRunner.BlockOverflow)
+    val (first, second, third) = (new AtomicInteger(0), new AtomicInteger(0), new AtomicInteger(0))
+
+    SinkTaskRunner.addNonBlockTask(blockingTask(first), 0)
+    SinkTaskRunner.addNonBlockTask(countingTask(second), 0)
+    val caller = new Thread(new Runnable {
+      def run(): Unit = SinkTaskRunner.addNonBlockTask(countingTask(third), 0)
+    })
+    caller.start()
+
+    caller.join(300)
+    caller.isAlive should be (true)
+    latch.countDown()
+    caller.join(5000)
+    caller.isAlive should be (false)
+    eventually(third.get == 1) should be (true)
+    second.get should be (1)
+  }
+
+  it should "drop retries instead of waiting for space with block policy" in {
+    init(SinkTaskRunner.BlockOverflow, backoff = "300ms")
+    val dropped = metric("dropped")
+    val (failing, first, second) = (new AtomicInteger(0), new AtomicInteger(0), new AtomicInteger(0))
+
+    SinkTaskRunner.addNonBlockTask(countingTask(failing, 1), 1)
+    eventually(failing.get == 1) should be (true)
+    SinkTaskRunner.addNonBlockTask(blockingTask(first), 0)
+    SinkTaskRunner.addNonBlockTask(countingTask(second), 0)
+
+    // the retry finds no space, and the retry scheduler is not blocked
+    eventually(metric("dropped") == dropped + 1) should be (true)
+    failing.get should be (1)
+    latch.countDown()
+    eventually(second.get == 1) should be (true)
+
+    val retrying = new AtomicInteger(0)
+    SinkTaskRunner.addNonBlockTask(countingTask(retrying, 1), 1)
+    eventually(retrying.get == 2) should be (true)
+  }
+
+}
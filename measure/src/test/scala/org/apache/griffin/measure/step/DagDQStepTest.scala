@@ -0,0 +1,89 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.step
+
+import java.util.concurrent.atomic.AtomicBoolean
+
+import scala.collection.mutable.{Map => MutableMap}
+
+import com.holdenkarau.spark.testing.DataFrameSuiteBase
+import org.scalatest._
+
+import org.apache.griffin.measure.configuration.enums.BatchProcessType
+import org.apache.griffin.measure.context.{ContextId, DQContext}
+import org.apache.griffin.measure.step.transform.{DataFrameOpsTransformStep, SparkSqlTransformStep}
+
+class DagDQStepTest extends FlatSpec with Matchers with DataFrameSuiteBase {
+
+  case class FakeStep(name: String, result: () => Boolean) extends DQStep {
+    val executed = new AtomicBoolean(false)
+    def execute(context: DQContext): Boolean = {
+      executed.set(true)
+      result()
+    }
+  }
+
+  private def sqlStep(name: String, rule: String): DQStep = SparkSqlTransformStep(name, rule, Map())
+
+  "dag dq step" should "infer dependencies from the tables referred by the rules" in {
+    val steps = Seq(
+      sqlStep("Users", "SELECT * FROM source"),
+      sqlStep("counts", "SELECT count(*) AS cnt FROM `users`"),
+      sqlStep("other", "SELECT * FROM source"),
+      sqlStep("joined", "SELECT * FROM USERS u JOIN `Other` o ON u.id = o.id"),
+      DataFrameOpsTransformStep("parsed", "Counts", "from_json", Map()),
+      sqlStep("users_ext", "SELECT * FROM users_extra"),
+      sqlStep("USERS", "SELECT 1 AS id")
+    )
+
+    DagDQStep(steps).dependencies(steps) should be (IndexedSeq(
+      Set(), Set(0), Set(), Set(0, 2), Set(1), Set(), Set(0, 1, 3)))
+  }
+
+  it should "not execute the steps depending on a failed step" in {
+    val context = DQContext(ContextId(0L), "test", Nil, Nil, BatchProcessType)(spark)
+    val steps = Seq(
+      FakeStep("fail", () => false),
+      FakeStep("dependent", () => true),
+      FakeStep("error", () => throw new RuntimeException("step error")),
+      FakeStep("dependent_of_error", () => true)
+    )
+    val deps = IndexedSeq(Set[Int](), Set(0), Set[Int](), Set(2))
+
+    val times = MutableMap[Int, Long]()
+    DagDQStep(steps).executeDag(context, steps, deps, 2, "test", times) should be (false)
+
+    steps(0).executed.get should be (true)
+    steps(1).executed.get should be (false)
+    steps(3).executed.get should be (false)
+  }
+
+  it should "execute all independent steps" in {
+    val context = DQContext(ContextId(0L), "test", Nil, Nil, BatchProcessType)(spark)
+    val steps = (0 until 4).map(i => FakeStep(s"step${i}", () => true))
+    val deps = IndexedSeq(Set[Int](), Set(0), Set[Int](), Set(1, 2))
+
+    val times = MutableMap[Int, Long]()
+    DagDQStep(steps).executeDag(context, steps, deps, 2, "test", times) should be (true)
+
+    steps.forall(_.executed.get) should be (true)
+    times.keySet should be (Set(0, 1, 2, 3))
+  }
+
+}
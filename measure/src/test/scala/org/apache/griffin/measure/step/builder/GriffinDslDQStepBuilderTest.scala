@@ -0,0 +1,86 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.step.builder
+
+import com.holdenkarau.spark.testing.DataFrameSuiteBase
+import org.apache.spark.sql.Row
+import org.apache.spark.sql.types._
+import org.scalatest._
+
+import org.apache.griffin.measure.configuration.dqdefinition.RuleParam
+import org.apache.griffin.measure.configuration.enums.{AccuracyType, StreamingProcessType}
+import org.apache.griffin.measure.context.{ContextId, DQContext, DQContextCache}
+import org.apache.griffin.measure.step.builder.dsl.expr.Expr
+
+class GriffinDslDQStepBuilderTest extends FlatSpec with Matchers with DataFrameSuiteBase {
+
+  private val dataSourceNames = Seq("source", "target")
+
+  private def newContext(timestamp: Long): DQContext = {
+    val context = DQContext(ContextId(timestamp), "test", Nil, Nil, StreamingProcessType)(spark)
+    val schema = StructType(Array(
+      StructField("id", LongType),
+      StructField(ConstantColumns.tmst, LongType)
+    ))
+    val df = sqlContext.createDataFrame(sqlContext.sparkContext.parallelize(Seq(Row(1L, timestamp))), schema)
+    dataSourceNames.foreach(name => context.runTimeTableRegister.registerTable(name, df))
+    context
+  }
+
+  private def accuracy(rule: String): RuleParam = {
+    RuleParam("griffin-dsl", "accuracy", outDfName = "accu", rule = rule)
+  }
+
+  // whether the rule is in cache, without compiling it
+  private def cached(builder: GriffinDslDQStepBuilder, rule: String): Boolean = {
+    DQContextCache.getRuleExpr(dataSourceNames, builder.filteredFunctionNames, rule, AccuracyType) {
+      Option.empty[Expr]
+    }.nonEmpty
+  }
+
+  "griffin dsl step builder" should "not cache the rule failed to parse" in {
+    val context = newContext(1L)
+    val builder = GriffinDslDQStepBuilder(dataSourceNames, context.functionNames)
+    DQContextCache.refreshFunctions(spark)
+
+    builder.buildSteps(context, accuracy("source.id = ")) should be (empty)
+    cached(builder, "source.id = ") should be (false)
+
+    builder.buildSteps(context, accuracy("source.id = target.id")) should not be (empty)
+    cached(builder, "source.id = target.id") should be (true)
+  }
+
+  it should "build the same steps from cached rule in contexts of different timestamps" in {
+    val rule = accuracy("source.id = target.id AND upper(source.id) = upper(target.id)")
+    val context1 = newContext(1L)
+    val context2 = newContext(2L)
+    val builder = GriffinDslDQStepBuilder(dataSourceNames, context1.functionNames)
+    DQContextCache.refreshFunctions(spark)
+
+    val steps1 = builder.buildSteps(context1, rule)
+    val cachedSteps = builder.buildSteps(context2, rule)
+    DQContextCache.refreshFunctions(spark)
+    val parsedSteps = builder.buildSteps(context2, rule)
+
+    steps1 should not be (empty)
+    cachedSteps should be (parsedSteps)
+    builder.buildSteps(context1, rule) should be (steps1)
+  }
+
+}
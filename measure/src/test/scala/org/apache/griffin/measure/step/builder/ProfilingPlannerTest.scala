@@ -0,0 +1,139 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.step.builder
+
+import com.holdenkarau.spark.testing.DataFrameSuiteBase
+import org.apache.spark.sql.Row
+import org.apache.spark.sql.types._
+import org.scalatest._
+
+import org.apache.griffin.measure.configuration.enums.{BatchProcessType, ProcessType, StreamingProcessType}
+import org.apache.griffin.measure.context.{ContextId, DQContext}
+import org.apache.griffin.measure.step.DQStep
+import org.apache.griffin.measure.step.transform._
+
+class ProfilingPlannerTest extends FlatSpec with Matchers with DataFrameSuiteBase {
+
+  private val tmst = s"`${ConstantColumns.tmst}`"
+
+  private def newContext(procType: ProcessType): DQContext = {
+    val context = DQContext(ContextId(0L), "test", Nil, Nil, procType)(spark)
+    val schema = StructType(Array(
+      StructField("name", StringType),
+      StructField("age", IntegerType),
+      StructField(ConstantColumns.tmst, LongType)
+    ))
+    val rows = Seq(Row("a", 10, 1L), Row("b", 20, 1L), Row("b", 30, 2L))
+    context.runTimeTableRegister.registerTable("src",
+      sqlContext.createDataFrame(sqlContext.sparkContext.parallelize(rows), schema))
+    context
+  }
+
+  private def batchQuery(selections: (String, String)*): ProfilingQuery = {
+    ProfilingQuery("", Nil, selections, "FROM `src`", "", "", "")
+  }
+
+  private def streamingQuery(selections: (String, String)*): ProfilingQuery = {
+    ProfilingQuery("", tmst :: Nil, selections, "FROM `src`", "", s"GROUP BY ${tmst}", "")
+  }
+
+  private def profiling(name: String, query: ProfilingQuery): ProfilingTransformStep = {
+    ProfilingTransformStep(name, query, Map())
+  }
+
+  private def execute(context: DQContext, steps: Seq[DQStep]): Seq[Boolean] = steps.map(_.execute(context))
+
+  private def tableRows(name: String): (Seq[String], Set[Seq[Any]]) = {
+    val df = sqlContext.table(s"`${name}`")
+    (df.columns.toSeq, df.collect.map(_.toSeq).toSet)
+  }
+
+  "profiling planner" should "merge the rules of the same merge key" in {
+    val context = newContext(BatchProcessType)
+    val steps = Seq(
+      profiling("p1", batchQuery(("count(*)", "cnt"))),
+      profiling("p2", batchQuery(("max(`age`)", "max_age"))),
+      profiling("p3", batchQuery(("count(*)", "cnt")).copy(preGroupbyClause = "WHERE `age` > 10")),
+      profiling("p4", batchQuery(("`name`", "name"), ("count(*)", "cnt")).copy(groupbyClause = "GROUP BY `name`")),
+      profiling("p5", batchQuery(("`name`", "name"), ("min(`age`)", "min_age")).copy(groupbyClause = "GROUP BY `name`"))
+    )
+
+    val planned = ProfilingPlanner.plan(context, steps)
+
+    planned.map(_.getClass.getSimpleName) should be (Seq(
+      "MergedProfilingStep", "ProfilingProjectStep", "ProfilingProjectStep", "ProfilingTransformStep",
+      "MergedProfilingStep", "ProfilingProjectStep", "ProfilingProjectStep"))
+    planned.filterNot(_.isInstanceOf[MergedProfilingStep]).map(_.name) should be (Seq("p1", "p2", "p3", "p4", "p5"))
+  }
+
+  it should "project the aliases of each rule in batch mode" in {
+    val context = newContext(BatchProcessType)
+    val steps = Seq(
+      profiling("b1", batchQuery(("count(*)", "cnt"))),
+      profiling("b2", batchQuery(("max(`age`)", "max_age"), ("min(`age`)", "min_age")))
+    )
+
+    execute(context, ProfilingPlanner.plan(context, steps)).forall(r => r) should be (true)
+
+    tableRows("b1") should be ((Seq("cnt"), Set(Seq(3L))))
+    tableRows("b2") should be ((Seq("max_age", "min_age"), Set(Seq(30, 10))))
+  }
+
+  it should "project tmst with the aliases of each rule in streaming mode" in {
+    val context = newContext(StreamingProcessType)
+    val steps = Seq(
+      profiling("s1", streamingQuery(("count(*)", "cnt"))),
+      profiling("s2", streamingQuery(("max(`age`)", "max_age")))
+    )
+
+    val planned = ProfilingPlanner.plan(context, steps)
+    planned.size should be (3)
+    execute(context, planned).forall(r => r) should be (true)
+
+    tableRows("s1") should be ((Seq(ConstantColumns.tmst, "cnt"), Set(Seq(1L, 2L), Seq(2L, 1L))))
+    tableRows("s2") should be ((Seq(ConstantColumns.tmst, "max_age"), Set(Seq(1L, 20), Seq(2L, 30))))
+  }
+
+  it should "not merge rules with distinct, having or selections without alias" in {
+    val context = newContext(BatchProcessType)
+    val steps = Seq(
+      profiling("n1", batchQuery(("count(*)", "cnt"))),
+      profiling("n2", batchQuery(("`name`", "name")).copy(selCondition = "DISTINCT")),
+      profiling("n3", batchQuery(("count(*)", "cnt")).copy(postGroupbyClause = "HAVING count(*) > 1")),
+      profiling("n4", batchQuery(("max(`age`)", "")))
+    )
+
+    ProfilingPlanner.plan(context, steps) should be (steps)
+  }
+
+  it should "calculate the rules separately if the merged query fails" in {
+    val context = newContext(BatchProcessType)
+    val steps = Seq(
+      profiling("f1", batchQuery(("count(*)", "cnt"))),
+      profiling("f2", batchQuery(("max(`unknown`)", "max_unknown")))
+    )
+
+    val planned = ProfilingPlanner.plan(context, steps)
+    planned.size should be (3)
+    execute(context, planned) should be (Seq(true, true, false))
+
+    tableRows("f1") should be ((Seq("cnt"), Set(Seq(3L))))
+  }
+
+}
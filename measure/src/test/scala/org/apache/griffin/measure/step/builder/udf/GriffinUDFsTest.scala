@@ -0,0 +1,122 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.step.builder.udf
+
+import com.holdenkarau.spark.testing.DataFrameSuiteBase
+import org.apache.spark.sql.{Column, DataFrame, Row}
+import org.apache.spark.sql.catalyst.expressions.RLike
+import org.apache.spark.sql.functions._
+import org.apache.spark.sql.types._
+import org.scalatest._
+
+class GriffinUDFsTest extends FlatSpec with Matchers with DataFrameSuiteBase {
+
+  private val strings = Seq("abc", "abcd", "xabc", "ABC", "a\nc", "123", "", null)
+  private val regexes = Seq("a.c", "abc|x", "\\d+", "", "(?i)abc", "a.*", "b")
+
+  override def beforeAll(): Unit = {
+    super.beforeAll()
+    GriffinUDFAgent.register(sqlContext)
+  }
+
+  private def stringDf(): DataFrame = {
+    val schema = StructType(Array(StructField("s", StringType), StructField("r", StringType)))
+    val rows = for (s <- strings; r <- regexes :+ null) yield Row(s, r)
+    sqlContext.createDataFrame(sqlContext.sparkContext.parallelize(rows), schema)
+  }
+
+  private def expected(s: String, r: String): Any = {
+    if (s == null || r == null) null else s.matches(r)
+  }
+
+  private def hasRLike(df: DataFrame): Boolean = {
+    df.queryExecution.analyzed.expressions.exists(_.find(_.isInstanceOf[RLike]).isDefined)
+  }
+
+  "matches" should "be rewritten to rlike for literal regex, agreeing with String.matches" in {
+    val df = stringDf().select("s").distinct
+    regexes.foreach { r =>
+      val matchDf = df.select(col("s"), callUDF("matches", col("s"), lit(r)))
+      hasRLike(matchDf) should be (true)
+      matchDf.collect.foreach { row =>
+        (r, row.getString(0), row.get(1)) should be ((r, row.getString(0), expected(row.getString(0), r)))
+      }
+    }
+  }
+
+  it should "match by cached patterns for non-literal regex, with null for null arguments" in {
+    val matchDf = stringDf().select(col("s"), col("r"), callUDF("matches", col("s"), col("r")))
+    hasRLike(matchDf) should be (false)
+    matchDf.collect.foreach { row =>
+      row.get(2) should be (expected(row.getString(0), row.getString(1)))
+    }
+
+    val nullDf = stringDf().select(callUDF("matches", col("s"), lit(null).cast(StringType)))
+    nullDf.collect.map(_.get(0)).toSet should be (Set(null))
+  }
+
+  "reg_replace" should "replace all matches for literal and non-literal regex" in {
+    val df = stringDf()
+    def replaced(regex: Column): Set[(String, String, Any)] = {
+      df.select(col("s"), col("r"), callUDF("reg_replace", col("s"), regex, lit("_"))).collect.map { row =>
+        (row.getString(0), row.getString(1), row.get(2))
+      }.toSet
+    }
+    replaced(lit("b|c")).foreach { case (s, _, v) =>
+      v should be (if (s == null) null else s.replaceAll("b|c", "_"))
+    }
+    replaced(col("r")).foreach { case (s, r, v) =>
+      v should be (if (s == null || r == null) null else s.replaceAll(r, "_"))
+    }
+  }
+
+  "regex cache" should "reuse compiled patterns and stay bounded" in {
+    RegexCache.getPattern("a+b") should be theSameInstanceAs RegexCache.getPattern("a+b")
+    (0 to RegexCache.MaxSize).foreach(i => RegexCache.getPattern(s"p${i}"))
+    RegexCache.size should be <= RegexCache.MaxSize
+  }
+
+  "approx_distinct_count" should "estimate distinct count, ignoring nulls" in {
+    val values = (1 to 10000).map(i => Row(if (i % 100 == 0) null else Integer.valueOf(i % 5000)))
+    val schema = StructType(Array(StructField("v", IntegerType)))
+    sqlContext.createDataFrame(sqlContext.sparkContext.parallelize(values), schema)
+      .createOrReplaceTempView("distinct_values")
+
+    val Row(estimated: Long, precise: Long) = sqlContext.sql(
+      "SELECT approx_distinct_count(v), approx_distinct_count(v, 0.01) FROM distinct_values").head
+    val expectedCount = (1 to 10000).filter(_ % 100 != 0).map(_ % 5000).distinct.size
+    math.abs(estimated - expectedCount) should be < (expectedCount * 0.15).toLong
+    math.abs(precise - expectedCount) should be < (expectedCount * 0.03).toLong
+  }
+
+  "approx_quantile" should "estimate quantiles of single and array percentage" in {
+    val values = (1 to 1001).map(i => Row(i.toDouble))
+    val schema = StructType(Array(StructField("v", DoubleType)))
+    sqlContext.createDataFrame(sqlContext.sparkContext.parallelize(values), schema)
+      .createOrReplaceTempView("quantile_values")
+
+    val row = sqlContext.sql("SELECT approx_quantile(v, 0.5), approx_quantile(v, array(0.25, 0.75), 10000) " +
+      "FROM quantile_values").head
+    row.getDouble(0) should be (501.0 +- 10.0)
+    val Seq(q1, q3) = row.getSeq[Double](1)
+    q1 should be (251.0 +- 2.0)
+    q3 should be (751.0 +- 2.0)
+  }
+
+}
@@ -0,0 +1,62 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.step.transform
+
+import java.nio.file.Files
+
+import com.holdenkarau.spark.testing.DataFrameSuiteBase
+import org.apache.spark.sql.{DataFrame, Row}
+import org.apache.spark.sql.types._
+import org.scalatest._
+
+import org.apache.griffin.measure.context.ContextId
+import org.apache.griffin.measure.context.streaming.metric.AccuracyStateStore
+import org.apache.griffin.measure.step.builder.ConstantColumns
+
+class DataFrameOpsTest extends FlatSpec with Matchers with DataFrameSuiteBase {
+
+  private def accuracyDf(rows: (Long, Long, Long)*): DataFrame = {
+    val schema = StructType(Array(
+      StructField(ConstantColumns.tmst, LongType),
+      StructField("miss", LongType),
+      StructField("total", LongType)
+    ))
+    val rowRdd = sqlContext.sparkContext.parallelize(rows.map(r => Row(r._1, r._2, r._3)))
+    sqlContext.createDataFrame(rowRdd, schema)
+  }
+
+  "accuracy by state store" should "output the changed metrics of each round" in {
+    val store = AccuracyStateStore(sqlContext, Files.createTempDirectory("griffin-state").toString)
+    val details = Map[String, Any]()
+    def accuracy(df: DataFrame, updateTime: Long): Set[(Long, Long, Long, Long, Boolean, Boolean)] = {
+      DataFrameOps.accuracyByStateStore(df, store, ContextId(0L), updateTime, details).collect.map { r =>
+        (r.getAs[Long](ConstantColumns.tmst), r.getAs[Long]("miss"), r.getAs[Long]("total"),
+          r.getAs[Long]("matched"), r.getAs[Boolean](ConstantColumns.record),
+          r.getAs[Boolean](ConstantColumns.empty))
+      }.toSet
+    }
+
+    accuracy(accuracyDf((1, 4, 10), (2, 0, 0)), 100L) should be (
+      Set((1, 4, 10, 6, true, false)))
+    accuracy(accuracyDf((1, 0, 10), (3, 10, 10)), 200L) should be (
+      Set((1, 0, 10, 10, true, true), (3, 10, 10, 0, false, false)))
+    accuracy(accuracyDf((1, 0, 10), (3, 10, 10)), 300L) should be (Set())
+  }
+
+}
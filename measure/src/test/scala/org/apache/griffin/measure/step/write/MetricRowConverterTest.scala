@@ -0,0 +1,66 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.step.write
+
+import org.apache.spark.sql.Row
+import org.apache.spark.sql.types._
+import org.scalatest._
+
+import org.apache.griffin.measure.utils.JsonUtil
+
+class MetricRowConverterTest extends FlatSpec with Matchers {
+
+  private val schema = StructType(Array(
+    StructField("name", StringType),
+    StructField("total", LongType),
+    StructField("ratio", DoubleType),
+    StructField("tags", ArrayType(StringType)),
+    StructField("stat", StructType(Array(
+      StructField("max", IntegerType),
+      StructField("min", IntegerType)
+    )))
+  ))
+
+  "convert" should "build the metric map by schema" in {
+    val row = Row("age", 10L, 0.5, Seq("a", "b"), Row(30, 1))
+    MetricRowConverter(schema).convert(row) should be (Map(
+      "name" -> "age",
+      "total" -> 10L,
+      "ratio" -> 0.5,
+      "tags" -> List("a", "b"),
+      "stat" -> Map("max" -> 30, "min" -> 1)
+    ))
+  }
+
+  it should "omit null fields like json" in {
+    val row = Row(null, 10L, null, null, Row(null, 1))
+    MetricRowConverter(schema).convert(row) should be (Map(
+      "total" -> 10L,
+      "stat" -> Map("min" -> 1)
+    ))
+  }
+
+  it should "serialize to the same json as the parsed one" in {
+    val row = Row("age", 10L, 0.5, Seq("a", null), Row(30, 1))
+    val metric = MetricRowConverter(schema).convert(row)
+    val json = """{"name":"age","total":10,"ratio":0.5,"tags":["a",null],"stat":{"max":30,"min":1}}"""
+    JsonUtil.toJson(metric) should be (JsonUtil.toJson(JsonUtil.toAnyMap(json)))
+  }
+
+}
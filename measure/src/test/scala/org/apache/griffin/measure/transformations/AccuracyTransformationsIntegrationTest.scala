@@ -80,7 +80,32 @@ class AccuracyTransformationsIntegrationTest extends FlatSpec with Matchers with
       expectedResult = AccuracyResult(total = 0, miss = 0, matched = 0, matchedFraction = 1.0))
   }
 
-  private def checkAccuracy(sourceName: String, targetName: String, expectedResult: AccuracyResult) = {
+  "fused accuracy" should "basically work" in {
+    checkAccuracy(
+      sourceName = PERSON_TABLE,
+      targetName = PERSON_TABLE,
+      expectedResult = AccuracyResult(total = 2, miss = 0, matched = 2, matchedFraction = 1.0),
+      details = Map("fused" -> true))
+  }
+
+  "fused accuracy" should "work with empty target" in {
+    checkAccuracy(
+      sourceName = PERSON_TABLE,
+      targetName = EMPTY_PERSON_TABLE,
+      expectedResult = AccuracyResult(total = 2, miss = 2, matched = 0, matchedFraction = 0.0),
+      details = Map("fused" -> true))
+  }
+
+  "fused accuracy" should "work with empty source" in {
+    checkAccuracy(
+      sourceName = EMPTY_PERSON_TABLE,
+      targetName = PERSON_TABLE,
+      expectedResult = AccuracyResult(total = 0, miss = 0, matched = 0, matchedFraction = 1.0),
+      details = Map("fused" -> true))
+  }
+
+  private def checkAccuracy(sourceName: String, targetName: String, expectedResult: AccuracyResult,
+                            details: Map[String, Any] = null) = {
     val dqContext: DQContext = getDqContext(
       dataSourcesParam = List(
         DataSourceParam(
@@ -97,7 +122,8 @@ class AccuracyTransformationsIntegrationTest extends FlatSpec with Matchers with
       dslType = "griffin-dsl",
       dqType = "ACCURACY",
       outDfName = "person_accuracy",
-      rule = "source.name = target.name"
+      rule = "source.name = target.name",
+      details = details
     )
 
     val res = getRuleResults(dqContext, accuracyRule)
@@ -0,0 +1,66 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.measure.utils
+
+import java.util.concurrent.ConcurrentLinkedQueue
+
+import scala.collection.JavaConverters._
+
+import org.scalatest._
+
+class ParallelUtilTest extends FlatSpec with Matchers {
+
+  "parMap" should "return results in the order of items under uneven durations" in {
+    val items = 1 to 8
+    val finished = new ConcurrentLinkedQueue[Int]()
+    val results = ParallelUtil.parMap(items, 4, "test") { i =>
+      Thread.sleep((items.size - i) * 30L)
+      finished.add(i)
+      i * 10
+    }
+    results should be (items.map(_ * 10))
+    // later items finish first
+    finished.asScala.toSeq should not be (items)
+  }
+
+  it should "throw the failure of the first failed item" in {
+    val thrown = intercept[IllegalStateException] {
+      ParallelUtil.parMap(1 to 4, 4, "test") { i =>
+        if (i == 2) {
+          Thread.sleep(200)
+          throw new IllegalStateException(s"item ${i}")
+        }
+        if (i == 4) throw new IllegalStateException(s"item ${i}")
+        i
+      }
+    }
+    thrown.getMessage should be ("item 2")
+  }
+
+  it should "apply func in the order of items with parallelism 1" in {
+    val applied = new ConcurrentLinkedQueue[Int]()
+    val results = ParallelUtil.parMap(1 to 4, 1, "test") { i =>
+      applied.add(i)
+      i * 10
+    }
+    results should be (Seq(10, 20, 30, 40))
+    applied.asScala.toSeq should be (1 to 4)
+  }
+
+}
@@ -0,0 +1,121 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.common;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records latency and errors of outbound REST calls per endpoint. An
+ * endpoint is the request method, host and path, where path segments
+ * containing digits (session ids, application ids, schema versions) are
+ * collapsed into {id}.
+ */
+@Component
+public class HttpClientMetrics implements ClientHttpRequestInterceptor {
+
+    private final ConcurrentMap<String, EndpointStats> stats =
+            new ConcurrentHashMap<>();
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+                                        ClientHttpRequestExecution execution)
+            throws IOException {
+        EndpointStats endpoint = stats.computeIfAbsent(endpoint(request),
+                key -> new EndpointStats());
+        long start = System.nanoTime();
+        boolean error = true;
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            error = response.getRawStatusCode() >= 400;
+            return response;
+        } finally {
+            endpoint.record(System.nanoTime() - start, error);
+        }
+    }
+
+    /**
+     * @return snapshot of count, errors, average and max latency in
+     * milliseconds of every endpoint
+     */
+    public Map<String, Map<String, Object>> getMetrics() {
+        Map<String, Map<String, Object>> metrics = new TreeMap<>();
+        stats.forEach((key, value) -> metrics.put(key, value.toMap()));
+        return metrics;
+    }
+
+    static String endpoint(HttpRequest request) {
+        URI uri = request.getURI();
+        StringBuilder sb = new StringBuilder();
+        sb.append(request.getMethod()).append(' ').append(uri.getHost());
+        if (uri.getPort() != -1) {
+            sb.append(':').append(uri.getPort());
+        }
+        String path = uri.getPath();
+        if (path != null) {
+            for (String segment : path.split("/")) {
+                if (segment.isEmpty()) {
+                    continue;
+                }
+                sb.append('/').append(segment.matches(".*\\d.*") ? "{id}" :
+                        segment);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static class EndpointStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos, boolean error) {
+            count.increment();
+            if (error) {
+                errors.increment();
+            }
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        Map<String, Object> toMap() {
+            long n = count.sum();
+            Map<String, Object> map = new TreeMap<>();
+            map.put("count", n);
+            map.put("errors", errors.sum());
+            map.put("avgMillis", n == 0 ? 0 : totalNanos.sum() / n / 1000000);
+            map.put("maxMillis", maxNanos.get() / 1000000);
+            return map;
+        }
+    }
+}
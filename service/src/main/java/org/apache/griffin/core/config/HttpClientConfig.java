@@ -0,0 +1,101 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.griffin.core.common.HttpClientMetrics;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Shared client for outbound REST calls to livy, yarn and kafka schema
+ * registry. Connections are pooled per route and kept alive between calls,
+ * gzip responses are decompressed by the client, and every call is recorded
+ * by {@link HttpClientMetrics}.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Value("${http.client.max.total:200}")
+    private int maxTotal;
+    @Value("${http.client.max.per.route:50}")
+    private int maxPerRoute;
+    @Value("${http.client.connect.timeout.ms:5000}")
+    private int connectTimeout;
+    @Value("${http.client.read.timeout.ms:60000}")
+    private int readTimeout;
+    @Value("${http.client.pool.timeout.ms:5000}")
+    private int poolTimeout;
+    @Value("${http.client.keep.alive.ms:30000}")
+    private long keepAlive;
+    @Value("${http.client.idle.evict.ms:60000}")
+    private long idleEvict;
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient() {
+        PoolingHttpClientConnectionManager cm =
+                new PoolingHttpClientConnectionManager();
+        cm.setMaxTotal(maxTotal);
+        cm.setDefaultMaxPerRoute(maxPerRoute);
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setSocketTimeout(readTimeout)
+                .setConnectionRequestTimeout(poolTimeout)
+                .build();
+        return HttpClients.custom()
+                .setConnectionManager(cm)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy())
+                .evictExpiredConnections()
+                .evictIdleConnections(idleEvict, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @Bean
+    public RestTemplate restTemplate(CloseableHttpClient httpClient,
+                                     HttpClientMetrics metrics) {
+        RestTemplate restTemplate = new RestTemplate(
+                new HttpComponentsClientHttpRequestFactory(httpClient));
+        restTemplate.getInterceptors().add(metrics);
+        return restTemplate;
+    }
+
+    /**
+     * Honor the keep-alive timeout sent by server, otherwise keep idle
+     * connections for http.client.keep.alive.ms.
+     */
+    private ConnectionKeepAliveStrategy keepAliveStrategy() {
+        return (response, context) -> {
+            long duration = DefaultConnectionKeepAliveStrategy.INSTANCE
+                    .getKeepAliveDuration(response, context);
+            return duration > 0 ? duration : keepAlive;
+        };
+    }
+}
@@ -54,6 +54,13 @@ public abstract class GriffinException extends RuntimeException {
         }
     }
 
+    @ResponseStatus(value = HttpStatus.TOO_MANY_REQUESTS)
+    public static class TooManyRequestsException extends GriffinException {
+        public TooManyRequestsException(GriffinExceptionMessage message) {
+            super(message.toString());
+        }
+    }
+
     public static class ServiceException extends GriffinException {
         public ServiceException(String message, Throwable cause) {
             super(message, cause);
@@ -73,7 +73,11 @@ public enum GriffinExceptionMessage {
     //409, "Conflict"
     MEASURE_NAME_ALREADY_EXIST(40901, "Measure name already exists"),
 
-    QUARTZ_JOB_ALREADY_EXIST(40902, "Quartz job already exist");
+    QUARTZ_JOB_ALREADY_EXIST(40902, "Quartz job already exist"),
+
+    //429, "Too Many Requests"
+    METRIC_INGESTION_QUEUE_IS_FULL(42901, "Metric ingestion queue is full, " +
+            "please retry later");
 
     private final int code;
     private final String message;
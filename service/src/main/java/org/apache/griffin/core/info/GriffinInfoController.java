@@ -19,6 +19,11 @@ under the License.
 
 package org.apache.griffin.core.info;
 
+import java.util.Map;
+
+import org.apache.griffin.core.common.HttpClientMetrics;
+import org.apache.griffin.core.metric.MetricIngestionBuffer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
@@ -27,8 +32,23 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/v1")
 public class GriffinInfoController {
 
+    @Autowired
+    private HttpClientMetrics httpClientMetrics;
+    @Autowired
+    private MetricIngestionBuffer ingestionBuffer;
+
     @RequestMapping(value = "/version", method = RequestMethod.GET)
     public String greeting() {
         return "0.4.0";
     }
+
+    @RequestMapping(value = "/info/http", method = RequestMethod.GET)
+    public Map<String, Map<String, Object>> getHttpClientMetrics() {
+        return httpClientMetrics.getMetrics();
+    }
+
+    @RequestMapping(value = "/info/ingestion", method = RequestMethod.GET)
+    public Map<String, Object> getMetricIngestionMetrics() {
+        return ingestionBuffer.getMetrics();
+    }
 }
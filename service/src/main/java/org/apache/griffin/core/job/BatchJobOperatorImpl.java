@@ -26,6 +26,7 @@ import static org.apache.griffin.core.exception.GriffinExceptionMessage.JOB_IS_N
 import static org.apache.griffin.core.exception.GriffinExceptionMessage.JOB_IS_NOT_SCHEDULED;
 import static org.apache.griffin.core.exception.GriffinExceptionMessage.JOB_KEY_DOES_NOT_EXIST;
 import static org.apache.griffin.core.exception.GriffinExceptionMessage.MISSING_BASELINE_CONFIG;
+import static org.apache.griffin.core.job.PredicateWatcher.PREDICATE_GROUP;
 import static org.apache.griffin.core.measure.entity.GriffinMeasure.ProcessType.BATCH;
 import static org.quartz.CronExpression.isValidExpression;
 import static org.quartz.JobKey.jobKey;
@@ -81,6 +82,10 @@ public class BatchJobOperatorImpl implements JobOperator {
     private BatchJobRepo batchJobRepo;
     @Autowired
     private JobServiceImpl jobService;
+    @Autowired
+    private PredicateWatcher predicateWatcher;
+    @Autowired
+    private LivyTaskSubmitHelper livyTaskSubmitHelper;
 
     @Override
     @Transactional(rollbackFor = Exception.class)
@@ -265,16 +270,24 @@ public class BatchJobOperatorImpl implements JobOperator {
                 deleteJob(instance.getPredicateGroup(), instance
                         .getPredicateName());
                 instance.setPredicateDeleted(true);
-                if (instance.getState().equals(LivySessionStates.State.FINDING)) {
+                // neither predicate nor livy submission will go on
+                LivySessionStates.State state = instance.getState();
+                if (LivySessionStates.State.FINDING.equals(state)
+                        || LivySessionStates.State.WAITING.equals(state)) {
                     instance.setState(LivySessionStates.State.NOT_FOUND);
                 }
             }
         }
+        instanceRepo.save(instances);
     }
 
     public void deleteJob(String group, String name) throws SchedulerException {
-        Scheduler scheduler = factory.getScheduler();
         JobKey jobKey = new JobKey(name, group);
+        if (PREDICATE_GROUP.equals(group)) {
+            predicateWatcher.cancel(name);
+            livyTaskSubmitHelper.removeTask(jobKey);
+        }
+        Scheduler scheduler = factory.getScheduler();
         if (!scheduler.checkExists(jobKey)) {
             LOGGER.info("Job({},{}) does not exist.", jobKey.getGroup(), jobKey
                     .getName());
@@ -22,7 +22,12 @@ package org.apache.griffin.core.job;
 import static org.apache.griffin.core.job.JobInstance.PATH_CONNECTOR_CHARACTER;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
@@ -37,6 +42,21 @@ public class FileExistPredicator implements Predicator {
 
     private static final String PREDICT_PATH = "path";
     private static final String PREDICT_ROOT_PATH = "root.path";
+    private static final int SATISFIED_PATH_CACHE_SIZE = 100000;
+
+    /**
+     * Paths found by earlier fires. Done files are never removed, so they
+     * need not be checked again.
+     */
+    private static final Set<String> SATISFIED_PATHS = Collections
+            .newSetFromMap(Collections.synchronizedMap(
+                    new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+                        @Override
+                        protected boolean removeEldestEntry(
+                                Map.Entry<String, Boolean> eldest) {
+                            return size() > SATISFIED_PATH_CACHE_SIZE;
+                        }
+                    }));
 
     private SegmentPredicate predicate;
 
@@ -60,15 +80,27 @@ public class FileExistPredicator implements Predicator {
                     "config root.path and path.");
             throw new NullPointerException();
         }
+        List<String> uncheckedPaths = new ArrayList<>();
         for (String path : paths) {
             String hdfsPath = rootPath + path;
-            LOGGER.info("Predicate path: {}", hdfsPath);
-            if (!FSUtil.isFileExist(hdfsPath)) {
+            if (!SATISFIED_PATHS.contains(hdfsPath)) {
+                uncheckedPaths.add(hdfsPath);
+            }
+        }
+        LOGGER.info("Predicate {} of {} paths under {}.", uncheckedPaths
+                .size(), paths.length, rootPath);
+        if (uncheckedPaths.isEmpty()) {
+            return true;
+        }
+        Set<String> existPaths = FSUtil.getExistPaths(uncheckedPaths);
+        SATISFIED_PATHS.addAll(existPaths);
+        boolean satisfied = true;
+        for (String hdfsPath : uncheckedPaths) {
+            if (!existPaths.contains(hdfsPath)) {
                 LOGGER.info("Predicate path: " + hdfsPath + " doesn't exist.");
-                return false;
+                satisfied = false;
             }
-            LOGGER.info("Predicate path: " + hdfsPath + " exists.");
         }
-        return true;
+        return satisfied;
     }
 }
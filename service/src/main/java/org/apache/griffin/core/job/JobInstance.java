@@ -19,18 +19,13 @@ under the License.
 
 package org.apache.griffin.core.job;
 
-import static org.apache.griffin.core.exception.GriffinExceptionMessage.QUARTZ_JOB_ALREADY_EXIST;
 import static org.apache.griffin.core.job.JobServiceImpl.GRIFFIN_JOB_ID;
+import static org.apache.griffin.core.job.PredicateWatcher.PREDICATE_GROUP;
 import static org.apache.griffin.core.job.entity.LivySessionStates.State.FINDING;
 import static org.apache.griffin.core.measure.entity.GriffinMeasure.ProcessType.BATCH;
 import static org.apache.griffin.core.measure.entity.GriffinMeasure.ProcessType.STREAMING;
 import static org.apache.griffin.core.util.JsonUtil.toEntity;
 import static org.apache.griffin.core.util.JsonUtil.toJson;
-import static org.quartz.JobBuilder.newJob;
-import static org.quartz.JobKey.jobKey;
-import static org.quartz.SimpleScheduleBuilder.simpleSchedule;
-import static org.quartz.TriggerBuilder.newTrigger;
-import static org.quartz.TriggerKey.triggerKey;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -43,10 +38,10 @@ import java.util.Set;
 import java.util.TimeZone;
 
 import org.apache.commons.lang.StringUtils;
-import org.apache.griffin.core.exception.GriffinException;
 import org.apache.griffin.core.job.entity.AbstractJob;
 import org.apache.griffin.core.job.entity.JobDataSegment;
 import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.PredicateTask;
 import org.apache.griffin.core.job.entity.SegmentPredicate;
 import org.apache.griffin.core.job.entity.SegmentRange;
 import org.apache.griffin.core.job.repo.JobInstanceRepo;
@@ -59,7 +54,6 @@ import org.apache.griffin.core.measure.repo.GriffinMeasureRepo;
 import org.apache.griffin.core.util.TimeUtil;
 import org.quartz.DisallowConcurrentExecution;
 import org.quartz.Job;
-import org.quartz.JobDataMap;
 import org.quartz.JobDetail;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobKey;
@@ -67,7 +61,6 @@ import org.quartz.PersistJobDataAfterExecution;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
 import org.quartz.Trigger;
-import org.quartz.TriggerKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -83,6 +76,7 @@ public class JobInstance implements Job {
     public static final String MEASURE_KEY = "measure";
     public static final String PREDICATES_KEY = "predicts";
     public static final String PREDICATE_JOB_NAME = "predicateJobName";
+    public static final String PRIORITY_KEY = "priority";
     static final String JOB_NAME = "jobName";
     static final String PATH_CONNECTOR_CHARACTER = ",";
     public static final String INTERVAL = "interval";
@@ -100,6 +94,8 @@ public class JobInstance implements Job {
     private JobInstanceRepo instanceRepo;
     @Autowired
     private Environment env;
+    @Autowired
+    private PredicateWatcher predicateWatcher;
 
     private GriffinMeasure measure;
     private AbstractJob job;
@@ -273,16 +269,11 @@ public class JobInstance implements Job {
                 .get(CHECK_DONEFILE_SCHEDULE);
         Long interval = TimeUtil.str2Long((String) config.get(INTERVAL));
         Integer repeat = Integer.valueOf(config.get(REPEAT).toString());
-        String groupName = "PG";
         String jobName = job.getJobName() + "_predicate_" + System
                 .currentTimeMillis();
-        TriggerKey tk = triggerKey(jobName, groupName);
-        if (factory.getScheduler().checkExists(tk)) {
-            throw new GriffinException.ConflictException
-                    (QUARTZ_JOB_ALREADY_EXIST);
-        }
-        saveJobInstance(jobName, groupName);
-        createJobInstance(tk, interval, repeat, jobName);
+        saveJobInstance(jobName, PREDICATE_GROUP);
+        predicateWatcher.watch(createPredicateTask(jobName, interval,
+                repeat));
     }
 
     @SuppressWarnings("unchecked")
@@ -323,51 +314,30 @@ public class JobInstance implements Job {
     }
 
 
-    private void createJobInstance(TriggerKey tk, Long interval, Integer
-            repeatCount, String pJobName) throws Exception {
-        JobDetail jobDetail = addJobDetail(tk, pJobName);
-        Trigger trigger = genTriggerInstance(tk, jobDetail, interval,
-                repeatCount);
-        factory.getScheduler().scheduleJob(trigger);
-    }
-
-
-    private Trigger genTriggerInstance(TriggerKey tk, JobDetail jd, Long
-            interval, Integer repeatCount) {
-        return newTrigger().withIdentity(tk).forJob(jd).startNow()
-                .withSchedule(simpleSchedule().withIntervalInMilliseconds
-                        (interval).withRepeatCount(repeatCount))
-                .build();
+    private PredicateTask createPredicateTask(String pJobName, Long interval,
+                                              Integer repeatCount)
+            throws IOException {
+        preProcessMeasure();
+        return new PredicateTask(pJobName, job.getJobName(), toJson(measure),
+                toJson(mPredicates), getPriority(job.getConfigMap()),
+                interval, repeatCount);
     }
 
-    private JobDetail addJobDetail(TriggerKey tk, String pJobName)
-            throws SchedulerException, IOException {
-        Scheduler scheduler = factory.getScheduler();
-        JobKey jobKey = jobKey(tk.getName(), tk.getGroup());
-        JobDetail jobDetail;
-        Boolean isJobKeyExist = scheduler.checkExists(jobKey);
-        if (isJobKeyExist) {
-            jobDetail = scheduler.getJobDetail(jobKey);
-        } else {
-            jobDetail = newJob(SparkSubmitJob.class)
-                    .storeDurably()
-                    .withIdentity(jobKey)
-                    .build();
+    /**
+     * @param confMap job config map
+     * @return livy submission priority of job, higher is submitted earlier
+     */
+    private int getPriority(Map<String, Object> confMap) {
+        Object priority = confMap != null ? confMap.get(PRIORITY_KEY) : null;
+        if (priority == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(priority.toString());
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Invalid job priority {}.", priority);
+            return 0;
         }
-        setJobDataMap(jobDetail, pJobName);
-        scheduler.addJob(jobDetail, isJobKeyExist);
-        return jobDetail;
-    }
-
-    private void setJobDataMap(JobDetail jobDetail, String pJobName)
-            throws IOException {
-        JobDataMap dataMap = jobDetail.getJobDataMap();
-        preProcessMeasure();
-        String result = toJson(measure);
-        dataMap.put(MEASURE_KEY, result);
-        dataMap.put(PREDICATES_KEY, toJson(mPredicates));
-        dataMap.put(JOB_NAME, job.getJobName());
-        dataMap.put(PREDICATE_JOB_NAME, pJobName);
     }
 
     private void preProcessMeasure() throws IOException {
@@ -56,6 +56,7 @@ import org.quartz.TriggerKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -68,10 +69,19 @@ import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import static java.util.TimeZone.getTimeZone;
 import static org.apache.griffin.core.config.EnvConfig.ENV_BATCH;
@@ -91,7 +101,6 @@ import static org.apache.griffin.core.job.entity.LivySessionStates.State.IDLE;
 import static org.apache.griffin.core.job.entity.LivySessionStates.State.RUNNING;
 import static org.apache.griffin.core.job.entity.LivySessionStates.State.BUSY;
 import static org.apache.griffin.core.job.entity.LivySessionStates.State.DEAD;
-import static org.apache.griffin.core.job.entity.LivySessionStates.State.SUCCESS;
 
 import static org.apache.griffin.core.job.entity.LivySessionStates.isActive;
 import static org.apache.griffin.core.measure.entity.GriffinMeasure.ProcessType.BATCH;
@@ -136,10 +145,31 @@ public class JobServiceImpl implements JobService {
     @Autowired
     private LivyTaskSubmitHelper livyTaskSubmitHelper;
 
+    @Value("${livy.sync.list.enabled:true}")
+    private boolean syncListEnabled;
+    @Value("${livy.sync.page.size:500}")
+    private int syncPageSize;
+    @Value("${livy.sync.parallelism:8}")
+    private int syncParallelism;
+
+    @Autowired
     private RestTemplate restTemplate;
+    @Autowired
+    private YarnNetUtil yarnNetUtil;
+
+    private ExecutorService syncExecutor;
+
+    @PostConstruct
+    public void init() {
+        syncExecutor = Executors.newFixedThreadPool(Math.max(1,
+            syncParallelism));
+    }
 
-    public JobServiceImpl() {
-        restTemplate = new RestTemplate();
+    @PreDestroy
+    public void destroy() {
+        if (syncExecutor != null) {
+            syncExecutor.shutdownNow();
+        }
     }
 
     @Override
@@ -501,9 +531,140 @@ public class JobServiceImpl implements JobService {
         LivySessionStates.State[] states = {STARTING, NOT_STARTED, RECOVERING,
             IDLE, RUNNING, BUSY};
         List<JobInstanceBean> beans = instanceRepo.findByActiveState(states);
-        for (JobInstanceBean jobInstance : beans) {
-            syncInstancesOfJob(jobInstance);
+        if (CollectionUtils.isEmpty(beans)) {
+            return;
+        }
+        Map<Long, Map<String, Object>> sessions = listLivySessions();
+        boolean listed = sessions != null;
+        if (!listed) {
+            sessions = fetchLivySessions(beans);
+        }
+        List<JobInstanceBean> changed = new ArrayList<>();
+        for (JobInstanceBean instance : beans) {
+            Long sessionId = instance.getSessionId();
+            if (sessionId == null) {
+                continue;
+            }
+            Map<String, Object> session = sessions.get(sessionId);
+            if (session != null) {
+                try {
+                    if (updateInstance(instance, session)) {
+                        changed.add(instance);
+                    }
+                } catch (Exception e) {
+                    LOGGER.error("Failed to update instance of session {}. {}",
+                        sessionId, e.getMessage());
+                }
+            } else if (listed) {
+                // livy no longer knows this session, so query it alone and
+                // let the yarn fallback decide its final state
+                syncInstancesOfJob(instance);
+            }
+        }
+        if (!changed.isEmpty()) {
+            instanceRepo.save(changed);
         }
+        LOGGER.info("Synced {} active job instances, {} changed.",
+            beans.size(), changed.size());
+    }
+
+    /**
+     * list livy batches page by page through 'GET /batches?from=&size='.
+     *
+     * @return batches keyed by livy session id, or null if livy cannot be
+     * listed and sessions have to be fetched one by one
+     */
+    private Map<Long, Map<String, Object>> listLivySessions() {
+        if (!syncListEnabled) {
+            return null;
+        }
+        String uri = env.getProperty("livy.uri") + "?from={from}&size={size}";
+        TypeReference<HashMap<String, Object>> type =
+            new TypeReference<HashMap<String, Object>>() {
+            };
+        Map<Long, Map<String, Object>> sessions = new HashMap<>();
+        int from = 0;
+        try {
+            while (true) {
+                String resultStr = restTemplate.getForObject(uri, String.class,
+                    from, syncPageSize);
+                HashMap<String, Object> resultMap = JsonUtil.toEntity(
+                    resultStr, type);
+                if (resultMap == null) {
+                    break;
+                }
+                @SuppressWarnings("unchecked")
+                List<Map<String, Object>> page =
+                    (List<Map<String, Object>>) resultMap.get("sessions");
+                if (CollectionUtils.isEmpty(page)) {
+                    break;
+                }
+                for (Map<String, Object> session : page) {
+                    Object id = session.get("id");
+                    if (id != null) {
+                        sessions.put(Long.valueOf(id.toString()), session);
+                    }
+                }
+                from += page.size();
+                Object total = resultMap.get("total");
+                if (total == null || from >= Long.parseLong(total.toString())) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Failed to list livy sessions, fetch them one by one " +
+                "instead. {}", e.getMessage());
+            return null;
+        }
+        return sessions;
+    }
+
+    /**
+     * fetch livy sessions of instances concurrently with at most
+     * livy.sync.parallelism requests in flight.
+     *
+     * @param instances active job instances
+     * @return sessions fetched successfully keyed by livy session id
+     */
+    private Map<Long, Map<String, Object>> fetchLivySessions(
+        List<JobInstanceBean> instances) {
+        List<JobInstanceBean> requested = new ArrayList<>();
+        List<Future<Map<String, Object>>> futures = new ArrayList<>();
+        for (JobInstanceBean instance : instances) {
+            Long sessionId = instance.getSessionId();
+            if (sessionId != null) {
+                requested.add(instance);
+                futures.add(syncExecutor.submit(() -> getLivySession(
+                    sessionId)));
+            }
+        }
+        Map<Long, Map<String, Object>> sessions = new HashMap<>();
+        for (int i = 0; i < futures.size(); i++) {
+            JobInstanceBean instance = requested.get(i);
+            try {
+                Map<String, Object> session = futures.get(i).get();
+                if (session != null) {
+                    sessions.put(instance.getSessionId(), session);
+                }
+            } catch (ExecutionException e) {
+                handleSyncException(instance, e.getCause());
+            } catch (InterruptedException e) {
+                LOGGER.warn("Interrupted while syncing livy sessions.");
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return sessions;
+    }
+
+    private Map<String, Object> getLivySession(Long sessionId)
+        throws IOException {
+        String uri = env.getProperty("livy.uri") + "/" + sessionId;
+        TypeReference<HashMap<String, Object>> type =
+            new TypeReference<HashMap<String, Object>>() {
+            };
+        String resultStr = restTemplate.getForObject(uri, String.class);
+        return JsonUtil.toEntity(resultStr, type);
     }
 
     /**
@@ -516,28 +677,30 @@ public class JobServiceImpl implements JobService {
         if (instance.getSessionId() == null) {
             return;
         }
-        String uri = env.getProperty("livy.uri") + "/"
-            + instance.getSessionId();
-        TypeReference<HashMap<String, Object>> type =
-            new TypeReference<HashMap<String, Object>>() {
-            };
         try {
-            String resultStr = restTemplate.getForObject(uri, String.class);
-            HashMap<String, Object> resultMap = JsonUtil.toEntity(resultStr,
-                type);
-            setJobInstanceIdAndUri(instance, resultMap);
-        } catch (ResourceAccessException e) {
-            LOGGER.error("Your url may be wrong. Please check {}.\n {}", uri, e
-                .getMessage());
-        } catch (HttpClientErrorException e) {
+            Map<String, Object> resultMap = getLivySession(
+                instance.getSessionId());
+            if (updateInstance(instance, resultMap)) {
+                instanceRepo.save(instance);
+            }
+        } catch (Exception e) {
+            handleSyncException(instance, e);
+        }
+    }
+
+    private void handleSyncException(JobInstanceBean instance, Throwable e) {
+        if (e instanceof ResourceAccessException) {
+            LOGGER.error("Your url may be wrong. Please check {}.\n {}",
+                env.getProperty("livy.uri") + "/" + instance.getSessionId(),
+                e.getMessage());
+        } else if (e instanceof HttpClientErrorException) {
             LOGGER.warn("sessionId({}) appId({}) {}.", instance.getSessionId(),
                 instance.getAppId(), e.getMessage());
-            setStateByYarn(instance, e);
-            livyTaskSubmitHelper.decreaseCurTaskNum(instance.getId());
-        } catch (Exception e) {
+            setStateByYarn(instance, (HttpClientErrorException) e);
+            livyTaskSubmitHelper.decreaseCurTaskNum(instance.getSessionId());
+        } else {
             LOGGER.error(e.getMessage());
         }
-
     }
 
     private void setStateByYarn(JobInstanceBean instance,
@@ -588,7 +751,7 @@ public class JobServiceImpl implements JobService {
         LOGGER.warn("Spark session {} may be overdue! " +
             "Now we use yarn to update state.", instance.getSessionId());
         String yarnUrl = env.getProperty("yarn.uri");
-        boolean success = YarnNetUtil.update(yarnUrl, instance);
+        boolean success = yarnNetUtil.update(yarnUrl, instance);
         if (!success) {
             if (instance.getState().equals(UNKNOWN)) {
                 return;
@@ -599,22 +762,50 @@ public class JobServiceImpl implements JobService {
     }
 
 
-    private void setJobInstanceIdAndUri(JobInstanceBean instance, HashMap<String
-        , Object> resultMap) {
-        if (resultMap != null) {
-            Object state = resultMap.get("state");
-            Object appId = resultMap.get("appId");
-            instance.setState(state == null ? null : LivySessionStates.State
-                .valueOf(state.toString().toUpperCase
-                    ()));
-            instance.setAppId(appId == null ? null : appId.toString());
-            instance.setAppUri(appId == null ? null : env
-                .getProperty("yarn.uri") + "/cluster/app/" + appId);
-            instanceRepo.save(instance);
-            // If Livy returns to success or dead, task execution completes one,TaskNum--
-            if (SUCCESS.equals(state) || DEAD.equals(state)) {
-                livyTaskSubmitHelper.decreaseCurTaskNum(instance.getId());
-            }
+    /**
+     * apply livy session info to instance.
+     *
+     * @param instance  job instance
+     * @param resultMap livy batch info
+     * @return true if state, appId or appUri of instance changed
+     */
+    private boolean updateInstance(JobInstanceBean instance,
+                                   Map<String, Object> resultMap) {
+        if (resultMap == null) {
+            return false;
+        }
+        Object state = resultMap.get("state");
+        Object appId = resultMap.get("appId");
+        State newState = toState(state);
+        String newAppId = appId == null ? null : appId.toString();
+        String newAppUri = appId == null ? null : env
+            .getProperty("yarn.uri") + "/cluster/app/" + appId;
+        boolean changed = !Objects.equals(newState, instance.getState())
+            || !Objects.equals(newAppId, instance.getAppId())
+            || !Objects.equals(newAppUri, instance.getAppUri());
+        instance.setState(newState);
+        instance.setAppId(newAppId);
+        instance.setAppUri(newAppUri);
+        if (newState != null) {
+            livyTaskSubmitHelper.updateTaskState(instance.getSessionId(),
+                newState);
+        }
+        return changed;
+    }
+
+    /**
+     * @param state batch state from livy
+     * @return state of instance, UNKNOWN if it is not recognized
+     */
+    private State toState(Object state) {
+        if (state == null) {
+            return null;
+        }
+        try {
+            return State.valueOf(state.toString().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Unknown livy state {}.", state);
+            return UNKNOWN;
         }
     }
 
@@ -0,0 +1,143 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job;
+
+import static org.apache.griffin.core.util.JsonUtil.toEntity;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.griffin.core.job.entity.LivySessionStates;
+import org.apache.griffin.core.job.repo.JobInstanceRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Resolve yarn application id of submitted livy batches in background.
+ * Livy assigns the appId some time after a batch is created, so instead of
+ * blocking the submitter the batch is polled with exponential backoff until
+ * the appId shows up, the batch is no longer active or retries run out.
+ */
+@Component
+public class LivyAppIdTracker {
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(LivyAppIdTracker.class);
+    private static final long MAX_RETRY_INTERVAL = 30000;
+
+    @Autowired
+    private RestTemplate restTemplate;
+    @Autowired
+    private JobInstanceRepo instanceRepo;
+    @Autowired
+    private Environment env;
+
+    @Value("${livy.task.appId.retry.count:10}")
+    private int appIdRetryCount;
+    @Value("${livy.task.appId.retry.interval.ms:1000}")
+    private long retryInterval;
+    @Value("${livy.task.appId.tracker.threads:2}")
+    private int threadCount;
+
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newScheduledThreadPool(Math.max(1, threadCount));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Start resolving appId of a livy batch.
+     *
+     * @param instanceId job instance id
+     * @param sessionId  livy batch id
+     */
+    public void track(Long instanceId, Long sessionId) {
+        if (instanceId == null || sessionId == null || appIdRetryCount <= 0) {
+            return;
+        }
+        schedule(instanceId, sessionId, 1, retryInterval);
+    }
+
+    private void schedule(Long instanceId, Long sessionId, int attempt,
+                          long delay) {
+        executor.schedule(() -> resolve(instanceId, sessionId, attempt,
+                delay), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void resolve(Long instanceId, Long sessionId, int attempt,
+                         long delay) {
+        try {
+            String uri = env.getProperty("livy.uri") + "/" + sessionId;
+            String result = restTemplate.getForObject(uri, String.class);
+            Map<String, Object> resultMap = result == null ? null :
+                    toEntity(result,
+                            new TypeReference<HashMap<String, Object>>() {
+                            });
+            Object appId = resultMap != null ? resultMap.get("appId") : null;
+            if (appId != null) {
+                updateAppId(instanceId, appId.toString());
+                return;
+            }
+            Object state = resultMap != null ? resultMap.get("state") : null;
+            if (state != null && !LivySessionStates.isActive(
+                    LivySessionStates.State.valueOf(state.toString()
+                            .toUpperCase()))) {
+                LOGGER.info("Livy batch {} is {} without appId.", sessionId,
+                        state);
+                return;
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Failed to get appId of livy batch {}. {}", sessionId,
+                    e.getMessage());
+        }
+        if (attempt < appIdRetryCount) {
+            schedule(instanceId, sessionId, attempt + 1,
+                    Math.min(delay * 2, MAX_RETRY_INTERVAL));
+        } else {
+            LOGGER.warn("Give up resolving appId of livy batch {} after {} " +
+                    "attempts.", sessionId, attempt);
+        }
+    }
+
+    private void updateAppId(Long instanceId, String appId) {
+        String appUri = env.getProperty("yarn.uri") + "/cluster/app/" + appId;
+        if (instanceRepo.updateAppIdIfAbsent(instanceId, appId, appUri) > 0) {
+            LOGGER.info("Resolved appId {} of job instance {}.", appId,
+                    instanceId);
+        }
+    }
+}
@@ -19,60 +19,95 @@ under the License.
 
 package org.apache.griffin.core.job;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.BlockingQueue;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
+import static org.apache.griffin.core.job.JobInstance.PRIORITY_KEY;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.BUSY;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.IDLE;
 import static org.apache.griffin.core.job.entity.LivySessionStates.State.NOT_FOUND;
-import static org.apache.griffin.core.util.JsonUtil.toEntity;
-
-import org.apache.commons.collections.map.HashedMap;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.NOT_STARTED;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.RECOVERING;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.RUNNING;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.STARTING;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.WAITING;
+import static org.quartz.JobKey.jobKey;
+
+import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.LivySessionStates;
+import org.apache.griffin.core.job.entity.LivySessionStates.State;
+import org.apache.griffin.core.job.repo.JobInstanceRepo;
 import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.SchedulerException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.core.env.Environment;
+import org.springframework.scheduling.quartz.SchedulerFactoryBean;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
+/**
+ * Livy submission scheduler.
+ * <p>
+ * Predicate-ready jobs wait in a priority queue ordered by job priority and
+ * waiting time. Submitter threads take one permit per running livy batch, so
+ * they block while livy.task.max.concurrent.count batches are running and
+ * wake up as soon as one of them finishes. Waiting instances are persisted
+ * with state WAITING and are queued again after restart.
+ */
 @Component
 public class LivyTaskSubmitHelper {
 
     private static final Logger logger = LoggerFactory.getLogger(LivyTaskSubmitHelper.class);
 
     private static final String REQUEST_BY_HEADER = "X-Requested-By";
-    private SparkSubmitJob sparkSubmitJob;
     private ConcurrentMap<Long, Integer> taskAppIdMap = new ConcurrentHashMap<>();
-    // Current number of tasks
-    private AtomicInteger curConcurrentTaskNum = new AtomicInteger(0);
     private String workerNamePre;
-    private RestTemplate restTemplate = new RestTemplate();
     // queue for pub or sub
-    private BlockingQueue<JobDetail> queue;
+    private PriorityBlockingQueue<SubmitTask> queue;
+    // predicate jobs in queue or being submitted
+    private Set<JobKey> queuedKeys = ConcurrentHashMap.newKeySet();
+    // permits of livy batches which can still be submitted
+    private Semaphore permits;
+    private ExecutorService executorService;
+    private AtomicLong sequence = new AtomicLong();
     public static final int DEFAULT_QUEUE_SIZE = 20000;
-    private static final int SLEEP_TIME = 300;
     private String uri;
 
     @Value("${livy.task.max.concurrent.count:20}")
     private int maxConcurrentTaskCount;
-    @Value("${livy.task.submit.interval.second:3}")
+    @Value("${livy.task.submit.interval.second:0}")
     private int batchIntervalSecond;
-
+    @Value("${livy.task.submit.threads:4}")
+    private int submitThreadCount;
+    @Value("${livy.task.priority.weight.second:600}")
+    private long priorityWeightSecond;
+    @Value("${livy.need.queue:false}")
+    private boolean isNeedLivyQueue;
 
     @Autowired
     private Environment env;
+    @Autowired
+    private AutowireCapableBeanFactory beanFactory;
+    @Autowired
+    private SchedulerFactoryBean factory;
+    @Autowired
+    private JobInstanceRepo instanceRepo;
+    @Autowired
+    private PredicateWatcher predicateWatcher;
 
     /**
      * Initialize related parameters and open consumer threads.
@@ -82,6 +117,16 @@ public class LivyTaskSubmitHelper {
         startWorker();
         uri = env.getProperty("livy.uri");
         logger.info("Livy uri : {}", uri);
+        if (isNeedLivyQueue) {
+            recoverWaitingTasks();
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
     }
 
     public LivyTaskSubmitHelper() {
@@ -89,66 +134,192 @@ public class LivyTaskSubmitHelper {
     }
 
     /**
-     * Initialize blocking queues and start consumer threads.
+     * Initialize priority queue and start submitter threads.
      */
     public void startWorker() {
-        queue = new LinkedBlockingQueue<>(DEFAULT_QUEUE_SIZE);
-        ExecutorService executorService = Executors.newSingleThreadExecutor();
-        TaskInner taskInner = new TaskInner(executorService);
-        executorService.execute(taskInner);
+        queue = new PriorityBlockingQueue<>();
+        permits = new Semaphore(maxConcurrentTaskCount, true);
+        int threads = Math.max(1, submitThreadCount);
+        executorService = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            executorService.execute(new TaskInner());
+        }
     }
 
     /**
      * Put job detail into the queue.
      *
      * @param jd job detail.
+     * @return false if queue is full and the task is discarded
      */
-    public void addTaskToWaitingQueue(JobDetail jd) throws IOException {
+    public boolean addTaskToWaitingQueue(JobDetail jd) {
         if (jd == null) {
             logger.warn("task is blank, workerNamePre: {}", workerNamePre);
-            return;
+            return true;
         }
 
-        if (queue.remainingCapacity() <= 0) {
+        if (queue.size() >= DEFAULT_QUEUE_SIZE) {
             logger.warn("task is discard, workerNamePre: {}, task: {}", workerNamePre, jd);
-            sparkSubmitJob.saveJobInstance(null, NOT_FOUND);
-            return;
+            return false;
         }
 
-        queue.add(jd);
+        if (!queuedKeys.add(jd.getKey())) {
+            logger.debug("task is already queued, workerNamePre: {}, task: {}",
+                    workerNamePre, jd.getKey());
+            return true;
+        }
+        int priority = jd.getJobDataMap().containsKey(PRIORITY_KEY)
+                ? jd.getJobDataMap().getIntValue(PRIORITY_KEY) : 0;
+        queue.add(new SubmitTask(jd.getKey(), priority,
+                System.currentTimeMillis()));
 
         logger.info("add_task_to_waiting_queue_success, workerNamePre: {}, task: {}",
-                workerNamePre, jd);
+                workerNamePre, jd.getKey());
+        return true;
     }
 
     /**
-     * Consumer thread.
+     * Queue instances which were waiting for submission before restart.
      */
-    class TaskInner implements Runnable {
-        private ExecutorService es;
+    private void recoverWaitingTasks() {
+        try {
+            List<JobInstanceBean> instances = instanceRepo.findByState(WAITING);
+            for (JobInstanceBean instance : instances) {
+                JobKey key = jobKey(instance.getPredicateName(),
+                        instance.getPredicateGroup());
+                JobDetail jd = getJobDetail(key);
+                if (jd != null && addTaskToWaitingQueue(jd)) {
+                    continue;
+                }
+                logger.warn("Waiting task {} cannot be recovered.", key);
+                instance.setState(NOT_FOUND);
+                instanceRepo.save(instance);
+            }
+            // batches submitted before restart still hold livy slots
+            State[] states = {STARTING, NOT_STARTED, RECOVERING, IDLE,
+                    RUNNING, BUSY};
+            for (JobInstanceBean instance : instanceRepo.findByActiveState(
+                    states)) {
+                if (instance.getSessionId() != null && permits.tryAcquire()) {
+                    increaseCurTaskNum(instance.getSessionId());
+                }
+            }
+            logger.info("Recovered {} waiting livy tasks.", queue.size());
+        } catch (Exception e) {
+            logger.error("Failed to recover waiting livy tasks. {}",
+                    e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param key predicate job key
+     * @return detail of predicate job kept by predicate watcher, or by
+     * quartz for jobs created before predicate watcher
+     */
+    private JobDetail getJobDetail(JobKey key) throws SchedulerException {
+        JobDetail jd = predicateWatcher.getJobDetail(key);
+        return jd != null ? jd : factory.getScheduler().getJobDetail(key);
+    }
+
+    /**
+     * Queued predicate job. Higher priority is treated as having waited
+     * livy.task.priority.weight.second longer per priority level.
+     */
+    class SubmitTask implements Comparable<SubmitTask> {
+        private final JobKey key;
+        private final long rank;
+        private final long seq;
+
+        SubmitTask(JobKey key, int priority, long insertTime) {
+            this.key = key;
+            this.rank = insertTime - priority * priorityWeightSecond * 1000;
+            this.seq = sequence.incrementAndGet();
+        }
 
-        public TaskInner(ExecutorService es) {
-            this.es = es;
+        @Override
+        public int compareTo(SubmitTask other) {
+            int result = Long.compare(rank, other.rank);
+            return result != 0 ? result : Long.compare(seq, other.seq);
         }
+    }
+
+    /**
+     * Submitter thread.
+     */
+    class TaskInner implements Runnable {
 
         public void run() {
-            long insertTime = System.currentTimeMillis();
-            while (true) {
+            while (!Thread.currentThread().isInterrupted()) {
                 try {
-                    if (curConcurrentTaskNum.get() < maxConcurrentTaskCount
-                            && (System.currentTimeMillis() - insertTime) >= batchIntervalSecond * 1000) {
-                        JobDetail jd = queue.take();
-                        sparkSubmitJob.saveJobInstance(jd);
-                        insertTime = System.currentTimeMillis();
-                    } else {
-                        Thread.sleep(SLEEP_TIME);
+                    permits.acquire();
+                    SubmitTask task;
+                    try {
+                        task = queue.take();
+                    } catch (InterruptedException e) {
+                        permits.release();
+                        throw e;
                     }
+                    submit(task);
+                    if (batchIntervalSecond > 0) {
+                        Thread.sleep(batchIntervalSecond * 1000L);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                 } catch (Exception e) {
                     logger.error("Async_worker_doTask_failed, {}", e.getMessage(), e);
-                    es.execute(this);
                 }
             }
         }
+
+        private void submit(SubmitTask task) {
+            Long batchId = null;
+            try {
+                JobDetail jd = getJobDetail(task.key);
+                if (jd == null) {
+                    logger.warn("task {} no longer exists.", task.key);
+                    markNotFound(task.key);
+                    return;
+                }
+                // a fresh job per submission, as it keeps submission state
+                SparkSubmitJob sparkSubmitJob = beanFactory.createBean(
+                        SparkSubmitJob.class);
+                batchId = sparkSubmitJob.submit(jd);
+            } catch (Exception e) {
+                logger.error("Failed to submit task {}. {}", task.key,
+                        e.getMessage(), e);
+            } finally {
+                queuedKeys.remove(task.key);
+                // the permit is released by decreaseCurTaskNum when the
+                // batch finishes, or right now if no batch was created
+                if (batchId == null) {
+                    permits.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop the queued task of a paused or deleted predicate job.
+     *
+     * @param key predicate job key
+     */
+    public void removeTask(JobKey key) {
+        if (queue.removeIf(task -> task.key.equals(key))) {
+            queuedKeys.remove(key);
+            logger.info("task {} is removed from waiting queue.", key);
+        }
+    }
+
+    /**
+     * The instance of a job detail which is gone will never be submitted.
+     */
+    private void markNotFound(JobKey key) {
+        JobInstanceBean instance = instanceRepo.findByPredicateName(
+                key.getName());
+        if (instance != null && WAITING.equals(instance.getState())) {
+            instance.setState(NOT_FOUND);
+            instanceRepo.save(instance);
+        }
     }
 
     /**
@@ -157,68 +328,33 @@ public class LivyTaskSubmitHelper {
      * @param scheduleId livy batch id.
      */
     public void increaseCurTaskNum(Long scheduleId) {
-        curConcurrentTaskNum.incrementAndGet();
         if (scheduleId != null) {
             taskAppIdMap.put(scheduleId, 1);
         }
     }
 
     /**
-     * Remove tasks after job status updates.
+     * Release the livy slot of a batch once it is no longer active, whatever
+     * terminal state it ends with.
      *
      * @param scheduleId livy batch id.
+     * @param state      latest state of the batch.
      */
-    public void decreaseCurTaskNum(Long scheduleId) {
-        if (scheduleId != null && taskAppIdMap.containsKey(scheduleId)) {
-            curConcurrentTaskNum.decrementAndGet();
-            taskAppIdMap.remove(scheduleId);
+    public void updateTaskState(Long scheduleId, State state) {
+        if (!LivySessionStates.isActive(state)) {
+            decreaseCurTaskNum(scheduleId);
         }
     }
 
-    protected Map<String, Object> retryLivyGetAppId(String result, int appIdRetryCount)
-            throws IOException {
-
-        int retryCount = appIdRetryCount;
-        TypeReference<HashMap<String, Object>> type =
-                new TypeReference<HashMap<String, Object>>() {
-                };
-        Map<String, Object> resultMap = toEntity(result, type);
-
-        if (retryCount <= 0) {
-            return null;
-        }
-
-        if (resultMap.get("appId") != null) {
-            return resultMap;
-        }
-
-        Object livyBatchesId = resultMap.get("id");
-        if (livyBatchesId == null) {
-            return resultMap;
-        }
-
-        while (retryCount-- > 0) {
-            try {
-                Thread.sleep(SLEEP_TIME);
-            } catch (InterruptedException e) {
-                logger.error(e.getMessage(), e);
-            }
-            resultMap = getResultByLivyId(livyBatchesId, type);
-            logger.info("retry get livy resultMap: {}, batches id : {}", resultMap, livyBatchesId);
-
-            if (resultMap.get("appId") != null) {
-                break;
-            }
+    /**
+     * Remove tasks after job status updates.
+     *
+     * @param scheduleId livy batch id.
+     */
+    public void decreaseCurTaskNum(Long scheduleId) {
+        if (scheduleId != null && taskAppIdMap.remove(scheduleId) != null) {
+            permits.release();
         }
-
-        return resultMap;
-    }
-
-    private Map<String, Object> getResultByLivyId(Object livyBatchesId, TypeReference<HashMap<String, Object>> type)
-            throws IOException {
-        Map<String, Object> resultMap = new HashedMap();
-        String newResult = restTemplate.getForObject(uri + "/" + livyBatchesId, String.class);
-        return newResult == null ? resultMap : toEntity(newResult, type);
     }
 
 }
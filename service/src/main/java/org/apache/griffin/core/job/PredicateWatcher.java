@@ -0,0 +1,267 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job;
+
+import static org.apache.griffin.core.job.JobInstance.JOB_NAME;
+import static org.apache.griffin.core.job.JobInstance.MEASURE_KEY;
+import static org.apache.griffin.core.job.JobInstance.PREDICATES_KEY;
+import static org.apache.griffin.core.job.JobInstance.PREDICATE_JOB_NAME;
+import static org.apache.griffin.core.job.JobInstance.PRIORITY_KEY;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.NOT_FOUND;
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.JobKey.jobKey;
+
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.PredicateTask;
+import org.apache.griffin.core.job.repo.JobInstanceRepo;
+import org.apache.griffin.core.job.repo.PredicateTaskRepo;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process replacement of the predicate quartz jobs.
+ * <p>
+ * One timer thread schedules predicate checks of pending job instances and a
+ * bounded worker pool evaluates them. Once predicates are satisfied the
+ * instance is handed to SparkSubmitJob, which submits it to livy or queues
+ * it. Pending checks are persisted as PredicateTask rows, so they survive
+ * restart without touching the quartz tables.
+ * <p>
+ * Every node of a cluster recovers all tasks, but a task is only polled by
+ * the node holding its claim. The others look at it again once in a while,
+ * and take it over when the claim expires. Task rows are only updated while
+ * the claim is held, so a task cancelled meanwhile is never saved again.
+ */
+@Component
+public class PredicateWatcher {
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(PredicateWatcher.class);
+    static final String PREDICATE_GROUP = "PG";
+    private static final long REJECTED_RETRY_INTERVAL = 1000;
+
+    @Value("${predicate.watcher.threads:8}")
+    private int workerCount;
+    @Value("${predicate.watcher.queue.size:10000}")
+    private int workerQueueSize;
+    @Value("${predicate.watcher.claim.timeout.ms:600000}")
+    private long claimTimeout;
+
+    @Autowired
+    private PredicateTaskRepo taskRepo;
+    @Autowired
+    private JobInstanceRepo instanceRepo;
+    @Autowired
+    private AutowireCapableBeanFactory beanFactory;
+
+    private ScheduledExecutorService timer;
+    private ThreadPoolExecutor workers;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @PostConstruct
+    public void init() {
+        timer = Executors.newSingleThreadScheduledExecutor(
+                threadFactory("predicate-watcher-timer"));
+        int threads = Math.max(1, workerCount);
+        workers = new ThreadPoolExecutor(threads, threads, 0,
+                TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(
+                Math.max(1, workerQueueSize)),
+                threadFactory("predicate-watcher-worker"));
+        recover();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        timer.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Persist a predicate task and check it right away.
+     *
+     * @param task predicate task of a new job instance
+     */
+    public void watch(PredicateTask task) {
+        task.setNextCheckTime(System.currentTimeMillis());
+        PredicateTask saved = taskRepo.save(task);
+        schedule(saved.getId(), 0);
+    }
+
+    /**
+     * Stop watching a predicate task, it is a no-op if there is no such task.
+     *
+     * @param predicateName predicate job name of job instance
+     */
+    public void cancel(String predicateName) {
+        taskRepo.deleteByPredicateName(predicateName);
+    }
+
+    /**
+     * @param key predicate job key
+     * @return detail built from the predicate task, or null if there is no
+     * such task
+     */
+    public JobDetail getJobDetail(JobKey key) {
+        if (!PREDICATE_GROUP.equals(key.getGroup())) {
+            return null;
+        }
+        PredicateTask task = taskRepo.findByPredicateName(key.getName());
+        return task != null ? toJobDetail(task) : null;
+    }
+
+    static JobDetail toJobDetail(PredicateTask task) {
+        return newJob(SparkSubmitJob.class)
+                .withIdentity(jobKey(task.getPredicateName(),
+                        PREDICATE_GROUP))
+                .usingJobData(MEASURE_KEY, task.getMeasure())
+                .usingJobData(PREDICATES_KEY, task.getPredicates())
+                .usingJobData(JOB_NAME, task.getJobName())
+                .usingJobData(PREDICATE_JOB_NAME, task.getPredicateName())
+                .usingJobData(PRIORITY_KEY,
+                        String.valueOf(task.getPriority()))
+                .build();
+    }
+
+    /**
+     * Reschedule pending tasks after restart. Ready tasks are queued for
+     * livy submission and are recovered by LivyTaskSubmitHelper.
+     */
+    private void recover() {
+        try {
+            long now = System.currentTimeMillis();
+            int count = 0;
+            for (PredicateTask task : taskRepo.findAll()) {
+                if (!task.isReady()) {
+                    Long next = task.getNextCheckTime();
+                    schedule(task.getId(), next == null ? 0 : next - now);
+                    count++;
+                }
+            }
+            LOGGER.info("Recovered {} predicate tasks.", count);
+        } catch (Exception e) {
+            LOGGER.error("Failed to recover predicate tasks. {}",
+                    e.getMessage(), e);
+        }
+    }
+
+    private void schedule(Long id, long delay) {
+        timer.schedule(() -> dispatch(id), Math.max(0, delay),
+                TimeUnit.MILLISECONDS);
+    }
+
+    private void dispatch(Long id) {
+        try {
+            workers.execute(() -> check(id));
+        } catch (RejectedExecutionException e) {
+            if (!workers.isShutdown()) {
+                LOGGER.debug("Predicate workers are busy, retry task {}.", id);
+                schedule(id, REJECTED_RETRY_INTERVAL);
+            }
+        }
+    }
+
+    void check(Long id) {
+        try {
+            PredicateTask task = taskRepo.findOne(id);
+            if (task == null || task.isReady()) {
+                // cancelled as job instance is paused, deleted or submitted
+                return;
+            }
+            long interval = task.getInterval();
+            long now = System.currentTimeMillis();
+            if (taskRepo.claim(id, nodeId, now + interval + claimTimeout,
+                    now) == 0) {
+                // polled by another node, look again in case it is gone
+                schedule(id, Math.max(interval, REJECTED_RETRY_INTERVAL));
+                return;
+            }
+            if (isSatisfied(task)) {
+                // task still exists if it waits in livy submission queue
+                taskRepo.markReady(id, nodeId);
+                return;
+            }
+            task.setTimesChecked(task.getTimesChecked() + 1);
+            if (task.getTimesChecked() > task.getRepeatCount()) {
+                expire(task);
+                return;
+            }
+            // no row is updated if the task is cancelled meanwhile
+            if (taskRepo.updateCheck(id, nodeId, task.getTimesChecked(),
+                    System.currentTimeMillis() + interval) > 0) {
+                schedule(id, interval);
+            }
+        } catch (Exception e) {
+            LOGGER.error("Failed to check predicate task {}. {}", id,
+                    e.getMessage(), e);
+        }
+    }
+
+    private boolean isSatisfied(PredicateTask task) {
+        try {
+            // a fresh job per check, as it keeps submission state
+            SparkSubmitJob sparkSubmitJob = beanFactory.createBean(
+                    SparkSubmitJob.class);
+            return sparkSubmitJob.checkAndSubmit(toJobDetail(task));
+        } catch (Exception e) {
+            LOGGER.error("Failed to check predicates of {}. {}",
+                    task.getPredicateName(), e.getMessage(), e);
+            return false;
+        }
+    }
+
+    private void expire(PredicateTask task) {
+        LOGGER.info("Predicates of {} are not satisfied after {} checks.",
+                task.getPredicateName(), task.getTimesChecked());
+        JobInstanceBean instance = instanceRepo.findByPredicateName(task
+                .getPredicateName());
+        if (instance != null) {
+            instance.setState(NOT_FOUND);
+            instance.setPredicateDeleted(true);
+            instanceRepo.save(instance);
+        }
+        taskRepo.deleteByPredicateName(task.getPredicateName());
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger index = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + index.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -27,8 +27,10 @@ import static org.apache.griffin.core.job.JobInstance.MEASURE_KEY;
 import static org.apache.griffin.core.job.JobInstance.PREDICATES_KEY;
 import static org.apache.griffin.core.job.JobInstance.PREDICATE_JOB_NAME;
 import static org.apache.griffin.core.job.entity.LivySessionStates.State;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.FINDING;
 import static org.apache.griffin.core.job.entity.LivySessionStates.State.FOUND;
 import static org.apache.griffin.core.job.entity.LivySessionStates.State.NOT_FOUND;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.WAITING;
 import static org.apache.griffin.core.measure.entity.GriffinMeasure.ProcessType.BATCH;
 import static org.apache.griffin.core.util.JsonUtil.toEntity;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -84,39 +86,79 @@ public class SparkSubmitJob implements Job {
     private Environment env;
     @Autowired
     private LivyTaskSubmitHelper livyTaskSubmitHelper;
+    @Autowired
+    private LivyAppIdTracker appIdTracker;
+    @Autowired
+    private RestTemplate restTemplate;
 
     @Value("${livy.need.queue:false}")
     private boolean isNeedLivyQueue;
-    @Value("${livy.task.appId.retry.count:3}")
-    private int appIdRetryCount;
 
     private GriffinMeasure measure;
     private String livyUri;
     private List<SegmentPredicate> mPredicates;
     private JobInstanceBean jobInstance;
-    private RestTemplate restTemplate = new RestTemplate();
+    private Map<String, Object> livyConf;
 
     @Override
     public void execute(JobExecutionContext context) {
         JobDetail jd = context.getJobDetail();
         try {
-            initParam(jd);
-            setLivyConf();
-            if (!success(mPredicates)) {
+            if (!checkAndSubmit(jd)) {
                 updateJobInstanceState(context);
-                return;
-            }
-            if (isNeedLivyQueue) {
-                //livy batch limit
-                livyTaskSubmitHelper.addTaskToWaitingQueue(jd);
-            } else {
-                saveJobInstance(jd);
             }
         } catch (Exception e) {
             LOGGER.error("Post spark task ERROR.", e);
         }
     }
 
+    /**
+     * Check predicates of a predicate job, and submit it to livy or queue it
+     * if they are all satisfied.
+     *
+     * @param jd predicate job detail
+     * @return false if predicates are not satisfied yet
+     */
+    boolean checkAndSubmit(JobDetail jd) throws Exception {
+        initParam(jd);
+        if (!success(mPredicates)) {
+            return false;
+        }
+        setLivyConf();
+        if (isNeedLivyQueue) {
+            //livy batch limit
+            addTaskToWaitingQueue(jd);
+        } else {
+            saveJobInstance(jd);
+        }
+        return true;
+    }
+
+    /**
+     * Submit a queued predicate job to livy.
+     *
+     * @param jd predicate job detail
+     * @return livy batch id, or null if no batch is created
+     */
+    Long submit(JobDetail jd) throws Exception {
+        initParam(jd);
+        setLivyConf();
+        return saveJobInstance(jd);
+    }
+
+    private void addTaskToWaitingQueue(JobDetail jd) throws IOException,
+            SchedulerException {
+        if (!livyTaskSubmitHelper.addTaskToWaitingQueue(jd)) {
+            saveJobInstance(null, NOT_FOUND);
+            batchJobOp.deleteJob(jd.getKey().getGroup(), jd.getKey()
+                    .getName());
+        } else if (jobInstance != null && jobInstance.getState() == FINDING) {
+            // persist waiting state so that it can be queued after restart
+            jobInstance.setState(WAITING);
+            jobInstanceRepo.save(jobInstance);
+        }
+    }
+
     private void updateJobInstanceState(JobExecutionContext context) throws
             IOException {
         SimpleTrigger simpleTrigger = (SimpleTrigger) context.getTrigger();
@@ -134,7 +176,7 @@ public class SparkSubmitJob implements Job {
             headers.setContentType(MediaType.APPLICATION_JSON);
             headers.set(REQUEST_BY_HEADER,"admin");
 
-            HttpEntity<String> springEntity = new HttpEntity<String>(toJsonWithFormat(livyConfMap),headers);
+            HttpEntity<String> springEntity = new HttpEntity<String>(toJsonWithFormat(livyConf),headers);
             result = restTemplate.postForObject(livyUri,springEntity,String.class);
 
             LOGGER.info(result);
@@ -223,31 +265,43 @@ public class SparkSubmitJob implements Job {
         LOGGER.info(finalMeasureJson);
         args.add(finalMeasureJson);
         args.add("raw,raw");
-        livyConfMap.put("args", args);
+        // copy global livy conf as jobs may be submitted concurrently
+        livyConf = new HashMap<>(livyConfMap);
+        livyConf.put("args", args);
     }
 
 
-    protected void saveJobInstance(JobDetail jd) throws SchedulerException,
+    protected Long saveJobInstance(JobDetail jd) throws SchedulerException,
             IOException {
         // If result is null, it may livy uri is wrong
         // or livy parameter is wrong.
-        Map<String, Object> resultMap = post2LivyWithRetry();
+        Map<String, Object> resultMap = post2LivyAndParse();
         String group = jd.getKey().getGroup();
         String name = jd.getKey().getName();
         batchJobOp.deleteJob(group, name);
         LOGGER.info("Delete predicate job({},{}) SUCCESS.", group, name);
         setJobInstance(resultMap, FOUND);
         jobInstanceRepo.save(jobInstance);
+        Long sessionId = jobInstance.getSessionId();
+        if (sessionId != null && jobInstance.getAppId() == null) {
+            // livy assigns appId later, resolve it without blocking submission
+            appIdTracker.track(jobInstance.getId(), sessionId);
+        }
+        return sessionId;
     }
 
-    private Map<String, Object> post2LivyWithRetry()
+    private Map<String, Object> post2LivyAndParse()
             throws IOException {
         String result = post2Livy();
         Map<String, Object> resultMap = null;
         if (result != null) {
-            resultMap = livyTaskSubmitHelper.retryLivyGetAppId(result,appIdRetryCount);
-            if (resultMap != null) {
-                livyTaskSubmitHelper.increaseCurTaskNum(Long.valueOf(String.valueOf(resultMap.get("id"))).longValue());
+            resultMap = toEntity(result,
+                    new TypeReference<HashMap<String, Object>>() {
+                    });
+            Object id = resultMap != null ? resultMap.get("id") : null;
+            if (id != null && isNeedLivyQueue) {
+                livyTaskSubmitHelper.increaseCurTaskNum(Long.valueOf(id
+                        .toString()));
             }
         }
 
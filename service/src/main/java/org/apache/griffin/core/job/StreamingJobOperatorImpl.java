@@ -72,13 +72,15 @@ public class StreamingJobOperatorImpl implements JobOperator {
     private JobInstanceRepo instanceRepo;
     @Autowired
     private SchedulerFactoryBean factory;
+    @Autowired
+    private RestTemplate restTemplate;
+    @Autowired
+    private YarnNetUtil yarnNetUtil;
 
     private String livyUri;
-    private RestTemplate restTemplate;
 
     @PostConstruct
     public void init() {
-        restTemplate = new RestTemplate();
         livyUri = env.getProperty("livy.uri");
     }
 
@@ -242,7 +244,7 @@ public class StreamingJobOperatorImpl implements JobOperator {
         } catch (RestClientException e) {
             LOGGER.warn("sessionId({}) appId({}) {}.", instance.getSessionId(),
                     instance.getAppId(), e.getMessage());
-            YarnNetUtil.delete(env.getProperty("yarn.uri"),
+            yarnNetUtil.delete(env.getProperty("yarn.uri"),
                     instance.getAppId());
         }
     }
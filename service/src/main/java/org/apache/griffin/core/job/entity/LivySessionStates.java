@@ -30,6 +30,7 @@ import static org.apache.griffin.core.job.entity.LivySessionStates.State.STARTIN
 import static org.apache.griffin.core.job.entity.LivySessionStates.State.STOPPED;
 import static org.apache.griffin.core.job.entity.LivySessionStates.State.SUCCESS;
 import static org.apache.griffin.core.job.entity.LivySessionStates.State.UNKNOWN;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.WAITING;
 
 import com.cloudera.livy.sessions.SessionState;
 import com.google.gson.JsonElement;
@@ -39,6 +40,7 @@ public class LivySessionStates {
 
     /**
      * UNKNOWN is used to represent the state that server get null from Livy.
+     * WAITING means data is ready and the job is queued for livy submission.
      * the other state is just same as com.cloudera.livy.sessions.SessionState.
      */
     public enum State {
@@ -56,7 +58,8 @@ public class LivySessionStates {
         STOPPED,
         FINDING,
         NOT_FOUND,
-        FOUND
+        FOUND,
+        WAITING
     }
 
     private static SessionState toSessionState(State state) {
@@ -130,7 +133,7 @@ public class LivySessionStates {
                 (state) || FOUND.equals(state)) {
             // set UNKNOWN isActive() as false.
             return false;
-        } else if (FINDING.equals(state)) {
+        } else if (FINDING.equals(state) || WAITING.equals(state)) {
             return true;
         }
         SessionState sessionState = toSessionState(state);
@@ -0,0 +1,183 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Lob;
+
+import org.apache.griffin.core.measure.entity.AbstractAuditableEntity;
+
+/**
+ * Pending predicate check of a job instance, owned by PredicateWatcher.
+ * It holds what a predicate quartz job used to keep in its job data map,
+ * together with the polling state.
+ */
+@Entity
+public class PredicateTask extends AbstractAuditableEntity {
+
+    private static final long serialVersionUID = -3178204573184092875L;
+
+    @Column(name = "predicate_job_name", unique = true)
+    private String predicateName;
+
+    private String jobName;
+
+    @Lob
+    private String measure;
+
+    @Lob
+    private String predicates;
+
+    private int priority;
+
+    @Column(name = "check_interval")
+    private Long interval;
+
+    private int repeatCount;
+
+    private int timesChecked;
+
+    private Long nextCheckTime;
+
+    /**
+     * Predicates are satisfied and the instance is submitted or queued.
+     */
+    private boolean ready = false;
+
+    /**
+     * Service node polling the task, and when its lease expires, so that
+     * only one node of a cluster polls it.
+     */
+    private String claimedBy;
+
+    private Long claimExpireTime;
+
+    public String getPredicateName() {
+        return predicateName;
+    }
+
+    public void setPredicateName(String predicateName) {
+        this.predicateName = predicateName;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public void setJobName(String jobName) {
+        this.jobName = jobName;
+    }
+
+    public String getMeasure() {
+        return measure;
+    }
+
+    public void setMeasure(String measure) {
+        this.measure = measure;
+    }
+
+    public String getPredicates() {
+        return predicates;
+    }
+
+    public void setPredicates(String predicates) {
+        this.predicates = predicates;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    public Long getInterval() {
+        return interval;
+    }
+
+    public void setInterval(Long interval) {
+        this.interval = interval;
+    }
+
+    public int getRepeatCount() {
+        return repeatCount;
+    }
+
+    public void setRepeatCount(int repeatCount) {
+        this.repeatCount = repeatCount;
+    }
+
+    public int getTimesChecked() {
+        return timesChecked;
+    }
+
+    public void setTimesChecked(int timesChecked) {
+        this.timesChecked = timesChecked;
+    }
+
+    public Long getNextCheckTime() {
+        return nextCheckTime;
+    }
+
+    public void setNextCheckTime(Long nextCheckTime) {
+        this.nextCheckTime = nextCheckTime;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void setReady(boolean ready) {
+        this.ready = ready;
+    }
+
+    public String getClaimedBy() {
+        return claimedBy;
+    }
+
+    public void setClaimedBy(String claimedBy) {
+        this.claimedBy = claimedBy;
+    }
+
+    public Long getClaimExpireTime() {
+        return claimExpireTime;
+    }
+
+    public void setClaimExpireTime(Long claimExpireTime) {
+        this.claimExpireTime = claimExpireTime;
+    }
+
+    public PredicateTask() {
+    }
+
+    public PredicateTask(String predicateName, String jobName, String measure,
+                         String predicates, int priority, Long interval,
+                         int repeatCount) {
+        this.predicateName = predicateName;
+        this.jobName = jobName;
+        this.measure = measure;
+        this.predicates = predicates;
+        this.priority = priority;
+        this.interval = interval;
+        this.repeatCount = repeatCount;
+    }
+}
@@ -40,6 +40,8 @@ public interface JobInstanceRepo
     @Query("select s from JobInstanceBean s where s.job.id = ?1")
     List<JobInstanceBean> findByJobId(Long jobId);
 
+    List<JobInstanceBean> findByState(State state);
+
     List<JobInstanceBean> findByExpireTmsLessThanEqual(Long expireTms);
 
     @Transactional(rollbackFor = Exception.class)
@@ -48,6 +50,18 @@ public interface JobInstanceRepo
             "where j.expireTms <= ?1 and j.deleted = false ")
     int deleteByExpireTimestamp(Long expireTms);
 
+    /**
+     * Set appId and appUri only, so that state changes saved concurrently
+     * are not overwritten.
+     *
+     * @return count of updated instances, 0 if appId is already set
+     */
+    @Transactional(rollbackFor = Exception.class)
+    @Modifying
+    @Query("update JobInstanceBean j set j.appId = ?2, j.appUri = ?3 " +
+            "where j.id = ?1 and j.appId is null")
+    int updateAppIdIfAbsent(Long id, String appId, String appUri);
+
     @Query("select DISTINCT s from JobInstanceBean s where s.state in ?1")
     List<JobInstanceBean> findByActiveState(State[] states);
 }
@@ -0,0 +1,64 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job.repo;
+
+import org.apache.griffin.core.job.entity.PredicateTask;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface PredicateTaskRepo
+        extends CrudRepository<PredicateTask, Long> {
+
+    PredicateTask findByPredicateName(String name);
+
+    @Transactional(rollbackFor = Exception.class)
+    @Modifying
+    @Query("delete from PredicateTask t where t.predicateName = ?1")
+    int deleteByPredicateName(String name);
+
+    /**
+     * Claim a pending task for a service node, unless another node holds an
+     * unexpired claim of it.
+     *
+     * @return 1 if the node holds the claim, 0 otherwise
+     */
+    @Transactional(rollbackFor = Exception.class)
+    @Modifying
+    @Query("update PredicateTask t set t.claimedBy = ?2, " +
+            "t.claimExpireTime = ?3 where t.id = ?1 and t.ready = false " +
+            "and (t.claimedBy is null or t.claimedBy = ?2 " +
+            "or t.claimExpireTime < ?4)")
+    int claim(Long id, String node, Long expireTime, Long now);
+
+    @Transactional(rollbackFor = Exception.class)
+    @Modifying
+    @Query("update PredicateTask t set t.ready = true " +
+            "where t.id = ?1 and t.claimedBy = ?2")
+    int markReady(Long id, String node);
+
+    @Transactional(rollbackFor = Exception.class)
+    @Modifying
+    @Query("update PredicateTask t set t.timesChecked = ?3, " +
+            "t.nextCheckTime = ?4 where t.id = ?1 and t.claimedBy = ?2")
+    int updateCheck(Long id, String node, int timesChecked,
+                    Long nextCheckTime);
+}
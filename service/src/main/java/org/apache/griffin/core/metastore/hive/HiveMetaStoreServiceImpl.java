@@ -23,8 +23,19 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
 import org.apache.hadoop.hive.metastore.IMetaStoreClient;
 import org.apache.hadoop.hive.metastore.api.Table;
 import org.slf4j.Logger;
@@ -52,10 +63,59 @@ public class HiveMetaStoreServiceImpl implements HiveMetaStoreService {
     @Value("${hive.metastore.dbname}")
     private String defaultDbName;
 
+    @Value("${cache.evict.hive.fixedRate.in.milliseconds:900000}")
+    private long refreshInterval;
+
+    @Value("${hive.metastore.table.batch.size:500}")
+    private int tableBatchSize;
+
+    /**
+     * Tables of each database, shared by getAllTable() and
+     * getAllTable(db). Entries are reloaded in background and served stale
+     * until reload completes, or if reload fails.
+     */
+    private LoadingCache<String, List<Table>> tableCache;
+
+    private ExecutorService reloadExecutor;
+
 
     public HiveMetaStoreServiceImpl() {
     }
 
+    @PostConstruct
+    public void init() {
+        reloadExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "hive-metadata-reload");
+            t.setDaemon(true);
+            return t;
+        });
+        tableCache = CacheBuilder.newBuilder()
+                .refreshAfterWrite(refreshInterval, TimeUnit.MILLISECONDS)
+                .build(new CacheLoader<String, List<Table>>() {
+                    @Override
+                    public List<Table> load(String db) throws Exception {
+                        return fetchTables(db);
+                    }
+
+                    @Override
+                    public ListenableFuture<List<Table>> reload(
+                            String db, List<Table> old) {
+                        ListenableFutureTask<List<Table>> task =
+                                ListenableFutureTask.create(() ->
+                                        reloadTables(db, old));
+                        reloadExecutor.execute(task);
+                        return task;
+                    }
+                });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (reloadExecutor != null) {
+            reloadExecutor.shutdownNow();
+        }
+    }
+
     @Override
     @Cacheable(unless = "#result==null")
     public Iterable<String> getAllDatabases() {
@@ -96,7 +156,6 @@ public class HiveMetaStoreServiceImpl implements HiveMetaStoreService {
 
 
     @Override
-    @Cacheable(unless = "#result==null || #result.isEmpty()")
     public List<Table> getAllTable(String db) {
         return getTables(db);
     }
@@ -111,8 +170,12 @@ public class HiveMetaStoreServiceImpl implements HiveMetaStoreService {
         return result;
     }
     
+    /**
+     * Tables of all databases, read from the tables cache every time, so
+     * that tables reloaded in background are returned as soon as reload
+     * completes. Databases whose tables fail to load are left out.
+     */
     @Override
-    @Cacheable(unless = "#result==null")
     public Map<String, List<Table>> getAllTable() {
         Map<String, List<Table>> results = new HashMap<>();
         Iterable<String> dbs;
@@ -127,9 +190,10 @@ public class HiveMetaStoreServiceImpl implements HiveMetaStoreService {
             return results;
         }
         for (String db : dbs) {
-            // TODO: getAllTable() is not reusing caches of getAllTable(db) and vise versa
-            // TODO: getTables() can return empty values on metastore exception
-            results.put(db, getTables(db));
+            List<Table> tables = getTables(db);
+            if (tables != null) {
+                results.put(db, tables);
+            }
         }
         return results;
     }
@@ -154,6 +218,10 @@ public class HiveMetaStoreServiceImpl implements HiveMetaStoreService {
         return result;
     }
 
+    /**
+     * Evict cached databases and tables names, and reload cached tables in
+     * background. Tables keep being served from cache meanwhile.
+     */
     @Scheduled(fixedRateString =
             "${cache.evict.hive.fixedRate.in.milliseconds}")
     @CacheEvict(
@@ -161,31 +229,56 @@ public class HiveMetaStoreServiceImpl implements HiveMetaStoreService {
             allEntries = true,
             beforeInvocation = true)
     public void evictHiveCache() {
-        LOGGER.info("Evict hive cache");
-        // TODO: calls within same bean are not cached -- this call is not populating anything
-//        getAllTable();
-//        LOGGER.info("After evict hive cache, " +
-//                "automatically refresh hive tables cache.");
+        LOGGER.info("Evict hive cache and refresh hive tables cache.");
+        for (String db : tableCache.asMap().keySet()) {
+            tableCache.refresh(db);
+        }
     }
 
 
+    /**
+     * @return tables of database, null if they fail to load
+     */
     private List<Table> getTables(String db) {
-        String useDbName = getUseDbName(db);
+        if (client == null) {
+            LOGGER.warn("Hive client is null. " +
+                    "Please check your hive config.");
+            return new ArrayList<>();
+        }
+        try {
+            return tableCache.get(getUseDbName(db));
+        } catch (ExecutionException | RuntimeException e) {
+            // failed loads are not cached and are retried on next call
+            LOGGER.error("Exception fetching tables info: {}", e);
+            return null;
+        }
+    }
+
+    private List<Table> reloadTables(String db, List<Table> old) {
+        try {
+            return fetchTables(db);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to reload tables of {}, keep cached ones. {}",
+                    db, e.getMessage());
+            return old;
+        }
+    }
+
+    /**
+     * Fetch all tables of a database with getTableObjectsByName, at most
+     * hive.metastore.table.batch.size tables per call.
+     */
+    private List<Table> fetchTables(String db) throws Exception {
         List<Table> allTables = new ArrayList<>();
         try {
-            if (client == null) {
-                LOGGER.warn("Hive client is null. " +
-                        "Please check your hive config.");
-                return allTables;
-            }
-            Iterable<String> tables = client.getAllTables(useDbName);
-            for (String table : tables) {
-                Table tmp = client.getTable(db, table);
-                allTables.add(tmp);
+            List<String> tables = client.getAllTables(db);
+            int batchSize = Math.max(1, tableBatchSize);
+            for (List<String> batch : Lists.partition(tables, batchSize)) {
+                allTables.addAll(client.getTableObjectsByName(db, batch));
             }
         } catch (Exception e) {
             reconnect();
-            LOGGER.error("Exception fetching tables info: {}", e);
+            throw e;
         }
         return allTables;
     }
@@ -0,0 +1,246 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.metric;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.griffin.core.metric.model.MetricValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+/**
+ * Buffer metric values posted by measure jobs and write them to metric store
+ * in bulk batches of at most metric.ingest.batch.size values, or whatever is
+ * buffered after metric.ingest.flush.interval.ms. Failed batches are retried
+ * with backoff, meanwhile the bounded queue fills up and new values are
+ * rejected so that clients back off as well.
+ * It is opt-in by metric.ingest.async, as posted values are then answered
+ * with 202 before they are stored.
+ */
+@Component
+public class MetricIngestionBuffer {
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(MetricIngestionBuffer.class);
+    private static final long MAX_RETRY_INTERVAL = 30000;
+
+    @Autowired
+    private MetricStore metricStore;
+    @Autowired(required = false)
+    private CacheManager cacheManager;
+
+    @Value("${metric.ingest.async:false}")
+    private boolean enabled;
+    @Value("${metric.ingest.queue.capacity:100000}")
+    private int capacity;
+    @Value("${metric.ingest.batch.size:1000}")
+    private int batchSize;
+    @Value("${metric.ingest.flush.interval.ms:1000}")
+    private long flushInterval;
+    @Value("${metric.ingest.retry.count:5}")
+    private int retryCount;
+
+    private BlockingQueue<MetricValue> queue;
+    private Thread flusher;
+    private volatile boolean running;
+
+    private final AtomicLong flushedValues = new AtomicLong();
+    private final AtomicLong droppedValues = new AtomicLong();
+    private final AtomicLong rejectedValues = new AtomicLong();
+    private final AtomicLong flushedBatches = new AtomicLong();
+    private final AtomicLong lastBatchSize = new AtomicLong();
+    private final AtomicLong lastFlushMillis = new AtomicLong();
+    private final AtomicLong maxFlushMillis = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        running = true;
+        flusher = new Thread(this::run, "metric-ingestion-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        flusher.interrupt();
+        flusher.join(flushInterval);
+        List<MetricValue> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            LOGGER.info("Flush {} buffered metric values before shutdown.",
+                    rest.size());
+            write(rest);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Buffer all values, or none of them if there is not enough room.
+     *
+     * @param values metric values
+     * @return false if queue is full
+     */
+    public synchronized boolean offer(List<MetricValue> values) {
+        if (queue.remainingCapacity() < values.size()) {
+            rejectedValues.addAndGet(values.size());
+            return false;
+        }
+        // only this method adds to queue, so its room cannot shrink here
+        queue.addAll(values);
+        return true;
+    }
+
+    /**
+     * @return queue depth, batch size, flush latency and value counters
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new TreeMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("queueDepth", queue == null ? 0 : queue.size());
+        metrics.put("queueCapacity", capacity);
+        metrics.put("flushedValues", flushedValues.get());
+        metrics.put("flushedBatches", flushedBatches.get());
+        metrics.put("droppedValues", droppedValues.get());
+        metrics.put("rejectedValues", rejectedValues.get());
+        metrics.put("lastBatchSize", lastBatchSize.get());
+        metrics.put("lastFlushMillis", lastFlushMillis.get());
+        metrics.put("maxFlushMillis", maxFlushMillis.get());
+        return metrics;
+    }
+
+    private void run() {
+        int size = Math.max(1, batchSize);
+        List<MetricValue> batch = new ArrayList<>(size);
+        while (running) {
+            try {
+                MetricValue first = queue.poll(flushInterval,
+                        TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.currentTimeMillis() + flushInterval;
+                while (batch.size() < size) {
+                    queue.drainTo(batch, size - batch.size());
+                    long wait = deadline - System.currentTimeMillis();
+                    if (batch.size() >= size || wait <= 0) {
+                        break;
+                    }
+                    MetricValue next = queue.poll(wait, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                // queue may be full, so unfinished batch is written here
+                if (!batch.isEmpty() && !write(batch)) {
+                    LOGGER.error("Drop {} metric values on shutdown.",
+                            batch.size());
+                    droppedValues.addAndGet(batch.size());
+                }
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                LOGGER.error("Failed to flush metric values. {}",
+                        e.getMessage(), e);
+                droppedValues.addAndGet(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<MetricValue> batch) throws InterruptedException {
+        long interval = Math.max(1, flushInterval);
+        for (int attempt = 1; ; attempt++) {
+            if (write(batch)) {
+                return;
+            }
+            if (attempt >= retryCount) {
+                LOGGER.error("Drop {} metric values after {} attempts.",
+                        batch.size(), attempt);
+                droppedValues.addAndGet(batch.size());
+                return;
+            }
+            Thread.sleep(interval);
+            interval = Math.min(interval * 2, MAX_RETRY_INTERVAL);
+        }
+    }
+
+    private boolean write(List<MetricValue> batch) {
+        long start = System.currentTimeMillis();
+        try {
+            ResponseEntity<?> response = metricStore.addMetricValues(batch);
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                LOGGER.warn("Failed to write {} metric values: {}",
+                        batch.size(), response.getBody());
+                return false;
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to write {} metric values. {}", batch.size(),
+                    e.getMessage());
+            return false;
+        }
+        long cost = System.currentTimeMillis() - start;
+        flushedValues.addAndGet(batch.size());
+        flushedBatches.incrementAndGet();
+        lastBatchSize.set(batch.size());
+        lastFlushMillis.set(cost);
+        maxFlushMillis.accumulateAndGet(cost, Math::max);
+        evictMetricCache();
+        return true;
+    }
+
+    private void evictMetricCache() {
+        Cache cache = cacheManager != null ? cacheManager.getCache("metrics")
+                : null;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
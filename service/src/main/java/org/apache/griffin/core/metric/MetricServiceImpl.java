@@ -23,14 +23,22 @@ package org.apache.griffin.core.metric;
 import static org.apache.griffin.core.exception.GriffinExceptionMessage.INVALID_METRIC_RECORDS_OFFSET;
 import static org.apache.griffin.core.exception.GriffinExceptionMessage.INVALID_METRIC_RECORDS_SIZE;
 import static org.apache.griffin.core.exception.GriffinExceptionMessage.INVALID_METRIC_VALUE_FORMAT;
+import static org.apache.griffin.core.exception.GriffinExceptionMessage.METRIC_INGESTION_QUEUE_IS_FULL;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
 
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang.StringUtils;
@@ -45,13 +53,19 @@ import org.codehaus.jackson.JsonProcessingException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 @Service
 public class MetricServiceImpl implements MetricService {
     private static final Logger LOGGER = LoggerFactory
             .getLogger(MetricServiceImpl.class);
+    private static final int LATEST_METRIC_VALUE_SIZE = 300;
 
     @Autowired
     private MeasureRepo<Measure> measureRepo;
@@ -59,8 +73,18 @@ public class MetricServiceImpl implements MetricService {
     private JobRepo<AbstractJob> jobRepo;
     @Autowired
     private MetricStore metricStore;
+    @Autowired
+    private MetricIngestionBuffer ingestionBuffer;
+
+    @Value("${metric.fetch.batch.size:100}")
+    private int batchSize;
+    @Value("${metric.fetch.parallelism:8}")
+    private int parallelism;
+
+    private ExecutorService executor;
 
     @Override
+    @Cacheable(cacheNames = "metrics", keyGenerator = "cacheKeyGenerator")
     public Map<String, List<Metric>> getAllMetrics() {
         Map<String, List<Metric>> metricMap = new HashMap<>();
         List<AbstractJob> jobs = jobRepo.findByDeleted(false);
@@ -69,14 +93,19 @@ public class MetricServiceImpl implements MetricService {
                 .toMap(Measure::getId, Function.identity()));
         Map<Long, List<AbstractJob>> jobMap = jobs.stream().collect(Collectors
                 .groupingBy(AbstractJob::getMeasureId, Collectors.toList()));
+        List<String> metricNames = jobs.stream().map(AbstractJob::getMetricName)
+                .filter(Objects::nonNull).distinct().collect(Collectors
+                        .toList());
+        Map<String, List<MetricValue>> valueMap = getLatestMetricValues(
+                metricNames);
         for (Map.Entry<Long, List<AbstractJob>> entry : jobMap.entrySet()) {
             Long measureId = entry.getKey();
             Measure measure = measureMap.get(measureId);
             List<AbstractJob> jobList = entry.getValue();
             List<Metric> metrics = new ArrayList<>();
             for (AbstractJob job : jobList) {
-                List<MetricValue> metricValues = getMetricValues(job
-                        .getMetricName(), 0, 300, job.getCreatedDate());
+                List<MetricValue> metricValues = valueMap.getOrDefault(job
+                        .getMetricName(), Collections.emptyList());
                 metrics.add(new Metric(job.getMetricName(), measure.getDqType(),
                         measure.getOwner(), metricValues));
             }
@@ -86,6 +115,81 @@ public class MetricServiceImpl implements MetricService {
         return metricMap;
     }
 
+    /**
+     * Get latest values of metrics by batched search, fall back to search
+     * them concurrently one by one if batched search fails.
+     *
+     * @param metricNames metric names
+     * @return metric values keyed by metric name
+     */
+    private Map<String, List<MetricValue>> getLatestMetricValues(
+            List<String> metricNames) {
+        Map<String, List<MetricValue>> result = new HashMap<>();
+        int batch = Math.max(1, batchSize);
+        for (int i = 0; i < metricNames.size(); i += batch) {
+            List<String> names = metricNames.subList(i, Math.min(metricNames
+                    .size(), i + batch));
+            try {
+                result.putAll(metricStore.getMetricValues(names,
+                        LATEST_METRIC_VALUE_SIZE));
+            } catch (IOException e) {
+                LOGGER.warn("Failed to get metric values in batch, get them " +
+                        "one by one. {}", e.getMessage());
+                result.putAll(fetchMetricValues(names));
+            }
+        }
+        return result;
+    }
+
+    private Map<String, List<MetricValue>> fetchMetricValues(
+            List<String> metricNames) {
+        ExecutorService executor = getExecutor();
+        List<Future<List<MetricValue>>> futures = new ArrayList<>();
+        for (String metricName : metricNames) {
+            futures.add(executor.submit(() -> metricStore.getMetricValues(
+                    metricName, 0, LATEST_METRIC_VALUE_SIZE, 0)));
+        }
+        Map<String, List<MetricValue>> result = new HashMap<>();
+        try {
+            for (int i = 0; i < metricNames.size(); i++) {
+                result.put(metricNames.get(i), futures.get(i).get());
+            }
+        } catch (ExecutionException e) {
+            LOGGER.error("Failed to get metric values. {}", e.getMessage());
+            throw new GriffinException.ServiceException(
+                    "Failed to get metric values", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GriffinException.ServiceException(
+                    "Failed to get metric values", e);
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return result;
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        }
+        return executor;
+    }
+
+    @PreDestroy
+    public synchronized void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Scheduled(fixedRateString =
+            "${cache.evict.metric.fixedRate.in.milliseconds:30000}")
+    @CacheEvict(cacheNames = "metrics", allEntries = true,
+            beforeInvocation = true)
+    public void evictMetricCache() {
+        LOGGER.debug("Evict metric cache");
+    }
+
     @Override
     public List<MetricValue> getMetricValues(String metricName, int offset,
                                              int size, long tmst) {
@@ -109,10 +213,18 @@ public class MetricServiceImpl implements MetricService {
 
     @SuppressWarnings("rawtypes")
     @Override
+    @CacheEvict(cacheNames = "metrics", allEntries = true)
     public ResponseEntity addMetricValues(List<MetricValue> values) {
         for (MetricValue value : values) {
             checkFormat(value);
         }
+        if (ingestionBuffer.isEnabled()) {
+            if (!ingestionBuffer.offer(values)) {
+                throw new GriffinException.TooManyRequestsException(
+                        METRIC_INGESTION_QUEUE_IS_FULL);
+            }
+            return new ResponseEntity(HttpStatus.ACCEPTED);
+        }
         try {
             return metricStore.addMetricValues(values);
         } catch (JsonProcessingException e) {
@@ -128,6 +240,7 @@ public class MetricServiceImpl implements MetricService {
 
     @SuppressWarnings("rawtypes")
     @Override
+    @CacheEvict(cacheNames = "metrics", allEntries = true)
     public ResponseEntity deleteMetricValues(String metricName) {
         try {
             return metricStore.deleteMetricValues(metricName);
@@ -21,6 +21,7 @@ package org.apache.griffin.core.metric;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.griffin.core.metric.model.MetricValue;
 import org.springframework.http.ResponseEntity;
@@ -30,6 +31,17 @@ public interface MetricStore {
     List<MetricValue> getMetricValues(String metricName, int from, int size,
                                       long tmst) throws IOException;
 
+    /**
+     * Get latest values of several metrics in one round trip.
+     *
+     * @param metricNames metric names
+     * @param size        max count of values of each metric
+     * @return metric values keyed by metric name
+     */
+    Map<String, List<MetricValue>> getMetricValues(List<String> metricNames,
+                                                   int size)
+            throws IOException;
+
     ResponseEntity<?> addMetricValues(List<MetricValue> metricValues)
             throws IOException;
 
@@ -19,12 +19,16 @@ under the License.
 
 package org.apache.griffin.core.metric;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collections;
@@ -39,6 +43,7 @@ import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
 import org.apache.http.entity.ContentType;
 import org.apache.http.message.BasicHeader;
+import org.apache.http.nio.entity.NByteArrayEntity;
 import org.apache.http.nio.entity.NStringEntity;
 import org.apache.http.util.EntityUtils;
 import org.elasticsearch.client.Response;
@@ -57,20 +62,26 @@ public class MetricStoreImpl implements MetricStore {
 
     private static final String INDEX = "griffin";
     private static final String TYPE = "accuracy";
+    private static final int SEARCH_AFTER_PAGE_SIZE = 1000;
 
     private RestClient client;
     private HttpHeaders responseHeaders;
     private String urlGet;
+    private String urlMultiGet;
     private String urlDelete;
     private String urlPost;
     private ObjectMapper mapper;
     private String indexMetaData;
+    private byte[] indexMetaDataBytes;
+    private int maxResultWindow;
 
     public MetricStoreImpl(@Value("${elasticsearch.host}") String host,
                            @Value("${elasticsearch.port}") int port,
                            @Value("${elasticsearch.scheme:http}") String scheme,
                            @Value("${elasticsearch.user:}") String user,
-                           @Value("${elasticsearch.password:}") String password) {
+                           @Value("${elasticsearch.password:}") String password,
+                           @Value("${elasticsearch.max.result.window:10000}")
+                                   int maxResultWindow) {
         HttpHost httpHost = new HttpHost(host, port, scheme);
         RestClientBuilder builder = RestClient.builder(httpHost);
         if (!user.isEmpty() && !password.isEmpty()) {
@@ -85,7 +96,12 @@ public class MetricStoreImpl implements MetricStore {
         responseHeaders.setContentType(MediaType.APPLICATION_JSON);
         this.responseHeaders = responseHeaders;
         String urlBase = String.format("/%s/%s", INDEX, TYPE);
-        this.urlGet = urlBase.concat("/_search?filter_path=hits.hits._source");
+        this.urlGet = urlBase.concat("/_search?filter_path=hits.hits._source," +
+                "hits.hits.sort");
+        // keep hits.total and error so that no response is filtered out
+        this.urlMultiGet = urlBase.concat("/_msearch?filter_path=" +
+                "responses.hits.total,responses.hits.hits._source," +
+                "responses.error");
         this.urlPost = urlBase.concat("/_bulk");
         this.urlDelete = urlBase.concat("/_delete_by_query");
         this.indexMetaData = String.format(
@@ -94,89 +110,294 @@ public class MetricStoreImpl implements MetricStore {
                 INDEX,
                 TYPE);
         this.mapper = new ObjectMapper();
+        this.mapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        this.indexMetaDataBytes = indexMetaData.getBytes(
+                StandardCharsets.UTF_8);
+        this.maxResultWindow = maxResultWindow;
     }
 
     @Override
     public List<MetricValue> getMetricValues(String metricName, int from,
                                              int size, long tmst)
             throws IOException {
-        HttpEntity entity = getHttpEntityForSearch(metricName, from, size,
-                tmst);
+        if (from + size <= maxResultWindow) {
+            return search(metricName, from, size, null, true, false).values;
+        }
+        // deep pages are beyond result window, walk there by search_after
+        List<MetricValue> values = new ArrayList<>();
+        List<Object> searchAfter = null;
+        int skip = from;
+        while (values.size() < size) {
+            boolean skipping = skip > 0;
+            int pageSize = Math.min(SEARCH_AFTER_PAGE_SIZE,
+                    skipping ? skip : size - values.size());
+            SearchPage page = search(metricName, 0, pageSize, searchAfter,
+                    !skipping, true);
+            if (skipping) {
+                skip -= page.hits;
+            } else {
+                values.addAll(page.values);
+            }
+            searchAfter = page.lastSort;
+            if (page.hits < pageSize || searchAfter == null) {
+                break;
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, List<MetricValue>> getMetricValues(
+            List<String> metricNames, int size) throws IOException {
+        Map<String, List<MetricValue>> result = new HashMap<>();
+        if (metricNames.isEmpty()) {
+            return result;
+        }
+        StringBuilder body = new StringBuilder();
+        for (String metricName : metricNames) {
+            body.append("{}\n");
+            body.append(JsonUtil.toJson(getSearchBody(metricName, 0, size,
+                    null, true, false)));
+            body.append("\n");
+        }
+        HttpEntity entity = new NStringEntity(body.toString(),
+                ContentType.create("application/x-ndjson"));
+        try {
+            Response response = client.performRequest("GET", urlMultiGet,
+                    Collections.emptyMap(), entity);
+            List<List<MetricValue>> responses = readMultiSearchResponse(
+                    response.getEntity().getContent());
+            for (int i = 0; i < metricNames.size(); i++) {
+                result.put(metricNames.get(i), i < responses.size() ?
+                        responses.get(i) : Collections.emptyList());
+            }
+        } catch (ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() != 404) {
+                throw e;
+            }
+            for (String metricName : metricNames) {
+                result.put(metricName, Collections.emptyList());
+            }
+        }
+        return result;
+    }
+
+    private SearchPage search(String metricName, int from, int size,
+                              List<Object> searchAfter, boolean withSource,
+                              boolean paging) throws IOException {
+        HttpEntity entity = new NStringEntity(JsonUtil.toJson(getSearchBody(
+                metricName, from, size, searchAfter, withSource, paging)),
+                ContentType.APPLICATION_JSON);
         try {
             Response response = client.performRequest("GET", urlGet,
                     Collections.emptyMap(), entity);
-            return getMetricValuesFromResponse(response);
+            return readSearchResponse(response.getEntity().getContent());
         } catch (ResponseException e) {
             if (e.getResponse().getStatusLine().getStatusCode() == 404) {
-                return Collections.emptyList();
+                return new SearchPage();
             }
             throw e;
         }
     }
 
-    private HttpEntity getHttpEntityForSearch(String metricName, int from, int
-            size, long tmst)
-            throws JsonProcessingException {
+    /**
+     * @param paging whether the search is a page of search_after walk, whose
+     *               sort values must be unique, so _id is sorted as well
+     */
+    private Map<String, Object> getSearchBody(String metricName, int from,
+                                              int size,
+                                              List<Object> searchAfter,
+                                              boolean withSource,
+                                              boolean paging) {
         Map<String, Object> map = new HashMap<>();
         Map<String, Object> queryParam = new HashMap<>();
         Map<String, Object> termQuery = Collections.singletonMap("name.keyword",
                 metricName);
         queryParam.put("filter", Collections.singletonMap("term", termQuery));
-        Map<String, Object> sortParam = Collections
-                .singletonMap("tmst", Collections.singletonMap("order",
-                        "desc"));
+        List<Object> sortParam = new ArrayList<>();
+        sortParam.add(Collections.singletonMap("tmst", Collections
+                .singletonMap("order", "desc")));
         map.put("query", Collections.singletonMap("bool", queryParam));
-        map.put("sort", sortParam);
-        map.put("from", from);
         map.put("size", size);
-        return new NStringEntity(JsonUtil.toJson(map),
-                ContentType.APPLICATION_JSON);
+        if (searchAfter == null && from > 0) {
+            map.put("from", from);
+        }
+        if (paging) {
+            sortParam.add(Collections.singletonMap("_id", Collections
+                    .singletonMap("order", "desc")));
+        }
+        if (searchAfter != null) {
+            map.put("search_after", searchAfter);
+        }
+        if (!withSource) {
+            map.put("_source", false);
+        }
+        map.put("sort", sortParam);
+        return map;
     }
 
-    private List<MetricValue> getMetricValuesFromResponse(Response response)
+    /**
+     * Read search response, like {"hits":{"hits":[{"_source":{...},
+     * "sort":[...]}]}}, from stream. Values are read into MetricValue
+     * directly without building the whole response tree.
+     */
+    SearchPage readSearchResponse(InputStream in) throws IOException {
+        SearchPage page = new SearchPage();
+        try (JsonParser parser = mapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return page;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("hits".equals(field) && parser.getCurrentToken() ==
+                        JsonToken.START_OBJECT) {
+                    readHits(parser, page);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return page;
+    }
+
+    List<List<MetricValue>> readMultiSearchResponse(InputStream in)
+            throws IOException {
+        List<List<MetricValue>> responses = new ArrayList<>();
+        try (JsonParser parser = mapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return responses;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if (!"responses".equals(field) || parser.getCurrentToken() !=
+                        JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    SearchPage page = new SearchPage();
+                    // failed search of a metric, e.g. missing index, is
+                    // regarded as no values
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String respField = parser.getCurrentName();
+                        parser.nextToken();
+                        if ("hits".equals(respField) && parser
+                                .getCurrentToken() == JsonToken.START_OBJECT) {
+                            readHits(parser, page);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    responses.add(page.values);
+                }
+            }
+        }
+        return responses;
+    }
+
+    private void readHits(JsonParser parser, SearchPage page)
+            throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (!"hits".equals(field) || parser.getCurrentToken() !=
+                    JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                readHit(parser, page);
+            }
+        }
+    }
+
+    private void readHit(JsonParser parser, SearchPage page)
             throws IOException {
-        List<MetricValue> metricValues = new ArrayList<>();
-        JsonNode jsonNode = mapper.readTree(EntityUtils.toString(response
-                .getEntity()));
-        if (jsonNode.hasNonNull("hits") && jsonNode.get("hits")
-                .hasNonNull("hits")) {
-            for (JsonNode node : jsonNode.get("hits").get("hits")) {
-                JsonNode sourceNode = node.get("_source");
-                Map<String, Object> value = JsonUtil.toEntity(sourceNode
-                                .get("value").toString(),
-                        new TypeReference<Map<String, Object>>() {
+        page.hits++;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("_source".equals(field) && parser.getCurrentToken() ==
+                    JsonToken.START_OBJECT) {
+                page.values.add(readSource(parser));
+            } else if ("sort".equals(field) && parser.getCurrentToken() ==
+                    JsonToken.START_ARRAY) {
+                page.lastSort = mapper.readValue(parser,
+                        new TypeReference<List<Object>>() {
                         });
-                MetricValue metricValue = new MetricValue(sourceNode
-                        .get("name")
-                        .asText(),
-                        Long.parseLong(sourceNode.get("tmst").asText()),
-                        value);
-                metricValues.add(metricValue);
+            } else {
+                parser.skipChildren();
             }
         }
-        return metricValues;
+    }
+
+    private MetricValue readSource(JsonParser parser) throws IOException {
+        MetricValue metricValue = new MetricValue();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "name":
+                    metricValue.setName(parser.getValueAsString());
+                    break;
+                case "tmst":
+                    metricValue.setTmst(parser.getValueAsLong());
+                    break;
+                case "value":
+                    metricValue.setValue(mapper.readValue(parser,
+                            new TypeReference<Map<String, Object>>() {
+                            }));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return metricValue;
+    }
+
+    static class SearchPage {
+        private List<MetricValue> values = new ArrayList<>();
+        private List<Object> lastSort;
+        private int hits;
+
+        List<MetricValue> getValues() {
+            return values;
+        }
+
+        List<Object> getLastSort() {
+            return lastSort;
+        }
     }
 
     @Override
     public ResponseEntity<?> addMetricValues(List<MetricValue> metricValues)
             throws IOException {
-        String bulkRequestBody = getBulkRequestBody(metricValues);
-        HttpEntity entity = new NStringEntity(bulkRequestBody,
-                ContentType.APPLICATION_JSON);
+        HttpEntity entity = getBulkRequestEntity(metricValues);
         Response response = client.performRequest("POST", urlPost,
                 Collections.emptyMap(), entity);
         return getResponseEntityFromResponse(response);
     }
 
-    private String getBulkRequestBody(List<MetricValue> metricValues) throws
-            JsonProcessingException {
-        StringBuilder bulkRequestBody = new StringBuilder();
+    /**
+     * Serialize bulk body straight into bytes, without building it as one
+     * big string first.
+     */
+    private HttpEntity getBulkRequestEntity(List<MetricValue> metricValues)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(
+                metricValues.size() * 256);
         for (MetricValue metricValue : metricValues) {
-            bulkRequestBody.append(indexMetaData);
-            bulkRequestBody.append(JsonUtil.toJson(metricValue));
-            bulkRequestBody.append(System.lineSeparator());
+            out.write(indexMetaDataBytes);
+            mapper.writeValue(out, metricValue);
+            out.write('\n');
         }
-        return bulkRequestBody.toString();
+        return new NByteArrayEntity(out.toByteArray(),
+                ContentType.APPLICATION_JSON);
     }
 
     @Override
@@ -21,23 +21,37 @@ package org.apache.griffin.core.util;
 
 import static org.apache.griffin.core.exception.GriffinExceptionMessage.HDFS_FILE_NOT_EXIST;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+
 import java.io.BufferedReader;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.Charsets;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.griffin.core.exception.GriffinException;
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -48,11 +62,16 @@ public class FSUtil {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(FSUtil.class);
     private static final int SAMPLE_ROW_COUNT = 100;
+    private static final String MANIFEST_FILE = "_MANIFEST";
 
     private static String fsDefaultName;
 
     private static FileSystem fileSystem;
 
+    private static int checkParallelism = 8;
+
+    private static volatile ExecutorService checkExecutor;
+
     private static FileSystem defaultFS = getDefaultFileSystem();
     private static FileSystem getDefaultFileSystem() {
         FileSystem fs = null;
@@ -72,8 +91,10 @@ public class FSUtil {
         return fileSystem;
     }
 
-    public FSUtil(@Value("${fs.defaultFS}") String defaultName) {
+    public FSUtil(@Value("${fs.defaultFS}") String defaultName,
+                  @Value("${fs.check.parallelism:8}") int parallelism) {
         fsDefaultName = defaultName;
+        checkParallelism = Math.max(1, parallelism);
     }
 
     private static void initFileSystem() {
@@ -168,40 +189,191 @@ public class FSUtil {
 
     public static boolean isFileExist(String path) throws IOException {
         checkHDFSConf();
-        Path hdfsPath = new Path(path);
-        return fileSystem.isFile(hdfsPath) || fileSystem.isDirectory(hdfsPath);
+        try {
+            fileSystem.getFileStatus(new Path(path));
+            return true;
+        } catch (FileNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Check which paths exist. Paths are grouped by parent directory, a
+     * group of one path costs one getFileStatus call and a larger group one
+     * listStatus call of their parent. Groups are checked in parallel.
+     *
+     * @param paths file or directory paths
+     * @return the paths that exist
+     */
+    public static Set<String> getExistPaths(Collection<String> paths)
+            throws IOException {
+        checkHDFSConf();
+        Map<Path, List<String>> groups = new LinkedHashMap<>();
+        for (String path : paths) {
+            Path parent = new Path(path).getParent();
+            groups.computeIfAbsent(parent, k -> new ArrayList<>()).add(path);
+        }
+        Set<String> existPaths = new HashSet<>();
+        if (groups.size() == 1) {
+            Map.Entry<Path, List<String>> group = groups.entrySet().iterator()
+                    .next();
+            existPaths.addAll(getExistPaths(group.getKey(), group.getValue()));
+            return existPaths;
+        }
+        List<Future<List<String>>> futures = new ArrayList<>();
+        for (Map.Entry<Path, List<String>> group : groups.entrySet()) {
+            futures.add(getCheckExecutor().submit(() ->
+                    getExistPaths(group.getKey(), group.getValue())));
+        }
+        try {
+            for (Future<List<String>> future : futures) {
+                existPaths.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while checking paths.", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause
+                    : new IOException(cause);
+        }
+        return existPaths;
+    }
+
+    private static List<String> getExistPaths(Path parent, List<String> paths)
+            throws IOException {
+        List<String> existPaths = new ArrayList<>();
+        if (parent == null || paths.size() == 1) {
+            for (String path : paths) {
+                if (isFileExist(path)) {
+                    existPaths.add(path);
+                }
+            }
+            return existPaths;
+        }
+        Set<String> names = new HashSet<>();
+        try {
+            for (FileStatus status : fileSystem.listStatus(parent)) {
+                names.add(status.getPath().getName());
+            }
+        } catch (FileNotFoundException e) {
+            return existPaths;
+        }
+        for (String path : paths) {
+            if (names.contains(new Path(path).getName())) {
+                existPaths.add(path);
+            }
+        }
+        return existPaths;
+    }
+
+    private static ExecutorService getCheckExecutor() {
+        if (checkExecutor == null) {
+            synchronized (FSUtil.class) {
+                if (checkExecutor == null) {
+                    checkExecutor = Executors.newFixedThreadPool(
+                            checkParallelism, r -> {
+                                Thread t = new Thread(r, "fs-path-check");
+                                t.setDaemon(true);
+                                return t;
+                            });
+                }
+            }
+        }
+        return checkExecutor;
     }
 
+    /**
+     * Sample the first lines of a record file, or of a record directory
+     * written by the measure from executors, whose part files are listed in
+     * its manifest.
+     */
     public static InputStream getSampleInputStream(String path)
             throws IOException {
         checkHDFSConf();
         if (isFileExist(path)) {
-            FSDataInputStream missingData = fileSystem.open(new Path(path));
-            BufferedReader bufReader = new BufferedReader(
-                    new InputStreamReader(missingData, Charsets.UTF_8));
-            try {
-                String line = null;
-                int rowCnt = 0;
-                StringBuilder output = new StringBuilder(1024);
-
-                while ((line = bufReader.readLine()) != null) {
-                    if (rowCnt < SAMPLE_ROW_COUNT) {
-                        output.append(line);
-                        output.append("\n");
-                    }
-                    rowCnt++;
+            StringBuilder output = new StringBuilder(1024);
+            int rowCnt = 0;
+            for (Path file : getRecordFiles(new Path(path))) {
+                rowCnt = sampleLines(file, output, rowCnt);
+                if (rowCnt >= SAMPLE_ROW_COUNT) {
+                    break;
                 }
-
-                return IOUtils.toInputStream(output, Charsets.UTF_8);
-            } finally {
-                bufReader.close();
             }
+            return IOUtils.toInputStream(output, Charsets.UTF_8);
         } else {
             LOGGER.warn("HDFS file does not exist.", path);
             throw new GriffinException.NotFoundException(HDFS_FILE_NOT_EXIST);
         }
     }
 
+    /**
+     * @return the file itself, or the committed part files of a record
+     * directory in order
+     */
+    private static List<Path> getRecordFiles(Path path) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (fileSystem.isFile(path)) {
+            files.add(path);
+            return files;
+        }
+        Path manifest = new Path(path, MANIFEST_FILE);
+        if (fileSystem.exists(manifest)) {
+            Map<String, Object> content;
+            try (InputStream in = fileSystem.open(manifest)) {
+                content = JsonUtil.toEntity(in,
+                        new TypeReference<Map<String, Object>>() {
+                        });
+            }
+            Object entries = content == null ? null : content.get("files");
+            if (entries instanceof List) {
+                for (Object entry : (List<?>) entries) {
+                    if (entry instanceof Map) {
+                        files.add(new Path(path, String.valueOf(
+                                ((Map<?, ?>) entry).get("file"))));
+                    }
+                }
+            }
+            return files;
+        }
+        // record directory without manifest, split by max lines per file
+        List<String> names = new ArrayList<>();
+        for (FileStatus status : fileSystem.listStatus(path)) {
+            String name = status.getPath().getName();
+            if (status.isFile() && !name.startsWith("_")
+                    && !name.startsWith(".")) {
+                names.add(name);
+            }
+        }
+        Collections.sort(names);
+        for (String name : names) {
+            files.add(new Path(path, name));
+        }
+        return files;
+    }
+
+    private static int sampleLines(Path file, StringBuilder output,
+                                   int rowCnt) throws IOException {
+        InputStream in = fileSystem.open(file);
+        CompressionCodec codec = new CompressionCodecFactory(
+                fileSystem.getConf()).getCodec(file);
+        if (codec != null) {
+            in = codec.createInputStream(in);
+        }
+        try (BufferedReader bufReader = new BufferedReader(
+                new InputStreamReader(in, Charsets.UTF_8))) {
+            String line;
+            while (rowCnt < SAMPLE_ROW_COUNT
+                    && (line = bufReader.readLine()) != null) {
+                output.append(line);
+                output.append("\n");
+                rowCnt++;
+            }
+        }
+        return rowCnt;
+    }
+
     private static void checkHDFSConf() {
         if (getFileSystem() == null) {
             throw new NullPointerException("FileSystem is null. " +
@@ -209,13 +381,21 @@ public class FSUtil {
         }
     }
 
+    /**
+     * @return path of the first miss record file, or of the miss record
+     * directory written by the measure from executors
+     */
     public static String getFirstMissRecordPath(String hdfsDir)
             throws Exception {
-        List<FileStatus> fileList = listFileStatus(hdfsDir);
-        for (int i = 0; i < fileList.size(); i++) {
-            if (fileList.get(i).getPath().toUri().toString().toLowerCase()
+        checkHDFSConf();
+        Path path = new Path(hdfsDir);
+        if (fileSystem.isFile(path)) {
+            return null;
+        }
+        for (FileStatus status : fileSystem.listStatus(path)) {
+            if (status.getPath().getName().toLowerCase()
                     .contains("missrecord")) {
-                return fileList.get(i).getPath().toUri().toString();
+                return status.getPath().toUri().toString();
             }
         }
         return null;
@@ -223,13 +403,16 @@ public class FSUtil {
 
     public static InputStream getMissSampleInputStream(String path)
             throws Exception {
-        List<String> subDirList = listSubDir(path);
-        //FIXME: only handle 1-sub dir here now
-        for (int i = 0; i < subDirList.size(); i++) {
-            return getSampleInputStream(getFirstMissRecordPath(
-                    subDirList.get(i)));
+        // miss records may be a directory of part files under the path
+        String missRecordPath = getFirstMissRecordPath(path);
+        if (missRecordPath == null) {
+            List<String> subDirList = listSubDir(path);
+            //FIXME: only handle 1-sub dir here now
+            if (!subDirList.isEmpty()) {
+                missRecordPath = getFirstMissRecordPath(subDirList.get(0));
+            }
         }
-        return getSampleInputStream(getFirstMissRecordPath(path));
+        return getSampleInputStream(missRecordPath);
     }
 
 }
@@ -28,14 +28,19 @@ import org.apache.griffin.core.job.entity.JobInstanceBean;
 import org.apache.griffin.core.job.entity.LivySessionStates;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+@Component
 public class YarnNetUtil {
     private static final Logger LOGGER = LoggerFactory
             .getLogger(YarnNetUtil.class);
-    private static RestTemplate restTemplate = new RestTemplate();
+
+    @Autowired
+    private RestTemplate restTemplate;
 
     /**
      * delete app task scheduling by yarn.
@@ -43,7 +48,7 @@ public class YarnNetUtil {
      * @param url prefix part of whole url
      * @param appId application id
      */
-    public static void delete(String url, String appId) {
+    public void delete(String url, String appId) {
         try {
             if (appId != null) {
                 LOGGER.info("{} will delete by yarn", appId);
@@ -66,7 +71,7 @@ public class YarnNetUtil {
      * @param instance job instance
      * @return
      */
-    public static boolean update(String url, JobInstanceBean instance) {
+    public boolean update(String url, JobInstanceBean instance) {
         try {
             url += "/ws/v1/cluster/apps/" + instance.getAppId();
             String result = restTemplate.getForObject(url, String.class);
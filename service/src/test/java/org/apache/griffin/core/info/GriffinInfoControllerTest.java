@@ -20,15 +20,22 @@ under the License.
 package org.apache.griffin.core.info;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.mockito.BDDMockito.given;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.griffin.core.common.HttpClientMetrics;
+import org.apache.griffin.core.metric.MetricIngestionBuffer;
 import org.apache.griffin.core.util.URLHelper;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -39,10 +46,38 @@ public class GriffinInfoControllerTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @MockBean
+    private HttpClientMetrics httpClientMetrics;
+
+    @MockBean
+    private MetricIngestionBuffer ingestionBuffer;
+
     @Test
     public void testGreeting() throws Exception {
         mockMvc.perform(get(URLHelper.API_VERSION_PATH + "/version"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", is("0.4.0")));
     }
+
+    @Test
+    public void testGetHttpClientMetrics() throws Exception {
+        Map<String, Object> stats = Collections.singletonMap("count", 3);
+        given(httpClientMetrics.getMetrics()).willReturn(Collections
+                .singletonMap("GET localhost:8998/batches/{id}", stats));
+
+        mockMvc.perform(get(URLHelper.API_VERSION_PATH + "/info/http"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['GET localhost:8998/batches/{id}']" +
+                        ".count", is(3)));
+    }
+
+    @Test
+    public void testGetMetricIngestionMetrics() throws Exception {
+        given(ingestionBuffer.getMetrics()).willReturn(Collections
+                .singletonMap("queueDepth", 10));
+
+        mockMvc.perform(get(URLHelper.API_VERSION_PATH + "/info/ingestion"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.queueDepth", is(10)));
+    }
 }
@@ -0,0 +1,122 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+
+package org.apache.griffin.core.job;
+
+import static org.apache.griffin.core.job.PredicateWatcher.PREDICATE_GROUP;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.FINDING;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.NOT_FOUND;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.SUCCESS;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.WAITING;
+import static org.apache.griffin.core.util.EntityMocksHelper.createGriffinJob;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.griffin.core.job.entity.BatchJob;
+import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.repo.BatchJobRepo;
+import org.apache.griffin.core.job.repo.JobInstanceRepo;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.springframework.scheduling.quartz.SchedulerFactoryBean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+public class BatchJobOperatorImplTest {
+
+    @InjectMocks
+    private BatchJobOperatorImpl batchJobOp;
+
+    @Mock
+    private SchedulerFactoryBean factory;
+
+    @Mock
+    private Scheduler scheduler;
+
+    @Mock
+    private JobInstanceRepo instanceRepo;
+
+    @Mock
+    private BatchJobRepo batchJobRepo;
+
+    @Mock
+    private PredicateWatcher predicateWatcher;
+
+    @Mock
+    private LivyTaskSubmitHelper livyTaskSubmitHelper;
+
+    @Before
+    public void setUp() throws Exception {
+        given(factory.getScheduler()).willReturn(scheduler);
+        given(scheduler.checkExists(any(JobKey.class))).willReturn(true);
+    }
+
+    private List<JobInstanceBean> givenInstances(BatchJob job) {
+        List<JobInstanceBean> instances = Arrays.asList(
+                new JobInstanceBean(FINDING, "p1", PREDICATE_GROUP, 0L, 0L),
+                new JobInstanceBean(WAITING, "p2", PREDICATE_GROUP, 0L, 0L),
+                new JobInstanceBean(SUCCESS, "p3", PREDICATE_GROUP, 0L, 0L));
+        given(instanceRepo.findByJobId(job.getId())).willReturn(instances);
+        return instances;
+    }
+
+    private void assertPredicatesDeleted(List<JobInstanceBean> instances) {
+        assertEquals(NOT_FOUND, instances.get(0).getState());
+        assertEquals(NOT_FOUND, instances.get(1).getState());
+        assertEquals(SUCCESS, instances.get(2).getState());
+        for (JobInstanceBean instance : instances) {
+            assertTrue(instance.isPredicateDeleted());
+            verify(predicateWatcher).cancel(instance.getPredicateName());
+            verify(livyTaskSubmitHelper).removeTask(new JobKey(
+                    instance.getPredicateName(), PREDICATE_GROUP));
+        }
+        verify(instanceRepo).save(instances);
+    }
+
+    @Test
+    public void testStopMarksWaitingInstancesNotFound() {
+        BatchJob job = createGriffinJob();
+        List<JobInstanceBean> instances = givenInstances(job);
+
+        batchJobOp.stop(job);
+
+        assertPredicatesDeleted(instances);
+    }
+
+    @Test
+    public void testDeleteMarksWaitingInstancesNotFound() {
+        BatchJob job = createGriffinJob();
+        List<JobInstanceBean> instances = givenInstances(job);
+
+        batchJobOp.delete(job);
+
+        assertPredicatesDeleted(instances);
+        assertTrue(job.isDeleted());
+    }
+}
@@ -88,4 +88,19 @@ public class FileExistPredicatorTest {
         assertFalse(predicator.predicate());
 
     }
+
+    @Test
+    public void test_predicate_multiple_paths() throws IOException {
+        SegmentPredicate predicate = new SegmentPredicate();
+        Map<String, Object> configMap = new HashMap<>();
+        configMap.put("path", fileName + ",fileName");
+        configMap.put("root.path", rootPath);
+        predicate.setConfigMap(configMap);
+
+        FileExistPredicator predicator = new FileExistPredicator(predicate);
+        assertFalse(predicator.predicate());
+
+        configMap.put("path", fileName + "," + fileName);
+        assertTrue(predicator.predicate());
+    }
 }
@@ -35,6 +35,7 @@ import java.util.Properties;
 
 import org.apache.griffin.core.job.entity.AbstractJob;
 import org.apache.griffin.core.job.entity.BatchJob;
+import org.apache.griffin.core.job.entity.PredicateTask;
 import org.apache.griffin.core.job.repo.BatchJobRepo;
 import org.apache.griffin.core.job.repo.JobInstanceRepo;
 import org.apache.griffin.core.job.repo.JobRepo;
@@ -106,6 +107,9 @@ public class JobInstanceTest {
     @MockBean
     private JobRepo<AbstractJob> repo;
 
+    @MockBean
+    private PredicateWatcher predicateWatcher;
+
     @Test
     @SuppressWarnings("unchecked")
     public void testExecute() throws Exception {
@@ -130,9 +134,11 @@ public class JobInstanceTest {
         jobInstance.execute(context);
 
         verify(measureRepo, times(1)).findOne(Matchers.anyLong());
-        verify(factory, times(4)).getScheduler();
+        verify(factory, times(1)).getScheduler();
         verify(scheduler, times(1)).getTriggersOfJob(Matchers.any(
                 JobKey.class));
+        verify(predicateWatcher, times(1)).watch(Matchers.any(
+                PredicateTask.class));
     }
 
     @SuppressWarnings("unchecked")
@@ -0,0 +1,204 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+
+package org.apache.griffin.core.job;
+
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.DEAD;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.RUNNING;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.SUCCESS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.LivySessionStates.State;
+import org.apache.griffin.core.job.repo.JobInstanceRepo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.internal.util.reflection.Whitebox;
+import org.springframework.core.env.Environment;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+public class JobServiceImplTest {
+
+    private static final String LIVY_URI = "http://livy/batches";
+    private static final String LIST_URI = LIVY_URI +
+            "?from={from}&size={size}";
+
+    private JobServiceImpl jobService;
+    private RestTemplate restTemplate;
+    private JobInstanceRepo instanceRepo;
+
+    @Before
+    public void setUp() {
+        jobService = new JobServiceImpl();
+        restTemplate = mock(RestTemplate.class);
+        instanceRepo = mock(JobInstanceRepo.class);
+        Environment env = mock(Environment.class);
+        given(env.getProperty("livy.uri")).willReturn(LIVY_URI);
+        given(env.getProperty("yarn.uri")).willReturn("http://yarn");
+        Whitebox.setInternalState(jobService, "restTemplate", restTemplate);
+        Whitebox.setInternalState(jobService, "instanceRepo", instanceRepo);
+        Whitebox.setInternalState(jobService, "env", env);
+        Whitebox.setInternalState(jobService, "livyTaskSubmitHelper",
+                mock(LivyTaskSubmitHelper.class));
+        Whitebox.setInternalState(jobService, "yarnNetUtil",
+                mock(YarnNetUtil.class));
+        Whitebox.setInternalState(jobService, "syncListEnabled", true);
+        Whitebox.setInternalState(jobService, "syncPageSize", 2);
+        Whitebox.setInternalState(jobService, "syncParallelism", 2);
+        jobService.init();
+    }
+
+    @After
+    public void tearDown() {
+        jobService.destroy();
+    }
+
+    private List<JobInstanceBean> givenActiveInstances(long... sessionIds) {
+        List<JobInstanceBean> instances = new ArrayList<>();
+        for (long sessionId : sessionIds) {
+            JobInstanceBean instance = new JobInstanceBean(sessionId, RUNNING,
+                    null, null, null, null);
+            // beans are equal by id
+            instance.setId(sessionId * 10);
+            instances.add(instance);
+        }
+        given(instanceRepo.findByActiveState(any(State[].class)))
+                .willReturn(instances);
+        return instances;
+    }
+
+    private static String session(long id, String state) {
+        return "{\"id\":" + id + ",\"state\":\"" + state + "\"}";
+    }
+
+    private static String page(int total, String... sessions) {
+        return "{\"total\":" + total + ",\"sessions\":[" +
+                String.join(",", sessions) + "]}";
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<JobInstanceBean> savedInBatch() {
+        ArgumentCaptor<Iterable> captor = ArgumentCaptor.forClass(
+                Iterable.class);
+        verify(instanceRepo).save(captor.capture());
+        List<JobInstanceBean> saved = new ArrayList<>();
+        captor.getValue().forEach(bean -> saved.add(
+                (JobInstanceBean) bean));
+        return saved;
+    }
+
+    @Test
+    public void testSyncListsSessionsPageByPageUntilTotal() {
+        givenActiveInstances(1L, 2L, 3L);
+        given(restTemplate.getForObject(LIST_URI, String.class, 0, 2))
+                .willReturn(page(3, session(1, "running"),
+                        session(2, "running")));
+        given(restTemplate.getForObject(LIST_URI, String.class, 2, 2))
+                .willReturn(page(3, session(3, "running")));
+
+        jobService.syncInstancesOfAllJobs();
+
+        verify(restTemplate).getForObject(LIST_URI, String.class, 0, 2);
+        verify(restTemplate).getForObject(LIST_URI, String.class, 2, 2);
+        verify(restTemplate, never()).getForObject(startsWith(LIVY_URI + "/"),
+                eq(String.class));
+        verify(instanceRepo, never()).save(any(Iterable.class));
+    }
+
+    @Test
+    public void testSyncQueriesSessionMissingFromList() {
+        List<JobInstanceBean> instances = givenActiveInstances(1L, 2L);
+        given(restTemplate.getForObject(LIST_URI, String.class, 0, 2))
+                .willReturn(page(1, session(1, "running")));
+        given(restTemplate.getForObject(LIVY_URI + "/2", String.class))
+                .willReturn(session(2, "success"));
+
+        jobService.syncInstancesOfAllJobs();
+
+        verify(restTemplate, never()).getForObject(LIVY_URI + "/1",
+                String.class);
+        verify(instanceRepo).save(instances.get(1));
+        assertEquals(RUNNING, instances.get(0).getState());
+        assertEquals(SUCCESS, instances.get(1).getState());
+    }
+
+    @Test
+    public void testSyncFetchesSessionsInParallelWhenListFails() {
+        List<JobInstanceBean> instances = givenActiveInstances(1L, 2L, 3L,
+                4L, 5L, 6L);
+        given(restTemplate.getForObject(eq(LIST_URI), eq(String.class),
+                anyVararg())).willThrow(new RestClientException("no list"));
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        given(restTemplate.getForObject(startsWith(LIVY_URI + "/"),
+                eq(String.class))).willAnswer(invocation -> {
+                    int current = inFlight.incrementAndGet();
+                    maxInFlight.accumulateAndGet(current, Math::max);
+                    Thread.sleep(50);
+                    inFlight.decrementAndGet();
+                    String uri = (String) invocation.getArguments()[0];
+                    long id = Long.parseLong(uri.substring(
+                            uri.lastIndexOf('/') + 1));
+                    return session(id, "dead");
+                });
+
+        jobService.syncInstancesOfAllJobs();
+
+        verify(restTemplate, times(6)).getForObject(startsWith(LIVY_URI +
+                "/"), eq(String.class));
+        assertTrue(maxInFlight.get() <= 2);
+        assertEquals(instances, savedInBatch());
+        for (JobInstanceBean instance : instances) {
+            assertEquals(DEAD, instance.getState());
+        }
+    }
+
+    @Test
+    public void testSyncSavesOnlyChangedInstancesInOneBatch() {
+        List<JobInstanceBean> instances = givenActiveInstances(1L, 2L, 3L);
+        given(restTemplate.getForObject(LIST_URI, String.class, 0, 2))
+                .willReturn(page(3, session(1, "success"),
+                        session(2, "running")));
+        given(restTemplate.getForObject(LIST_URI, String.class, 2, 2))
+                .willReturn(page(3, session(3, "dead")));
+
+        jobService.syncInstancesOfAllJobs();
+
+        assertEquals(Arrays.asList(instances.get(0), instances.get(2)),
+                savedInBatch());
+        verify(instanceRepo, never()).save(any(JobInstanceBean.class));
+    }
+}
@@ -0,0 +1,110 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.repo.JobInstanceRepo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.internal.util.reflection.Whitebox;
+import org.springframework.core.env.Environment;
+import org.springframework.web.client.RestTemplate;
+
+public class LivyAppIdTrackerTest {
+
+    private LivyAppIdTracker tracker;
+    private RestTemplate restTemplate;
+    private JobInstanceRepo instanceRepo;
+
+    @Before
+    public void setUp() {
+        tracker = new LivyAppIdTracker();
+        restTemplate = mock(RestTemplate.class);
+        instanceRepo = mock(JobInstanceRepo.class);
+        Environment env = mock(Environment.class);
+        given(env.getProperty("livy.uri")).willReturn("http://livy/batches");
+        given(env.getProperty("yarn.uri")).willReturn("http://yarn");
+        Whitebox.setInternalState(tracker, "restTemplate", restTemplate);
+        Whitebox.setInternalState(tracker, "instanceRepo", instanceRepo);
+        Whitebox.setInternalState(tracker, "env", env);
+        Whitebox.setInternalState(tracker, "appIdRetryCount", 3);
+        Whitebox.setInternalState(tracker, "retryInterval", 10L);
+        Whitebox.setInternalState(tracker, "threadCount", 1);
+        tracker.init();
+    }
+
+    @After
+    public void tearDown() {
+        tracker.destroy();
+    }
+
+    @Test
+    public void testTrackUpdatesOnlyAppIdWhenResolved() {
+        given(restTemplate.getForObject("http://livy/batches/1", String.class))
+                .willReturn("{\"id\":1,\"state\":\"starting\",\"appId\":null}")
+                .willReturn("{\"id\":1,\"state\":\"running\"," +
+                        "\"appId\":\"application_1\"}");
+
+        tracker.track(10L, 1L);
+
+        verify(instanceRepo, timeout(1000)).updateAppIdIfAbsent(10L,
+                "application_1", "http://yarn/cluster/app/application_1");
+        verify(instanceRepo, never()).save(any(JobInstanceBean.class));
+    }
+
+    @Test
+    public void testTrackStopsWhenBatchIsNotActive() {
+        given(restTemplate.getForObject("http://livy/batches/2", String.class))
+                .willReturn("{\"id\":2,\"state\":\"dead\",\"appId\":null}");
+
+        tracker.track(20L, 2L);
+
+        verify(restTemplate, after(300).times(1)).getForObject(
+                "http://livy/batches/2", String.class);
+        verify(instanceRepo, never()).updateAppIdIfAbsent(anyLong(),
+                anyString(), anyString());
+    }
+
+    @Test
+    public void testTrackGivesUpAfterRetries() {
+        given(restTemplate.getForObject("http://livy/batches/3", String.class))
+                .willReturn("{\"id\":3,\"state\":\"starting\",\"appId\":null}");
+
+        tracker.track(30L, 3L);
+
+        verify(restTemplate, after(500).times(3)).getForObject(
+                eq("http://livy/batches/3"), eq(String.class));
+        verify(instanceRepo, never()).updateAppIdIfAbsent(anyLong(),
+                anyString(), anyString());
+    }
+}
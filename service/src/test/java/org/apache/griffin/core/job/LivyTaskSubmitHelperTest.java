@@ -0,0 +1,175 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job;
+
+import static org.apache.griffin.core.job.JobInstance.PRIORITY_KEY;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.NOT_FOUND;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.WAITING;
+import static org.apache.griffin.core.util.EntityMocksHelper.createJobDetail;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.LivySessionStates.State;
+import org.apache.griffin.core.job.repo.JobInstanceRepo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.internal.util.reflection.Whitebox;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.impl.JobDetailImpl;
+import org.springframework.scheduling.quartz.SchedulerFactoryBean;
+
+public class LivyTaskSubmitHelperTest {
+
+    private LivyTaskSubmitHelper helper;
+
+    @Before
+    public void setUp() {
+        helper = new LivyTaskSubmitHelper();
+        // no livy slot, so that submitters never take tasks from queue
+        Whitebox.setInternalState(helper, "maxConcurrentTaskCount", 0);
+        Whitebox.setInternalState(helper, "submitThreadCount", 1);
+        Whitebox.setInternalState(helper, "priorityWeightSecond", 600L);
+        helper.startWorker();
+    }
+
+    @After
+    public void tearDown() {
+        helper.destroy();
+    }
+
+    @Test
+    public void testAddTaskToWaitingQueueIgnoresQueuedTask() {
+        JobDetailImpl jd = createJobDetail("", "");
+
+        assertTrue(helper.addTaskToWaitingQueue(jd));
+        assertTrue(helper.addTaskToWaitingQueue(jd));
+
+        assertEquals(1, getQueue().size());
+    }
+
+    @Test
+    public void testAddTaskToWaitingQueueOrdersByPriority() {
+        JobDetailImpl low = createJobDetail("", "");
+        low.setKey(new JobKey("low", "PG"));
+        JobDetailImpl high = createJobDetail("", "");
+        high.setKey(new JobKey("high", "PG"));
+        high.getJobDataMap().put(PRIORITY_KEY, "1");
+
+        helper.addTaskToWaitingQueue(low);
+        helper.addTaskToWaitingQueue(high);
+
+        Object head = getQueue().peek();
+        assertEquals(new JobKey("high", "PG"),
+                Whitebox.getInternalState(head, "key"));
+    }
+
+    @Test
+    public void testUpdateTaskStateReleasesPermitOnTerminalStates() {
+        LivyTaskSubmitHelper idle = new LivyTaskSubmitHelper();
+        Semaphore permits = new Semaphore(0);
+        Whitebox.setInternalState(idle, "permits", permits);
+        State[] terminals = {State.SUCCESS, State.DEAD, State.ERROR,
+                State.UNKNOWN, State.NOT_FOUND};
+        for (int i = 0; i < terminals.length; i++) {
+            idle.increaseCurTaskNum((long) i);
+            idle.updateTaskState((long) i, terminals[i]);
+        }
+
+        assertEquals(terminals.length, permits.availablePermits());
+
+        // released only once per batch
+        idle.updateTaskState(0L, State.DEAD);
+        assertEquals(terminals.length, permits.availablePermits());
+    }
+
+    @Test
+    public void testUpdateTaskStateKeepsPermitOfActiveBatch() {
+        LivyTaskSubmitHelper idle = new LivyTaskSubmitHelper();
+        Semaphore permits = new Semaphore(0);
+        Whitebox.setInternalState(idle, "permits", permits);
+        idle.increaseCurTaskNum(1L);
+
+        idle.updateTaskState(1L, State.STARTING);
+        idle.updateTaskState(1L, State.RUNNING);
+        assertEquals(0, permits.availablePermits());
+
+        idle.updateTaskState(1L, State.DEAD);
+        assertEquals(1, permits.availablePermits());
+    }
+
+    @Test
+    public void testRemoveTaskDropsQueuedTask() {
+        JobDetailImpl jd = createJobDetail("", "");
+        helper.addTaskToWaitingQueue(jd);
+
+        helper.removeTask(jd.getKey());
+
+        assertEquals(0, getQueue().size());
+        // the key can be queued again
+        assertTrue(helper.addTaskToWaitingQueue(jd));
+        assertEquals(1, getQueue().size());
+    }
+
+    @Test
+    public void testSubmitMarksInstanceNotFoundWhenJobIsGone() {
+        JobInstanceRepo instanceRepo = mock(JobInstanceRepo.class);
+        SchedulerFactoryBean factory = mock(SchedulerFactoryBean.class);
+        given(factory.getScheduler()).willReturn(mock(Scheduler.class));
+        JobInstanceBean instance = new JobInstanceBean(WAITING, "pName",
+                "PG", 0L, 0L);
+        given(instanceRepo.findByPredicateName("pName")).willReturn(instance);
+
+        LivyTaskSubmitHelper submitter = new LivyTaskSubmitHelper();
+        Whitebox.setInternalState(submitter, "maxConcurrentTaskCount", 1);
+        Whitebox.setInternalState(submitter, "submitThreadCount", 1);
+        Whitebox.setInternalState(submitter, "instanceRepo", instanceRepo);
+        Whitebox.setInternalState(submitter, "factory", factory);
+        Whitebox.setInternalState(submitter, "predicateWatcher",
+                mock(PredicateWatcher.class));
+        submitter.startWorker();
+        try {
+            JobDetailImpl jd = createJobDetail("", "");
+            jd.setKey(new JobKey("pName", "PG"));
+            submitter.addTaskToWaitingQueue(jd);
+
+            verify(instanceRepo, timeout(5000)).save(instance);
+            assertEquals(NOT_FOUND, instance.getState());
+        } finally {
+            submitter.destroy();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private PriorityBlockingQueue<Object> getQueue() {
+        return (PriorityBlockingQueue<Object>) Whitebox.getInternalState(
+                helper, "queue");
+    }
+}
@@ -0,0 +1,143 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+package org.apache.griffin.core.job;
+
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.FINDING;
+import static org.apache.griffin.core.job.entity.LivySessionStates.State.NOT_FOUND;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.griffin.core.job.entity.JobInstanceBean;
+import org.apache.griffin.core.job.entity.PredicateTask;
+import org.apache.griffin.core.job.repo.JobInstanceRepo;
+import org.apache.griffin.core.job.repo.PredicateTaskRepo;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Matchers;
+import org.mockito.Mock;
+import org.mockito.internal.util.reflection.Whitebox;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+public class PredicateWatcherTest {
+
+    @InjectMocks
+    private PredicateWatcher watcher;
+
+    @Mock
+    private PredicateTaskRepo taskRepo;
+
+    @Mock
+    private JobInstanceRepo instanceRepo;
+
+    @Mock
+    private AutowireCapableBeanFactory beanFactory;
+
+    @Test
+    public void testCheckCancelledTask() {
+        given(taskRepo.findOne(1L)).willReturn(null);
+
+        watcher.check(1L);
+
+        verify(taskRepo, never()).save(Matchers.any(PredicateTask.class));
+    }
+
+    @Test
+    public void testCheckExpiredTask() {
+        PredicateTask task = new PredicateTask("pName", "jobName", "{}",
+                "[]", 0, 1000L, 0);
+        JobInstanceBean instance = new JobInstanceBean(FINDING, "pName",
+                "PG", 0L, 0L);
+        given(taskRepo.findOne(1L)).willReturn(task);
+        given(taskRepo.claim(eq(1L), anyString(), anyLong(), anyLong()))
+                .willReturn(1);
+        given(instanceRepo.findByPredicateName("pName")).willReturn(instance);
+
+        watcher.check(1L);
+
+        assertEquals(NOT_FOUND, instance.getState());
+        assertTrue(instance.isPredicateDeleted());
+        verify(taskRepo).deleteByPredicateName("pName");
+    }
+
+    @Test
+    public void testCheckTaskClaimedByOtherNode() {
+        ScheduledExecutorService timer = mock(ScheduledExecutorService.class);
+        Whitebox.setInternalState(watcher, "timer", timer);
+        PredicateTask task = new PredicateTask("pName", "jobName", "{}",
+                "[]", 0, 1000L, 0);
+        given(taskRepo.findOne(1L)).willReturn(task);
+        given(taskRepo.claim(eq(1L), anyString(), anyLong(), anyLong()))
+                .willReturn(0);
+
+        watcher.check(1L);
+
+        verify(timer).schedule(Matchers.any(Runnable.class), eq(1000L),
+                eq(TimeUnit.MILLISECONDS));
+        verify(instanceRepo, never()).findByPredicateName("pName");
+        verify(taskRepo, never()).deleteByPredicateName("pName");
+    }
+
+    @Test
+    public void testCheckTaskCancelledWhileChecking() {
+        ScheduledExecutorService timer = mock(ScheduledExecutorService.class);
+        Whitebox.setInternalState(watcher, "timer", timer);
+        PredicateTask task = new PredicateTask("pName", "jobName", "{}",
+                "[]", 0, 1000L, 12);
+        given(taskRepo.findOne(1L)).willReturn(task);
+        given(taskRepo.claim(eq(1L), anyString(), anyLong(), anyLong()))
+                .willReturn(1);
+        given(taskRepo.updateCheck(eq(1L), anyString(), anyInt(), anyLong()))
+                .willReturn(0);
+
+        watcher.check(1L);
+
+        verify(taskRepo, never()).save(Matchers.any(PredicateTask.class));
+        verify(timer, never()).schedule(Matchers.any(Runnable.class),
+                anyLong(), Matchers.any(TimeUnit.class));
+    }
+
+    @Test
+    public void testToJobDetail() {
+        PredicateTask task = new PredicateTask("pName", "jobName", "{}",
+                "[]", 2, 1000L, 12);
+
+        JobDetail jd = PredicateWatcher.toJobDetail(task);
+
+        assertEquals(new JobKey("pName", "PG"), jd.getKey());
+        assertEquals("jobName", jd.getJobDataMap().getString("jobName"));
+        assertEquals(2, jd.getJobDataMap().getIntValue("priority"));
+    }
+}
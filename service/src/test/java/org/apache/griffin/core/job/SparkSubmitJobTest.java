@@ -91,6 +91,9 @@ public class SparkSubmitJobTest {
     @MockBean
     private LivyTaskSubmitHelper livyTaskSubmitHelper;
 
+    @MockBean
+    private LivyAppIdTracker appIdTracker;
+
     @Before
     public void setUp() {
     }
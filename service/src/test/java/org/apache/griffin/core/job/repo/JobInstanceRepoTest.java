@@ -91,6 +91,24 @@ public class JobInstanceRepoTest {
         assertThat(count).isEqualTo(2);
     }
 
+    @Test
+    public void testUpdateAppIdIfAbsent() {
+        JobInstanceBean bean = jobInstanceRepo.findByPredicateName("pName1");
+
+        int count = jobInstanceRepo.updateAppIdIfAbsent(bean.getId(),
+                "app1", "uri1");
+        int again = jobInstanceRepo.updateAppIdIfAbsent(bean.getId(),
+                "app2", "uri2");
+        entityManager.clear();
+
+        JobInstanceBean updated = jobInstanceRepo.findOne(bean.getId());
+        assertThat(count).isEqualTo(1);
+        assertThat(again).isEqualTo(0);
+        assertThat(updated.getAppId()).isEqualTo("app1");
+        assertThat(updated.getAppUri()).isEqualTo("uri1");
+        assertThat(updated.getState()).isEqualTo(FINDING);
+    }
+
     private void setEntityManager() {
         JobInstanceBean bean1 = new JobInstanceBean(
                 FINDING,
@@ -27,6 +27,7 @@ import static org.mockito.Mockito.*;
 import java.util.Arrays;
 import java.util.List;
 
+import com.google.common.cache.LoadingCache;
 import org.apache.griffin.core.config.CacheConfig;
 import org.apache.hadoop.hive.metastore.HiveMetaStoreClient;
 import org.apache.hadoop.hive.metastore.api.MetaException;
@@ -36,6 +37,7 @@ import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.internal.util.reflection.Whitebox;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -44,6 +46,7 @@ import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.AopTestUtils;
 
 
 @RunWith(SpringRunner.class)
@@ -75,6 +78,9 @@ public class HiveMetaStoreServiceImplTest {
     @Before
     public void setup() {
         cacheManager.getCache("hive").clear();
+        HiveMetaStoreServiceImpl target = AopTestUtils.getTargetObject(service);
+        ((LoadingCache<?, ?>) Whitebox.getInternalState(target, "tableCache"))
+                .invalidateAll();
     }
 
     @Test
@@ -126,16 +132,34 @@ public class HiveMetaStoreServiceImplTest {
         String tableName = "table";
         given(client.getAllTables(useDbName)).willReturn(Arrays
                 .asList(tableName));
-        given(client.getTable(useDbName, tableName)).willReturn(new Table());
+        given(client.getTableObjectsByName(useDbName, Arrays.asList(
+                tableName))).willReturn(Arrays.asList(new Table()));
         assertEquals(service.getAllTable(useDbName).size(), 1);
     }
 
+    @Test
+    public void testGetAllTableSharesCacheWithGetAllTableByDBName()
+            throws TException {
+        String useDbName = "default";
+        String tableName = "table";
+        given(client.getAllDatabases()).willReturn(Arrays.asList(useDbName));
+        given(client.getAllTables(useDbName)).willReturn(Arrays
+                .asList(tableName));
+        given(client.getTableObjectsByName(useDbName, Arrays.asList(
+                tableName))).willReturn(Arrays.asList(new Table()));
+        assertEquals(service.getAllTable(useDbName).size(), 1);
+        assertEquals(service.getAllTable().get(useDbName).size(), 1);
+        verify(client, times(1)).getAllTables(useDbName);
+        verify(client, times(1)).getTableObjectsByName(useDbName,
+                Arrays.asList(tableName));
+    }
+
     @Test
     public void testGetAllTableByDBNameForMetaException() throws TException {
         String useDbName = "default";
         given(client.getAllTables(useDbName)).willThrow(MetaException.class);
         doNothing().when(client).reconnect();
-        assertEquals(0, service.getAllTable(useDbName).size());
+        assertTrue(service.getAllTable(useDbName) == null);
         verify(client).reconnect();
         verify(client).getAllTables(useDbName);
         // check it's not cached
@@ -152,7 +176,8 @@ public class HiveMetaStoreServiceImplTest {
         given(client.getAllDatabases()).willReturn(databases);
         given(client.getAllTables(databases.get(0))).willReturn(Arrays
                 .asList(tableName));
-        given(client.getTable(useDbName, tableName)).willReturn(new Table());
+        given(client.getTableObjectsByName(useDbName, Arrays.asList(
+                tableName))).willReturn(Arrays.asList(new Table()));
         assertEquals(service.getAllTable().size(), 1);
     }
 
@@ -163,7 +188,22 @@ public class HiveMetaStoreServiceImplTest {
         given(client.getAllDatabases()).willReturn(databases);
         given(client.getAllTables(useDbName)).willThrow(MetaException.class);
         doNothing().when(client).reconnect();
-        assertEquals(service.getAllTable().get(useDbName).size(), 0);
+        assertTrue(service.getAllTable().isEmpty());
+    }
+
+    @Test
+    public void testGetAllTableDoesNotCacheFailedDatabase() throws TException {
+        String useDbName = "default";
+        List<String> tables = Arrays.asList("tableName");
+        given(client.getAllDatabases()).willReturn(Arrays.asList(useDbName));
+        given(client.getAllTables(useDbName)).willThrow(MetaException.class)
+                .willReturn(tables);
+        given(client.getTableObjectsByName(useDbName, tables))
+                .willReturn(Arrays.asList(new Table()));
+        doNothing().when(client).reconnect();
+
+        assertTrue(service.getAllTable().isEmpty());
+        assertEquals(service.getAllTable().get(useDbName).size(), 1);
     }
 
     @Test
@@ -201,24 +241,67 @@ public class HiveMetaStoreServiceImplTest {
         String useDbName = "default";
         String tableName = "tableName";
         List<String> databases = Arrays.asList(useDbName);
+        List<String> tables = Arrays.asList(tableName);
         given(client.getAllDatabases()).willReturn(databases);
-        given(client.getAllTables(databases.get(0))).willReturn(Arrays
-                .asList(tableName));
-        given(client.getTable(useDbName, tableName)).willReturn(new Table());
+        given(client.getAllTables(databases.get(0))).willReturn(tables);
+        given(client.getTableObjectsByName(useDbName, tables))
+                .willReturn(Arrays.asList(new Table()));
         // populate cache
         assertEquals(service.getAllTable().size(), 1);
         verify(client).getAllDatabases();
         verify(client).getAllTables(useDbName);
-        verify(client).getTable(useDbName, tableName);
+        verify(client).getTableObjectsByName(useDbName, tables);
         // verify cached
         service.getAllTable();
         verifyNoMoreInteractions(client);
-        // reset the cache, verify values are cached again
+        // tables are reloaded in background and served from cache meanwhile
         service.evictHiveCache();
-        service.getAllTable().size();
-        service.getAllTable().size();
+        assertEquals(service.getAllTable().get(useDbName).size(), 1);
+        verify(client, timeout(1000).times(2)).getAllTables(useDbName);
+        verify(client, timeout(1000).times(2)).getTableObjectsByName(
+                useDbName, tables);
         verify(client, times(2)).getAllDatabases();
-        verify(client, times(2)).getAllTables(useDbName);
-        verify(client, times(2)).getTable(useDbName, tableName);
+    }
+
+    @Test
+    public void testEvictHiveCacheKeepsTablesOnMetaException()
+            throws Exception {
+        String useDbName = "default";
+        List<String> tables = Arrays.asList("tableName");
+        given(client.getAllTables(useDbName)).willReturn(tables)
+                .willThrow(MetaException.class);
+        given(client.getTableObjectsByName(useDbName, tables))
+                .willReturn(Arrays.asList(new Table()));
+        assertEquals(service.getAllTable(useDbName).size(), 1);
+
+        service.evictHiveCache();
+        verify(client, timeout(1000)).reconnect();
+        assertEquals(service.getAllTable(useDbName).size(), 1);
+    }
+
+    @Test
+    public void testGetAllTableReturnsReloadedTables() throws Exception {
+        String useDbName = "default";
+        List<String> oldTables = Arrays.asList("t1");
+        List<String> newTables = Arrays.asList("t1", "t2");
+        given(client.getAllDatabases()).willReturn(Arrays.asList(useDbName));
+        given(client.getAllTables(useDbName)).willReturn(oldTables)
+                .willReturn(newTables);
+        given(client.getTableObjectsByName(useDbName, oldTables))
+                .willReturn(Arrays.asList(new Table()));
+        given(client.getTableObjectsByName(useDbName, newTables))
+                .willReturn(Arrays.asList(new Table(), new Table()));
+        assertEquals(service.getAllTable().get(useDbName).size(), 1);
+
+        service.evictHiveCache();
+        verify(client, timeout(1000)).getTableObjectsByName(useDbName,
+                newTables);
+        // served from the tables cache as soon as reload completes
+        long deadline = System.currentTimeMillis() + 1000;
+        while (service.getAllTable().get(useDbName).size() != 2
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(service.getAllTable().get(useDbName).size(), 2);
     }
 }
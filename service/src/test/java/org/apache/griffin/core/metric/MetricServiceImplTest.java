@@ -63,6 +63,8 @@ public class MetricServiceImplTest {
     private JobRepo<AbstractJob> jobRepo;
     @Mock
     private MetricStoreImpl metricStore;
+    @Mock
+    private MetricIngestionBuffer ingestionBuffer;
 
     @Autowired
     private Environment env;
@@ -88,13 +90,38 @@ public class MetricServiceImplTest {
                 .singletonList(job));
         given(measureRepo.findByDeleted(false)).willReturn(Collections
                 .singletonList(measure));
+        given(metricStore.getMetricValues(Matchers.anyListOf(String.class),
+                Matchers.anyInt()))
+                .willReturn(Collections.singletonMap(job.getMetricName(),
+                        Collections.singletonList(value)));
+
+        Map<String, List<Metric>> metricMap = service.getAllMetrics();
+        assertEquals(metricMap.get("measureName").get(0).getName(), "jobName");
+        assertEquals(metricMap.get("measureName").get(0).getMetricValues()
+                .size(), 1);
+    }
+
+    @Test
+    public void testGetAllMetricsFallbackToSingleSearch() throws Exception {
+        Measure measure = createGriffinMeasure("measureName");
+        measure.setId(1L);
+        AbstractJob job = createGriffinJob();
+        MetricValue value = new MetricValue("jobName", 1L, new HashMap<>());
+        given(jobRepo.findByDeleted(false)).willReturn(Collections
+                .singletonList(job));
+        given(measureRepo.findByDeleted(false)).willReturn(Collections
+                .singletonList(measure));
+        given(metricStore.getMetricValues(Matchers.anyListOf(String.class),
+                Matchers.anyInt()))
+                .willThrow(new IOException());
         given(metricStore.getMetricValues(Matchers.anyString(),
                 Matchers.anyInt(), Matchers.anyInt(),
                 Matchers.anyLong()))
                 .willReturn(Collections.singletonList(value));
 
         Map<String, List<Metric>> metricMap = service.getAllMetrics();
-        assertEquals(metricMap.get("measureName").get(0).getName(), "jobName");
+        assertEquals(metricMap.get("measureName").get(0).getMetricValues()
+                .size(), 1);
     }
 
     @Test(expected = GriffinException.ServiceException.class)
@@ -106,6 +133,9 @@ public class MetricServiceImplTest {
                 .singletonList(job));
         given(measureRepo.findByDeleted(false)).willReturn(Collections
                 .singletonList(measure));
+        given(metricStore.getMetricValues(Matchers.anyListOf(String.class),
+                Matchers.anyInt()))
+                .willThrow(new IOException());
         given(metricStore.getMetricValues(Matchers.anyString(),
                 Matchers.anyInt(), Matchers.anyInt(),
                 Matchers.anyLong()))
@@ -180,6 +210,32 @@ public class MetricServiceImplTest {
         service.addMetricValues(values);
     }
 
+    @Test
+    public void testAddMetricValuesAccepted() {
+        Map<String, Object> value = new HashMap<>();
+        value.put("total", 10000);
+        List<MetricValue> values = Collections.singletonList(
+                new MetricValue("jobName", 1L, value));
+        given(ingestionBuffer.isEnabled()).willReturn(true);
+        given(ingestionBuffer.offer(values)).willReturn(true);
+
+        ResponseEntity response = service.addMetricValues(values);
+
+        assertEquals(response.getStatusCode(), HttpStatus.ACCEPTED);
+    }
+
+    @Test(expected = GriffinException.TooManyRequestsException.class)
+    public void testAddMetricValuesFailureWithFullQueue() {
+        Map<String, Object> value = new HashMap<>();
+        value.put("total", 10000);
+        List<MetricValue> values = Collections.singletonList(
+                new MetricValue("jobName", 1L, value));
+        given(ingestionBuffer.isEnabled()).willReturn(true);
+        given(ingestionBuffer.offer(values)).willReturn(false);
+
+        service.addMetricValues(values);
+    }
+
     @Test
     public void testDeleteMetricValuesSuccess() throws IOException {
 
@@ -19,12 +19,43 @@ under the License.
 
 package org.apache.griffin.core.metric;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
+import org.apache.griffin.core.metric.model.MetricValue;
+import org.apache.griffin.core.util.JsonUtil;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NStringEntity;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.internal.util.reflection.Whitebox;
 
 public class MetricStoreImplTest {
 
@@ -40,4 +71,114 @@ public class MetricStoreImplTest {
         assertTrue(authStr.equals("Basic dXNlcjpwYXNzd29yZA=="));
     }
 
+    @Test
+    public void testReadSearchResponse() throws IOException {
+        MetricStoreImpl store = new MetricStoreImpl("localhost", 9200, "http",
+                "", "", 10000);
+        String json = "{\"hits\":{\"hits\":[" +
+                "{\"_source\":{\"name\":\"m\",\"tmst\":\"2\"," +
+                "\"value\":{\"total\":10,\"miss\":1}},\"sort\":[2,\"b\"]}," +
+                "{\"_source\":{\"name\":\"m\",\"tmst\":1," +
+                "\"value\":{\"total\":5}},\"sort\":[1,\"a\"]}]}}";
+
+        MetricStoreImpl.SearchPage page = store.readSearchResponse(
+                stream(json));
+
+        List<MetricValue> values = page.getValues();
+        assertEquals(2, values.size());
+        assertEquals("m", values.get(0).getName());
+        assertEquals(Long.valueOf(2), values.get(0).getTmst());
+        assertEquals(10, values.get(0).getValue().get("total"));
+        assertEquals(Long.valueOf(1), values.get(1).getTmst());
+        assertEquals(Arrays.asList(1, "a"), page.getLastSort());
+    }
+
+    @Test
+    public void testReadMultiSearchResponse() throws IOException {
+        MetricStoreImpl store = new MetricStoreImpl("localhost", 9200, "http",
+                "", "", 10000);
+        String json = "{\"responses\":[" +
+                "{\"hits\":{\"total\":1,\"hits\":[{\"_source\":" +
+                "{\"name\":\"m1\",\"tmst\":1,\"value\":{\"a\":1}}}]}}," +
+                "{\"error\":{\"type\":\"index_not_found_exception\"}}," +
+                "{\"hits\":{\"total\":0}}]}";
+
+        List<List<MetricValue>> responses = store.readMultiSearchResponse(
+                stream(json));
+
+        assertEquals(3, responses.size());
+        assertEquals("m1", responses.get(0).get(0).getName());
+        assertTrue(responses.get(1).isEmpty());
+        assertTrue(responses.get(2).isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGetMetricValuesWalksDeepPagesBySearchAfter()
+            throws IOException {
+        MetricStoreImpl store = new MetricStoreImpl("localhost", 9200, "http",
+                "", "", 10);
+        RestClient client = mock(RestClient.class);
+        Whitebox.setInternalState(store, "client", client);
+        Response skipped = response(hits(8, 20, false));
+        Response page = response(hits(5, 12, true));
+        given(client.performRequest(eq("GET"), anyString(),
+                anyMapOf(String.class, String.class), any(HttpEntity.class),
+                (Header[]) anyVararg())).willReturn(skipped, page);
+
+        List<MetricValue> values = store.getMetricValues("m", 8, 5, 0);
+
+        ArgumentCaptor<HttpEntity> captor = ArgumentCaptor.forClass(
+                HttpEntity.class);
+        verify(client, times(2)).performRequest(eq("GET"), anyString(),
+                anyMapOf(String.class, String.class), captor.capture(),
+                (Header[]) anyVararg());
+        Map<String, Object> first = body(captor.getAllValues().get(0));
+        Map<String, Object> second = body(captor.getAllValues().get(1));
+        assertEquals(5, values.size());
+        assertEquals(Long.valueOf(12), values.get(0).getTmst());
+        // the skipped page is sorted by _id as well, so its last sort
+        // values can be sent as search_after of the next page
+        assertEquals(8, first.get("size"));
+        assertEquals(Boolean.FALSE, first.get("_source"));
+        assertFalse(first.containsKey("search_after"));
+        assertEquals(2, ((List<Object>) first.get("sort")).size());
+        assertEquals(5, second.get("size"));
+        assertFalse(second.containsKey("_source"));
+        assertEquals(2, ((List<Object>) second.get("sort")).size());
+        assertEquals(Arrays.asList(13, "id13"), second.get("search_after"));
+    }
+
+    private static String hits(int count, int firstTmst, boolean withSource) {
+        StringBuilder json = new StringBuilder("{\"hits\":{\"hits\":[");
+        for (int i = 0; i < count; i++) {
+            int tmst = firstTmst - i;
+            json.append(i > 0 ? "," : "").append("{");
+            if (withSource) {
+                json.append("\"_source\":{\"name\":\"m\",\"tmst\":")
+                        .append(tmst).append(",\"value\":{}},");
+            }
+            json.append("\"sort\":[").append(tmst).append(",\"id")
+                    .append(tmst).append("\"]}");
+        }
+        return json.append("]}}").toString();
+    }
+
+    private static Response response(String json) {
+        Response response = mock(Response.class);
+        given(response.getEntity()).willReturn(new NStringEntity(json,
+                ContentType.APPLICATION_JSON));
+        return response;
+    }
+
+    private static Map<String, Object> body(HttpEntity entity)
+            throws IOException {
+        return JsonUtil.toEntity(EntityUtils.toString(entity),
+                new TypeReference<Map<String, Object>>() {
+                });
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
 }
@@ -0,0 +1,109 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.griffin.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FSUtilTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void write(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(InputStream in) throws IOException {
+        return IOUtils.toString(in, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testSampleMissRecordFile() throws Exception {
+        File dir = folder.newFolder("job", "1000");
+        write(new File(dir, "_METRICS"), "{}");
+        write(new File(dir, "missRecords"), "a\nb");
+
+        assertTrue(FSUtil.getFirstMissRecordPath(dir.getPath())
+                .endsWith("/job/1000/missRecords"));
+        assertEquals("a\nb\n",
+                read(FSUtil.getMissSampleInputStream(dir.getPath())));
+    }
+
+    @Test
+    public void testSampleMissRecordDirectoryByManifest() throws Exception {
+        File dir = folder.newFolder("job", "1000", "missRecords");
+        write(new File(dir, "part-00000-00000-0"), "a\nb");
+        // part file of a failed task attempt, not in manifest
+        write(new File(dir, "part-00001-00000-0"), "x");
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(
+                new File(dir, "part-00001-00000-1.gz")))) {
+            out.write("c".getBytes(StandardCharsets.UTF_8));
+        }
+        write(new File(dir, "_MANIFEST"), "{\"files\":["
+                + "{\"file\":\"part-00000-00000-0\",\"lines\":2},"
+                + "{\"file\":\"part-00001-00000-1.gz\",\"lines\":1}],"
+                + "\"lines\":3}");
+
+        assertEquals("a\nb\nc\n", read(FSUtil.getMissSampleInputStream(
+                dir.getParentFile().getPath())));
+    }
+
+    @Test
+    public void testSampleMissRecordDirectoryWithoutManifest()
+            throws Exception {
+        File dir = folder.newFolder("job", "1000", "missRecords");
+        write(new File(dir, "1"), "c");
+        write(new File(dir, "0"), "a\nb");
+
+        assertEquals("a\nb\nc\n", read(FSUtil.getSampleInputStream(
+                dir.getPath())));
+    }
+
+    @Test
+    public void testSampleOnlyFirstLines() throws Exception {
+        File file = folder.newFile("missRecords");
+        StringBuilder content = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 150; i++) {
+            content.append(i).append("\n");
+            if (i < 100) {
+                expected.append(i).append("\n");
+            }
+        }
+        write(file, content.toString());
+
+        assertEquals(expected.toString(),
+                read(FSUtil.getSampleInputStream(file.getPath())));
+    }
+}